@@ -79,7 +79,7 @@ public class IoTDistributedSystem {
             
             // 3. OBSERVER PATTERN - Configurar monitor de heartbeat
             HeartbeatMonitor heartbeatMonitor = new HeartbeatMonitor(HEARTBEAT_TIMEOUT);
-            gateway.addObserver(heartbeatMonitor);
+            heartbeatMonitor.subscribeTo(gateway.getEventBus());
             logger.info("✅ Observer Pattern: HeartbeatMonitor adicionado");
             
             // 4. Iniciar o Gateway (Singleton + Strategy)
@@ -478,6 +478,7 @@ public class IoTDistributedSystem {
     private static void configureGRPCStrategy(IoTGateway gateway) {
         int grpcPort = Integer.parseInt(System.getProperty("iot.grpc.port", "9093"));
         GRPCCommunicationStrategy grpcStrategy = new GRPCCommunicationStrategy();
+        grpcStrategy.setGateway(gateway); // Streaming roteia direto com status por leitura
         
         // Configurar callback para roteamento (PROXY PATTERN)
         grpcStrategy.setMessageProcessor((message, host) -> {
@@ -162,6 +162,7 @@ public class IoTMultiProtocolLauncher {
                 break;
             case "GRPC":
                 GRPCCommunicationStrategy grpcStrategy = new GRPCCommunicationStrategy();
+                grpcStrategy.setGateway(gateway); // Streaming roteia direto com status por leitura
                 
                 // Configurar callback para roteamento (PROXY PATTERN)
                 grpcStrategy.setMessageProcessor((message, host) -> {
@@ -231,7 +232,7 @@ public class IoTMultiProtocolLauncher {
         
         // Adicionar HeartbeatMonitor (Observer Pattern)
         HeartbeatMonitor heartbeatMonitor = new HeartbeatMonitor(30); // 30 segundos timeout
-        gateway.addObserver(heartbeatMonitor);
+        heartbeatMonitor.subscribeTo(gateway.getEventBus());
         log.info("✅ Observer Pattern: HeartbeatMonitor adicionado");
         
         // Sistema está configurado para tolerância a falhas (já integrado no Gateway)
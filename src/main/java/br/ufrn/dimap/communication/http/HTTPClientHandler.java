@@ -3,38 +3,57 @@ package br.ufrn.dimap.communication.http;
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.patterns.singleton.IoTGateway;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static br.ufrn.dimap.communication.http.HTTPProtocolConstants.ENDPOINT_DATA_BATCH;
+import static br.ufrn.dimap.communication.http.HTTPProtocolConstants.ENDPOINT_SENSOR_DATA;
 
 /**
  * Handler para conexões HTTP IoT
  * Baseado no exemplo ClientHandler.java do professor com adaptações para IoT
+ * 
+ * Atende várias requisições na mesma conexão (HTTP/1.1 keep-alive), em
+ * ordem, inclusive quando enviadas em pipeline, até o cliente fechar,
+ * a conexão ficar ociosa ou a política de keep-alive pedir o fechamento.
  */
 public class HTTPClientHandler implements Runnable {
     private final Socket clientSocket;
     private final HTTPRequestParser parser;
     private final HTTPResponseBuilder responseBuilder;
     private final IoTGateway gateway;
+    private final HTTPKeepAlivePolicy keepAlivePolicy;
     
     public HTTPClientHandler(Socket clientSocket, IoTGateway gateway) {
+        this(clientSocket, gateway, new HTTPKeepAlivePolicy());
+    }
+    
+    HTTPClientHandler(Socket clientSocket, IoTGateway gateway, HTTPKeepAlivePolicy keepAlivePolicy) {
         this.clientSocket = clientSocket;
         this.parser = new HTTPRequestParser();
         this.responseBuilder = new HTTPResponseBuilder();
         this.gateway = gateway;
+        this.keepAlivePolicy = keepAlivePolicy;
     }
     
     @Override
     public void run() {
         System.out.println("🌐 HTTPClientHandler iniciado para " + clientSocket.getRemoteSocketAddress());
         
+        keepAlivePolicy.connectionOpened();
         try {
-            handleRequest();
+            handleConnection();
         } catch (Exception e) {
             System.err.println("❌ Erro no HTTPClientHandler: " + e.getMessage());
         } finally {
+            keepAlivePolicy.connectionClosed();
             try {
                 if (!clientSocket.isClosed()) {
                     clientSocket.close();
@@ -47,28 +66,47 @@ public class HTTPClientHandler implements Runnable {
         System.out.println("🌐 HTTPClientHandler finalizado para " + clientSocket.getRemoteSocketAddress());
     }
     
-    private void handleRequest() throws IOException {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             DataOutputStream out = new DataOutputStream(clientSocket.getOutputStream())) {
-            
-            // Parse da requisição HTTP
-            HTTPRequestParser.HTTPRequest request = parser.parseRequest(in);
-            
-            if (!request.isValid) {
-                responseBuilder.sendErrorResponse(out, 400, "Invalid HTTP request");
-                return;
-            }
-            
-            System.out.println("📥 HTTP " + request.method + " " + request.path + " de " + 
-                             clientSocket.getRemoteSocketAddress());
+    /**
+     * Laço de requisições da conexão
+     * Streams bufferizados e reutilizados: bytes de requisições em pipeline
+     * ficam no buffer de entrada e são lidos na próxima iteração.
+     */
+    private void handleConnection() throws IOException {
+        clientSocket.setSoTimeout(keepAlivePolicy.getIdleTimeoutMs());
+        int timeoutSeconds = Math.max(1, keepAlivePolicy.getIdleTimeoutMs() / 1000);
+        
+        try (InputStream in = new BufferedInputStream(clientSocket.getInputStream());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()))) {
             
-            // Roteamento por método e path
-            if ("GET".equals(request.method)) {
-                handleGetRequest(request, out);
-            } else if ("POST".equals(request.method)) {
-                handlePostRequest(request, out);
-            } else {
-                responseBuilder.sendMethodNotAllowedResponse(out);
+            int served = 0;
+            while (true) {
+                // Parse da requisição HTTP
+                HTTPRequestParser.HTTPRequest request;
+                try {
+                    request = parser.parseRequest(in);
+                } catch (SocketTimeoutException e) {
+                    break; // Conexão ociosa além do timeout de keep-alive
+                }
+                
+                if (request == null) {
+                    break; // Cliente encerrou a conexão
+                }
+                served++;
+                
+                if (!request.isValid) {
+                    responseBuilder.setKeepAlive(false, timeoutSeconds, 0);
+                    responseBuilder.sendErrorResponse(out, 400, "Invalid HTTP request");
+                    break;
+                }
+                
+                boolean persistent = keepAlivePolicy.keepAlive(request, served);
+                responseBuilder.setKeepAlive(persistent, timeoutSeconds, keepAlivePolicy.remainingRequests(served));
+                
+                handleRequest(request, out);
+                
+                if (!persistent) {
+                    break;
+                }
             }
             
         } catch (IOException e) {
@@ -77,6 +115,20 @@ public class HTTPClientHandler implements Runnable {
         }
     }
     
+    private void handleRequest(HTTPRequestParser.HTTPRequest request, DataOutputStream out) throws IOException {
+        System.out.println("📥 HTTP " + request.method + " " + request.path + " de " + 
+                         clientSocket.getRemoteSocketAddress());
+        
+        // Roteamento por método e path
+        if ("GET".equals(request.method)) {
+            handleGetRequest(request, out);
+        } else if ("POST".equals(request.method)) {
+            handlePostRequest(request, out);
+        } else {
+            responseBuilder.sendMethodNotAllowedResponse(out);
+        }
+    }
+    
     /**
      * Processa requisições GET (principalmente health check)
      */
@@ -105,6 +157,11 @@ public class HTTPClientHandler implements Runnable {
             return;
         }
         
+        if (isBatchEndpoint(request.path)) {
+            handleBatchRequest(request, out);
+            return;
+        }
+        
         // Parse da mensagem IoT
         IoTMessage iotMessage = parser.parseToIoTMessage(request);
         
@@ -136,6 +193,55 @@ public class HTTPClientHandler implements Runnable {
         }
     }
     
+    /**
+     * Processa um lote de leituras (array JSON ou NDJSON) roteado como unidade
+     */
+    private void handleBatchRequest(HTTPRequestParser.HTTPRequest request, DataOutputStream out) 
+            throws IOException {
+        
+        List<IoTMessage> items = parser.parseBatchToIoTMessages(request);
+        if (items == null) {
+            responseBuilder.sendErrorResponse(out, 400, 
+                "Invalid batch: expected JSON array or NDJSON with 1-" + IoTGateway.MAX_BATCH_SIZE + " readings");
+            return;
+        }
+        
+        // Itens válidos seguem juntos para o Gateway; inválidos só aparecem no resumo
+        List<IoTMessage> valid = new ArrayList<>(items.size());
+        for (IoTMessage item : items) {
+            if (item != null) {
+                valid.add(item);
+            }
+        }
+        
+        boolean[] routed = null;
+        if (gateway != null && !valid.isEmpty()) {
+            System.out.println("🔄 [HTTP-PROXY] Roteando lote de " + valid.size() + " leituras");
+            routed = gateway.routeBatchToDataReceiver(valid, clientSocket.getInetAddress().getHostAddress(), 
+                                                      clientSocket.getPort());
+        }
+        
+        boolean[] processed = new boolean[items.size()];
+        for (int i = 0, v = 0; i < items.size(); i++) {
+            if (items.get(i) != null) {
+                processed[i] = routed == null || routed[v];
+                v++;
+            }
+        }
+        
+        responseBuilder.sendBatchResponse(out, items, processed);
+        System.out.println("✅ [HTTP-PROXY] Lote processado: " + items.size() + " leituras");
+    }
+    
+    /**
+     * Lote: /iot/data/batch ou /iot/sensor/data/batch
+     */
+    private boolean isBatchEndpoint(String path) {
+        int query = path.indexOf('?');
+        String endpoint = query >= 0 ? path.substring(0, query) : path;
+        return endpoint.equals(ENDPOINT_DATA_BATCH) || endpoint.equals(ENDPOINT_SENSOR_DATA + "/batch");
+    }
+    
     /**
      * Verifica se o path é um endpoint IoT válido
      */
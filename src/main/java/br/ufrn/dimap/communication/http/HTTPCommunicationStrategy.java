@@ -1,5 +1,6 @@
 package br.ufrn.dimap.communication.http;
 
+import br.ufrn.dimap.core.IoTExecutors;
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.patterns.strategy.CommunicationStrategy;
 import br.ufrn.dimap.patterns.singleton.IoTGateway;
@@ -22,13 +23,16 @@ public class HTTPCommunicationStrategy implements CommunicationStrategy {
     private final AtomicBoolean running = new AtomicBoolean(false);
     private IoTGateway gateway;
     private int port;
+    private final HTTPKeepAlivePolicy keepAlivePolicy = new HTTPKeepAlivePolicy();
     
     // Configurações
     private static final int DEFAULT_THREAD_POOL_SIZE = 50;
     private static final int DEFAULT_BACKLOG = 300;
     
     public HTTPCommunicationStrategy() {
-        this.threadPool = Executors.newFixedThreadPool(DEFAULT_THREAD_POOL_SIZE);
+        // Pool fixo ou virtual threads conforme iot.executor.mode
+        this.threadPool = IoTExecutors.newWorkerPool("HTTP", DEFAULT_THREAD_POOL_SIZE);
+        keepAlivePolicy.setPoolSize(IoTExecutors.isVirtualMode() ? 0 : DEFAULT_THREAD_POOL_SIZE);
     }
     
     @Override
@@ -44,6 +48,10 @@ public class HTTPCommunicationStrategy implements CommunicationStrategy {
             running.set(true);
             
             System.out.println("🌐 HTTP Strategy Server iniciado na porta " + port);
+            if (keepAlivePolicy.isEnabled()) {
+                System.out.println("🌐 Keep-alive habilitado (timeout: " + keepAlivePolicy.getIdleTimeoutMs() +
+                                 "ms, máx. requisições/conexão: " + keepAlivePolicy.getMaxRequests() + ")");
+            }
             System.out.println("🌐 Aguardando conexões HTTP para IoT Gateway...");
             
             // Executar loop de aceitação em thread separada para não bloquear
@@ -60,7 +68,7 @@ public class HTTPCommunicationStrategy implements CommunicationStrategy {
                         System.out.println("🌐 Nova conexão HTTP de " + clientSocket.getRemoteSocketAddress());
                         
                         // Processar em thread separada
-                        HTTPClientHandler handler = new HTTPClientHandler(clientSocket, gateway);
+                        HTTPClientHandler handler = new HTTPClientHandler(clientSocket, gateway, keepAlivePolicy);
                         threadPool.execute(handler);
                         
                     } catch (IOException e) {
@@ -148,6 +156,7 @@ public class HTTPCommunicationStrategy implements CommunicationStrategy {
         }
         
         this.threadPool = Executors.newFixedThreadPool(size);
+        keepAlivePolicy.setPoolSize(size);
         System.out.println("🌐 Thread pool HTTP configurado para " + size + " threads");
     }
     
@@ -159,13 +168,19 @@ public class HTTPCommunicationStrategy implements CommunicationStrategy {
             throw new IllegalStateException("Não é possível alterar thread pool com servidor rodando");
         }
         
+        if (threadPool != null && !threadPool.isShutdown()) {
+            threadPool.shutdown();
+        }
+        
         try {
-            // Tentar criar ExecutorService com virtual threads
-            this.threadPool = Executors.newVirtualThreadPerTaskExecutor();
+            // Tentar criar ExecutorService com virtual threads (resolvido em tempo de execução)
+            this.threadPool = IoTExecutors.newVirtualThreadPerTaskExecutor("HTTP");
+            keepAlivePolicy.setPoolSize(0);
             System.out.println("🌐 Virtual threads habilitadas para HTTP Strategy");
-        } catch (Exception e) {
+        } catch (UnsupportedOperationException e) {
             System.out.println("⚠️ Virtual threads não disponíveis, usando thread pool tradicional");
             this.threadPool = Executors.newFixedThreadPool(DEFAULT_THREAD_POOL_SIZE);
+            keepAlivePolicy.setPoolSize(DEFAULT_THREAD_POOL_SIZE);
         }
     }
     
@@ -179,7 +194,15 @@ public class HTTPCommunicationStrategy implements CommunicationStrategy {
     // Métodos específicos HTTP adicionais
     
     public boolean supportsKeepAlive() {
-        return false; // Implementação simples sem keep-alive
+        return keepAlivePolicy.isEnabled();
+    }
+    
+    public int getActiveConnections() {
+        return keepAlivePolicy.getActiveConnections();
+    }
+    
+    public String getStats() {
+        return keepAlivePolicy.getStats();
     }
     
     public int getMaxConcurrentConnections() {
@@ -0,0 +1,96 @@
+package br.ufrn.dimap.communication.http;
+
+import br.ufrn.dimap.core.IoTConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Política de conexões persistentes (HTTP/1.1 keep-alive)
+ * Compartilhada por todos os HTTPClientHandler de uma strategy.
+ *
+ * Uma conexão continua aberta após a resposta quando:
+ * - keep-alive está habilitado (iot.http.keepalive.enabled)
+ * - o cliente não pediu "Connection: close" (HTTP/1.0 precisa pedir keep-alive)
+ * - a conexão ainda não atingiu iot.http.keepalive.max.requests
+ * - o pool não está saturado: com threads de plataforma cada conexão ociosa
+ *   prende uma thread, então acima de 75% do pool ocupado as respostas
+ *   passam a fechar a conexão para não deixar novas conexões na fila
+ */
+class HTTPKeepAlivePolicy {
+
+    static final boolean ENABLED = IoTConfig.getBoolean("iot.http.keepalive.enabled", true);
+    static final int IDLE_TIMEOUT_MS = IoTConfig.getInt("iot.http.keepalive.timeout.ms", 5000);
+    static final int MAX_REQUESTS = IoTConfig.getInt("iot.http.keepalive.max.requests", 1000);
+
+    private final boolean enabled;
+    private final int idleTimeoutMs;
+    private final int maxRequests;
+
+    // Conexões simultâneas a partir das quais keep-alive é recusado
+    private volatile int busyLimit = Integer.MAX_VALUE;
+
+    // Métricas
+    private final AtomicInteger activeConnections = new AtomicInteger(0);
+    private final AtomicLong totalConnections = new AtomicLong(0);
+    private final AtomicLong totalRequests = new AtomicLong(0);
+
+    HTTPKeepAlivePolicy() {
+        this(ENABLED, IDLE_TIMEOUT_MS, MAX_REQUESTS);
+    }
+
+    HTTPKeepAlivePolicy(boolean enabled, int idleTimeoutMs, int maxRequests) {
+        this.enabled = enabled;
+        this.idleTimeoutMs = Math.max(1, idleTimeoutMs);
+        this.maxRequests = Math.max(1, maxRequests);
+    }
+
+    /**
+     * Ajusta o limite de ocupação ao pool em uso
+     * @param poolThreads threads do pool (0 = sem limite, ex.: virtual threads)
+     */
+    void setPoolSize(int poolThreads) {
+        // Uma thread do pool fica com o laço de accept
+        busyLimit = poolThreads <= 0 ? Integer.MAX_VALUE : Math.max(1, (poolThreads - 1) * 3 / 4);
+    }
+
+    void connectionOpened() {
+        activeConnections.incrementAndGet();
+        totalConnections.incrementAndGet();
+    }
+
+    void connectionClosed() {
+        activeConnections.decrementAndGet();
+    }
+
+    /**
+     * Decide se a conexão permanece aberta após responder esta requisição
+     * @param servedOnConnection requisições já atendidas na conexão, incluindo esta
+     */
+    boolean keepAlive(HTTPRequestParser.HTTPRequest request, int servedOnConnection) {
+        totalRequests.incrementAndGet();
+        return enabled
+            && request.keepAlive
+            && servedOnConnection < maxRequests
+            && activeConnections.get() <= busyLimit;
+    }
+
+    /**
+     * Requisições que ainda podem ser atendidas na conexão (header Keep-Alive)
+     */
+    int remainingRequests(int servedOnConnection) {
+        return Math.max(0, maxRequests - servedOnConnection);
+    }
+
+    boolean isEnabled() { return enabled; }
+    int getIdleTimeoutMs() { return idleTimeoutMs; }
+    int getMaxRequests() { return maxRequests; }
+    int getActiveConnections() { return activeConnections.get(); }
+
+    String getStats() {
+        long connections = totalConnections.get();
+        return String.format("HTTP Keep-Alive - Enabled: %s, Active: %d, Connections: %d, Requests: %d, Avg req/conn: %.1f",
+                           enabled, activeConnections.get(), connections, totalRequests.get(),
+                           connections == 0 ? 0.0 : (double) totalRequests.get() / connections);
+    }
+}
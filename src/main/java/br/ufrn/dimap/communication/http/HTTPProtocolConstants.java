@@ -17,6 +17,7 @@ public class HTTPProtocolConstants {
     public static final String HEADER_SERVER = "Server: IoT-Gateway\r\n";
     public static final String HEADER_CORS = "Access-Control-Allow-Origin: *\r\n";
     public static final String HEADER_CONNECTION_CLOSE = "Connection: close\r\n";
+    public static final String HEADER_CONNECTION_KEEP_ALIVE = "Connection: keep-alive\r\n";
     
     // Status Lines
     public static final String STATUS_200 = "HTTP/1.1 200 OK\r\n";
@@ -27,6 +28,7 @@ public class HTTPProtocolConstants {
     // IoT Endpoints
     public static final String ENDPOINT_SENSOR_REGISTER = "/iot/sensor/register";
     public static final String ENDPOINT_SENSOR_DATA = "/iot/sensor/data";
+    public static final String ENDPOINT_DATA_BATCH = "/iot/data/batch";
     public static final String ENDPOINT_HEALTH = "/health";
     
     // Content Types
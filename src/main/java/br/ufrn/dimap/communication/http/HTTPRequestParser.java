@@ -3,10 +3,17 @@ package br.ufrn.dimap.communication.http;
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.core.IoTMessage.MessageType;
 import br.ufrn.dimap.core.IoTSensor.SensorType;
+import br.ufrn.dimap.patterns.singleton.IoTGateway;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
@@ -16,6 +23,14 @@ import java.util.StringTokenizer;
  */
 public class HTTPRequestParser {
     
+    // Limites de enquadramento (requisições maiores são rejeitadas)
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int MAX_HEADERS = 100;
+    private static final int MAX_BODY_LENGTH = 1024 * 1024;
+    
+    // Parser JSON dos lotes (thread-safe após configurado)
+    private static final ObjectMapper JSON = new ObjectMapper();
+    
     public static class HTTPRequest {
         public String method;
         public String path;
@@ -23,65 +38,131 @@ public class HTTPRequestParser {
         public Map<String, String> headers = new HashMap<>();
         public String body;
         public boolean isValid = false;
+        // Cliente aceita manter a conexão aberta após a resposta
+        public boolean keepAlive = false;
     }
     
     /**
-     * Parse da requisição HTTP completa
+     * Parse de uma requisição HTTP completa a partir do stream da conexão
+     * 
+     * Lê exatamente os bytes da requisição (linha, headers e Content-Length
+     * bytes de body), deixando no stream as requisições seguintes enviadas
+     * em pipeline pelo mesmo cliente.
+     * 
+     * @param in stream da conexão (bufferizado, reutilizado entre requisições)
+     * @return requisição lida, ou null se o cliente encerrou a conexão
+     *         antes de iniciar uma nova requisição
      */
-    public HTTPRequest parseRequest(BufferedReader reader) throws IOException {
+    public HTTPRequest parseRequest(InputStream in) throws IOException {
         HTTPRequest request = new HTTPRequest();
         
-        // Parse primeira linha: GET /path HTTP/1.1
-        String requestLine = reader.readLine();
-        if (requestLine == null || requestLine.trim().isEmpty()) {
-            return request;
-        }
+        // Parse primeira linha: GET /path HTTP/1.1 (linhas vazias entre requisições são ignoradas)
+        String requestLine;
+        do {
+            requestLine = readLine(in);
+            if (requestLine == null) {
+                return null;
+            }
+        } while (requestLine.trim().isEmpty());
         
         StringTokenizer tokenizer = new StringTokenizer(requestLine);
-        if (tokenizer.countTokens() >= 2) {
-            request.method = tokenizer.nextToken();
-            request.path = tokenizer.nextToken();
-            if (tokenizer.hasMoreTokens()) {
-                request.version = tokenizer.nextToken();
-            }
+        if (tokenizer.countTokens() < 2) {
+            return request;
+        }
+        request.method = tokenizer.nextToken();
+        request.path = tokenizer.nextToken();
+        if (tokenizer.hasMoreTokens()) {
+            request.version = tokenizer.nextToken();
         }
         
         // Parse headers
         String headerLine;
-        int contentLength = 0;
-        while ((headerLine = reader.readLine()) != null && !headerLine.trim().isEmpty()) {
+        int headerCount = 0;
+        while ((headerLine = readLine(in)) != null && !headerLine.trim().isEmpty()) {
+            if (++headerCount > MAX_HEADERS) {
+                return request;
+            }
             int colonIndex = headerLine.indexOf(':');
             if (colonIndex > 0) {
                 String headerName = headerLine.substring(0, colonIndex).trim();
                 String headerValue = headerLine.substring(colonIndex + 1).trim();
                 request.headers.put(headerName.toLowerCase(), headerValue);
-                
-                if ("content-length".equals(headerName.toLowerCase())) {
-                    try {
-                        contentLength = Integer.parseInt(headerValue);
-                    } catch (NumberFormatException e) {
-                        // Ignore invalid content-length
-                    }
-                }
+            }
+        }
+        if (headerLine == null) {
+            return request; // Conexão encerrada no meio dos headers
+        }
+        
+        // Sem Content-Length confiável não há como achar o início da próxima requisição
+        if (request.headers.containsKey("transfer-encoding")) {
+            return request;
+        }
+        int contentLength = 0;
+        String contentLengthHeader = request.headers.get("content-length");
+        if (contentLengthHeader != null) {
+            try {
+                contentLength = Integer.parseInt(contentLengthHeader);
+            } catch (NumberFormatException e) {
+                return request;
+            }
+            if (contentLength < 0 || contentLength > MAX_BODY_LENGTH) {
+                return request;
             }
         }
         
-        // Parse body se houver Content-Length
+        // Parse body: exatamente Content-Length bytes (não caracteres)
+        boolean complete = true;
         if (contentLength > 0) {
-            char[] bodyChars = new char[contentLength];
+            byte[] bodyBytes = new byte[contentLength];
             int totalRead = 0;
             while (totalRead < contentLength) {
-                int read = reader.read(bodyChars, totalRead, contentLength - totalRead);
+                int read = in.read(bodyBytes, totalRead, contentLength - totalRead);
                 if (read == -1) break;
                 totalRead += read;
             }
-            request.body = new String(bodyChars, 0, totalRead);
+            complete = totalRead == contentLength;
+            request.body = new String(bodyBytes, 0, totalRead, StandardCharsets.UTF_8);
         }
         
+        request.keepAlive = complete && isKeepAliveRequested(request);
         request.isValid = true;
         return request;
     }
     
+    /**
+     * HTTP/1.1 mantém a conexão por padrão; HTTP/1.0 só com "Connection: keep-alive"
+     */
+    private boolean isKeepAliveRequested(HTTPRequest request) {
+        String connection = request.headers.get("connection");
+        if ("HTTP/1.1".equals(request.version)) {
+            return connection == null || !connection.toLowerCase().contains("close");
+        }
+        return connection != null && connection.toLowerCase().contains("keep-alive");
+    }
+    
+    /**
+     * Lê uma linha terminada em LF (CR opcional) sem consumir bytes além dela
+     * @return linha sem terminador, ou null em fim de stream sem dados
+     */
+    private String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder(64);
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                int length = line.length();
+                if (length > 0 && line.charAt(length - 1) == '\r') {
+                    line.setLength(length - 1);
+                }
+                return line.toString();
+            }
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new IOException("Linha HTTP excede " + MAX_LINE_LENGTH + " bytes");
+            }
+            line.append((char) b); // ISO-8859-1, como nos headers HTTP
+        }
+        return line.length() == 0 ? null : line.toString();
+    }
+    
     /**
      * Converte HTTP request para IoTMessage
      * Suporte para formato JSON simples ou query parameters
@@ -109,61 +190,154 @@ public class HTTPRequestParser {
             String valueStr = extractParameter(request, "value", "reading");
             String versionVectorStr = extractParameter(request, "versionVector", "vv");
             
-            if (sensorId == null || sensorTypeStr == null) {
+            IoTMessage message = buildIoTMessage(messageType, sensorId, sensorTypeStr, location, 
+                                                 valueStr, versionVectorStr);
+            if (message == null) {
                 return null;
             }
             
-            // Validar sensorType (será usado como string no IoTMessage)
-            try {
-                SensorType.valueOf(sensorTypeStr.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                sensorTypeStr = "TEMPERATURE"; // default se inválido
-            }
+            System.out.println("✅ [HTTP] Mensagem IoT criada - Sensor: " + sensorId + 
+                             ", VV: " + message.getVersionVector() + ", Timestamp: " + message.getTimestamp());
             
-            double value = 0.0;
-            if (valueStr != null) {
-                try {
-                    value = Double.parseDouble(valueStr);
-                } catch (NumberFormatException e) {
-                    value = 0.0;
+            return message;
+            
+        } catch (Exception e) {
+            System.err.println("❌ Erro ao parsear HTTP para IoTMessage: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Converte o body de um lote (/iot/data/batch) em mensagens IoT
+     * Formatos suportados:
+     * - Array JSON: [{"sensorId":"S1","type":"TEMPERATURE","value":"21.5"}, ...]
+     * - NDJSON: um objeto JSON por linha
+     * Cada item aceita os mesmos campos do POST individual.
+     * 
+     * @return uma posição por leitura, na ordem do body (null = item inválido),
+     *         ou null se o body não for um lote válido ou exceder IoTGateway.MAX_BATCH_SIZE
+     */
+    public List<IoTMessage> parseBatchToIoTMessages(HTTPRequest request) {
+        if (!request.isValid || request.body == null || request.body.trim().isEmpty()) {
+            return null;
+        }
+        
+        String body = request.body.trim();
+        List<JsonNode> items = new ArrayList<>();
+        try {
+            if (body.startsWith("[")) {
+                JsonNode array = JSON.readTree(body);
+                if (!array.isArray()) {
+                    return null;
+                }
+                array.forEach(items::add);
+            } else {
+                // NDJSON: linha inválida invalida só o próprio item
+                for (String line : body.split("\n")) {
+                    line = line.trim();
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        items.add(JSON.readTree(line));
+                    } catch (JsonProcessingException e) {
+                        items.add(null);
+                    }
                 }
             }
-            
-            // Processar Version Vector
-            java.util.concurrent.ConcurrentHashMap<String, Integer> versionVector = 
-                new java.util.concurrent.ConcurrentHashMap<>();
-                
-            if (versionVectorStr != null && !versionVectorStr.trim().isEmpty()) {
+        } catch (JsonProcessingException e) {
+            System.err.println("❌ [HTTP] Lote JSON inválido: " + e.getOriginalMessage());
+            return null;
+        }
+        
+        if (items.isEmpty() || items.size() > IoTGateway.MAX_BATCH_SIZE) {
+            return null;
+        }
+        
+        List<IoTMessage> messages = new ArrayList<>(items.size());
+        for (JsonNode item : items) {
+            IoTMessage message = null;
+            if (item != null && item.isObject()) {
                 try {
-                    versionVector = parseVersionVector(versionVectorStr);
-                    System.out.println("🔄 [HTTP] Version Vector recebido: " + versionVector);
+                    message = buildIoTMessage(MessageType.SENSOR_DATA,
+                                              jsonField(item, "sensor", "sensorId"),
+                                              jsonField(item, "type", "sensorType"),
+                                              jsonField(item, "location", "lab"),
+                                              jsonField(item, "value", "reading"),
+                                              jsonField(item, "versionVector", "vv"));
                 } catch (Exception e) {
-                    System.err.println("⚠️ [HTTP] Erro ao parsear Version Vector, criando novo: " + e.getMessage());
-                    versionVector.put(sensorId, 1);
+                    message = null;
                 }
-            } else {
-                // Criar Version Vector inicial para novo sensor
-                versionVector.put(sensorId, 1);
-                System.out.println("🆕 [HTTP] Novo Version Vector criado para " + sensorId + ": " + versionVector);
             }
-            
-            // Incrementar Version Vector para este sensor
-            versionVector.compute(sensorId, (k, v) -> (v == null) ? 1 : v + 1);
-            
-            String content = location != null ? location : "HTTP-Client";
-            
-            IoTMessage message = new IoTMessage(sensorId, messageType, content, 
-                                value, sensorTypeStr, versionVector);
-            
-            System.out.println("✅ [HTTP] Mensagem IoT criada - Sensor: " + sensorId + 
-                             ", VV: " + versionVector + ", Timestamp: " + message.getTimestamp());
-            
-            return message;
-            
-        } catch (Exception e) {
-            System.err.println("❌ Erro ao parsear HTTP para IoTMessage: " + e.getMessage());
+            messages.add(message);
+        }
+        
+        System.out.println("✅ [HTTP] Lote parseado: " + messages.size() + " leituras");
+        return messages;
+    }
+    
+    /**
+     * Primeiro campo presente entre os nomes alternativos (objetos viram JSON, ex.: versionVector)
+     */
+    private static String jsonField(JsonNode item, String... names) {
+        for (String name : names) {
+            JsonNode value = item.get(name);
+            if (value != null && !value.isNull()) {
+                return value.isValueNode() ? value.asText() : value.toString();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Monta a IoTMessage a partir dos campos já extraídos (POST individual ou item de lote)
+     * @return null se sensorId ou tipo estiverem ausentes
+     */
+    private IoTMessage buildIoTMessage(MessageType messageType, String sensorId, String sensorTypeStr,
+                                       String location, String valueStr, String versionVectorStr) {
+        if (sensorId == null || sensorTypeStr == null) {
             return null;
         }
+        
+        // Validar sensorType (será usado como string no IoTMessage)
+        try {
+            SensorType.valueOf(sensorTypeStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sensorTypeStr = "TEMPERATURE"; // default se inválido
+        }
+        
+        double value = 0.0;
+        if (valueStr != null) {
+            try {
+                value = Double.parseDouble(valueStr);
+            } catch (NumberFormatException e) {
+                value = 0.0;
+            }
+        }
+        
+        // Processar Version Vector
+        java.util.concurrent.ConcurrentHashMap<String, Integer> versionVector = 
+            new java.util.concurrent.ConcurrentHashMap<>();
+            
+        if (versionVectorStr != null && !versionVectorStr.trim().isEmpty()) {
+            try {
+                versionVector = parseVersionVector(versionVectorStr);
+            } catch (Exception e) {
+                System.err.println("⚠️ [HTTP] Erro ao parsear Version Vector, criando novo: " + e.getMessage());
+                versionVector.put(sensorId, 1);
+            }
+        } else {
+            // Criar Version Vector inicial para novo sensor
+            versionVector.put(sensorId, 1);
+        }
+        
+        // Incrementar Version Vector para este sensor
+        versionVector.compute(sensorId, (k, v) -> (v == null) ? 1 : v + 1);
+        
+        String content = location != null ? location : "HTTP-Client";
+        
+        return new IoTMessage(sensorId, messageType, content, 
+                              value, sensorTypeStr, versionVector);
     }
     
     /**
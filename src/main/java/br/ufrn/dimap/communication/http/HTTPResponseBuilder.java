@@ -4,6 +4,8 @@ import br.ufrn.dimap.core.IoTMessage;
 
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import static br.ufrn.dimap.communication.http.HTTPProtocolConstants.*;
 
@@ -13,6 +15,25 @@ import static br.ufrn.dimap.communication.http.HTTPProtocolConstants.*;
  */
 public class HTTPResponseBuilder {
     
+    // Header de conexão da próxima resposta (padrão: fechar após responder)
+    private String connectionHeaders = HEADER_CONNECTION_CLOSE;
+    
+    /**
+     * Define se as próximas respostas anunciam conexão persistente
+     * 
+     * @param keepAlive true para "Connection: keep-alive", false para "Connection: close"
+     * @param timeoutSeconds tempo ocioso antes do servidor fechar a conexão
+     * @param maxRequests requisições restantes na conexão
+     */
+    public void setKeepAlive(boolean keepAlive, int timeoutSeconds, int maxRequests) {
+        if (keepAlive) {
+            connectionHeaders = HEADER_CONNECTION_KEEP_ALIVE +
+                "Keep-Alive: timeout=" + timeoutSeconds + ", max=" + maxRequests + "\r\n";
+        } else {
+            connectionHeaders = HEADER_CONNECTION_CLOSE;
+        }
+    }
+    
     /**
      * Envia resposta HTTP de sucesso com dados IoT
      */
@@ -30,6 +51,47 @@ public class HTTPResponseBuilder {
         sendResponse(out, statusCode, statusLine, jsonResponse);
     }
     
+    /**
+     * Envia resposta de lote com o status de cada item
+     * 
+     * @param items mensagens do lote na ordem recebida (null = item inválido)
+     * @param processed resultado do roteamento de cada item
+     */
+    public void sendBatchResponse(DataOutputStream out, List<IoTMessage> items, boolean[] processed) throws IOException {
+        int accepted = 0;
+        boolean routingFailed = false;
+        StringBuilder results = new StringBuilder(items.size() * 64);
+        
+        for (int i = 0; i < items.size(); i++) {
+            IoTMessage message = items.get(i);
+            if (i > 0) {
+                results.append(',');
+            }
+            results.append("{\"index\":").append(i);
+            if (message == null) {
+                results.append(",\"status\":\"INVALID\"}");
+                continue;
+            }
+            if (processed[i]) {
+                accepted++;
+            } else {
+                routingFailed = true;
+            }
+            results.append(",\"status\":\"").append(processed[i] ? "PROCESSED" : "FAILED")
+                   .append("\",\"messageId\":\"").append(message.getMessageId())
+                   .append("\",\"sensor\":\"").append(message.getSensorId()).append("\"}");
+        }
+        
+        String status = accepted == items.size() ? "SUCCESS" : accepted > 0 ? "PARTIAL" : "ERROR";
+        String jsonResponse = "{\"status\":\"" + status + "\",\"total\":" + items.size() +
+                              ",\"accepted\":" + accepted + ",\"rejected\":" + (items.size() - accepted) +
+                              ",\"results\":[" + results + "]}";
+        
+        // 200 se algo foi aceito; senão 500 (falha de roteamento) ou 400 (todos inválidos)
+        int statusCode = accepted > 0 ? HTTP_OK : routingFailed ? HTTP_INTERNAL_ERROR : HTTP_BAD_REQUEST;
+        sendResponse(out, statusCode, getStatusLine(statusCode), jsonResponse);
+    }
+    
     /**
      * Envia resposta HTTP de health check
      */
@@ -56,21 +118,29 @@ public class HTTPResponseBuilder {
     private void sendResponse(DataOutputStream out, int statusCode, String statusLine, String jsonResponse) 
             throws IOException {
         try {
+            // Content-Length em bytes UTF-8: em conexão persistente o cliente
+            // usa esse valor para achar o início da próxima resposta
+            byte[] body = jsonResponse.getBytes(StandardCharsets.UTF_8);
+            
+            StringBuilder head = new StringBuilder(256);
+            
             // Status line
-            out.writeBytes(statusLine);
+            head.append(statusLine);
             
             // Headers
-            out.writeBytes(HEADER_SERVER);
-            out.writeBytes(HEADER_CONTENT_TYPE);
-            out.writeBytes(HEADER_CORS);
-            out.writeBytes(HEADER_CONNECTION_CLOSE);
-            out.writeBytes("Content-Length: " + jsonResponse.getBytes().length + "\r\n");
+            head.append(HEADER_SERVER);
+            head.append(HEADER_CONTENT_TYPE);
+            head.append(HEADER_CORS);
+            head.append(connectionHeaders);
+            head.append("Content-Length: ").append(body.length).append("\r\n");
             
             // Empty line between headers and body
-            out.writeBytes("\r\n");
+            head.append("\r\n");
+            
+            out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
             
             // Body
-            out.writeBytes(jsonResponse);
+            out.write(body);
             out.flush();
             
         } catch (IOException e) {
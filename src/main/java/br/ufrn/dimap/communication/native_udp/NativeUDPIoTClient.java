@@ -1,12 +1,14 @@
 package br.ufrn.dimap.communication.native_udp;
 
 import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.core.IoTMessageCodec;
 import br.ufrn.dimap.core.IoTSensor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Random;
@@ -27,6 +29,7 @@ public class NativeUDPIoTClient {
     private DatagramSocket clientSocket;
     private ScheduledExecutorService scheduler;
     private final Random random = new Random();
+    private final ByteBuffer encodeBuffer = ByteBuffer.allocate(65536);
     
     public NativeUDPIoTClient(String sensorId, IoTSensor.SensorType sensorType, 
                              String location, String serverHost, int serverPort) throws UnknownHostException {
@@ -189,7 +192,7 @@ public class NativeUDPIoTClient {
             
             clientSocket.receive(receivePacket);
             
-            IoTMessage ackMessage = deserializeMessage(receivePacket.getData());
+            IoTMessage ackMessage = deserializeMessage(receivePacket.getData(), receivePacket.getLength());
             if (ackMessage.getType() == IoTMessage.MessageType.ACK) {
                 logger.debug("✅ ACK recebido: {}", ackMessage.getContent());
                 
@@ -248,15 +251,20 @@ public class NativeUDPIoTClient {
         }
     }
     
-    private byte[] serializeMessage(IoTMessage message) throws IOException {
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
-        ObjectOutputStream oos = new ObjectOutputStream(bos);
-        oos.writeObject(message);
-        return bos.toByteArray();
+    private byte[] serializeMessage(IoTMessage message) {
+        // Tarefas agendadas compartilham o buffer de codificação
+        synchronized (encodeBuffer) {
+            return IoTMessageCodec.encodeToArray(message, encodeBuffer);
+        }
     }
     
-    private IoTMessage deserializeMessage(byte[] data) throws IOException, ClassNotFoundException {
-        ByteArrayInputStream bis = new ByteArrayInputStream(data);
+    private IoTMessage deserializeMessage(byte[] data, int length) throws IOException, ClassNotFoundException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, 0, length);
+        if (IoTMessageCodec.isBinary(buffer)) {
+            return IoTMessageCodec.decode(buffer);
+        }
+        // Fallback: servidor respondeu com serialização Java
+        ByteArrayInputStream bis = new ByteArrayInputStream(data, 0, length);
         ObjectInputStream ois = new ObjectInputStream(bis);
         return (IoTMessage) ois.readObject();
     }
@@ -0,0 +1,70 @@
+package br.ufrn.dimap.communication.tcp;
+
+import br.ufrn.dimap.patterns.singleton.IoTGateway;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enquadramento de lote do protocolo TCP: uma linha "BATCH|n" seguida de
+ * n linhas de leitura no formato usual. O lote inteiro recebe uma única
+ * linha de resposta (ver TCPProtocolConstants.formatBatchResponse).
+ * Estado por conexão: uma instância por cliente, usada só pela thread
+ * que processa as linhas daquela conexão.
+ */
+final class TCPBatchFrame {
+
+    static final int NOT_A_HEADER = 0;
+    static final int INVALID_HEADER = -1;
+
+    private List<String> lines = new ArrayList<>();
+    private int expected;
+
+    /**
+     * Interpreta uma linha como cabeçalho de lote
+     * @return n (> 0) para "BATCH|n" válido, NOT_A_HEADER para outras linhas,
+     *         INVALID_HEADER se n for inválido ou maior que IoTGateway.MAX_BATCH_SIZE
+     */
+    static int parseHeader(String line) {
+        int prefix = TCPProtocolConstants.MSG_BATCH.length();
+        if (!line.regionMatches(true, 0, TCPProtocolConstants.MSG_BATCH, 0, prefix)
+                || line.length() <= prefix + 1
+                || line.charAt(prefix) != TCPProtocolConstants.FIELD_SEPARATOR.charAt(0)) {
+            return NOT_A_HEADER;
+        }
+        try {
+            int count = Integer.parseInt(line.substring(prefix + 1).trim());
+            return count > 0 && count <= IoTGateway.MAX_BATCH_SIZE ? count : INVALID_HEADER;
+        } catch (NumberFormatException e) {
+            return INVALID_HEADER;
+        }
+    }
+
+    boolean isOpen() {
+        return expected > 0;
+    }
+
+    void open(int count) {
+        lines = new ArrayList<>(count);
+        expected = count;
+    }
+
+    /**
+     * Acrescenta uma linha ao lote aberto
+     * @return true quando a última linha do lote foi recebida
+     */
+    boolean add(String line) {
+        lines.add(line);
+        return lines.size() >= expected;
+    }
+
+    /**
+     * Entrega as linhas do lote completo e fecha o enquadramento
+     */
+    List<String> take() {
+        List<String> complete = lines;
+        lines = new ArrayList<>();
+        expected = 0;
+        return complete;
+    }
+}
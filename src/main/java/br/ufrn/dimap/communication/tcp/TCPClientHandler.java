@@ -1,6 +1,5 @@
 package br.ufrn.dimap.communication.tcp;
 
-import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.patterns.singleton.IoTGateway;
 
 import java.io.*;
@@ -22,7 +21,7 @@ public class TCPClientHandler implements Runnable {
     
     private final Socket clientSocket;
     private final IoTGateway gateway;
-    private final TCPMessageProcessor messageProcessor;
+    private final TCPLineHandler lineHandler;
     private final AtomicBoolean isRunning = new AtomicBoolean(true);
     
     // Configurações de timeout baseadas nos exemplos do professor
@@ -31,7 +30,7 @@ public class TCPClientHandler implements Runnable {
     public TCPClientHandler(Socket clientSocket, IoTGateway gateway) {
         this.clientSocket = clientSocket;
         this.gateway = gateway;
-        this.messageProcessor = new TCPMessageProcessor();
+        this.lineHandler = new TCPLineHandler(gateway);
         
         try {
             // Configurar timeout do socket
@@ -47,7 +46,7 @@ public class TCPClientHandler implements Runnable {
         logger.info("Iniciando processamento de cliente TCP: " + clientAddress);
         
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-             PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), true)) {
+             PrintWriter writer = new PrintWriter(clientSocket.getOutputStream(), false)) {
             
             processClientConnection(reader, writer, clientAddress);
             
@@ -67,11 +66,20 @@ public class TCPClientHandler implements Runnable {
     
     /**
      * Processa a conexão com o cliente.
-     * Modo compatível com JMeter TCP Sampler (fecha após primeira mensagem).
+     * Modo compatível com JMeter TCP Sampler (fecha após primeira mensagem),
+     * a menos que o cliente negocie sessão persistente com HELLO|v2.
+     * Em sessão, respostas são enviadas em ordem e o flush acontece quando
+     * não há mais linhas já recebidas ou a cada SESSION_FLUSH_LINES respostas.
+     * Um lote "BATCH|n" conta como uma mensagem: n linhas, uma resposta.
      */
     private void processClientConnection(BufferedReader reader, PrintWriter writer, String clientAddress) 
             throws IOException {
         
+        boolean session = false;
+        boolean firstLine = true;
+        int pendingResponses = 0;
+        TCPBatchFrame batch = new TCPBatchFrame();
+        
         String inputLine;
         while (isRunning.get() && (inputLine = reader.readLine()) != null) {
             inputLine = inputLine.trim();
@@ -79,81 +87,76 @@ public class TCPClientHandler implements Runnable {
             if (inputLine.isEmpty()) {
                 continue;
             }
+            boolean helloAllowed = firstLine;
+            firstLine = false;
             
-            // Processar comando de desconexão
-            if ("DISCONNECT".equalsIgnoreCase(inputLine) || "EXIT".equalsIgnoreCase(inputLine)) {
-                writer.println("OK|DISCONNECTED");
-                writer.flush();
-                logger.info("Cliente TCP " + clientAddress + " solicitou desconexão");
-                break;
-            }
-            
-            // Processar mensagem IoT
-            processIoTMessage(inputLine, writer, clientAddress);
-            
-            // Para compatibilidade com JMeter TCP Sampler, fechamos após processar mensagem
-            if (inputLine.startsWith("SENSOR_") || inputLine.startsWith("HEARTBEAT")) {
-                logger.info("Fechando conexão após processar mensagem IoT para compatibilidade JMeter: " + inputLine.substring(0, Math.min(inputLine.length(), 20)));
-                break;
-            }
-        }
-    }
-    
-    /**
-     * Processa uma mensagem IoT recebida via TCP.
-     * Segue o padrão estabelecido nos exemplos do professor.
-     */
-    private void processIoTMessage(String message, PrintWriter writer, String clientAddress) {
-        try {
-            logger.info("🔄 [TCP] Mensagem recebida de " + clientAddress + ": " + message);
-            
-            // Processar mensagem usando o processador TCP
-            IoTMessage iotMessage = messageProcessor.processIncomingMessage(message, clientAddress);
+            String response;
+            boolean closesAfterMessage;
             
-            if (iotMessage != null) {
-                // Rotear mensagem através do gateway
-                if (gateway != null) {
-                    gateway.routeToDataReceiver(iotMessage, clientAddress, 0);
+            // Linhas de um lote aberto: resposta única quando o lote completa
+            if (batch.isOpen()) {
+                if (!batch.add(inputLine)) {
+                    continue;
                 }
+                response = lineHandler.processBatch(batch.take(), clientAddress);
+                closesAfterMessage = true;
                 
-                // Gerar resposta
-                String response = messageProcessor.generateResponse(iotMessage, true);
-                writer.println(response);
-                writer.flush(); // Força o envio da resposta
+            } else {
+                // Negociação de sessão persistente (pipelining): só na primeira linha
+                if (helloAllowed && TCPLineHandler.isSessionHello(inputLine)) {
+                    session = true;
+                    writer.println(TCPProtocolConstants.RESPONSE_SESSION);
+                    writer.flush();
+                    logger.info("Cliente TCP " + clientAddress + " iniciou sessão persistente " + inputLine);
+                    continue;
+                }
                 
-                logger.info("Mensagem TCP processada com sucesso para " + clientAddress + 
-                           " - Sensor: " + iotMessage.getSensorId() + 
-                           ", Tipo: " + iotMessage.getType() + 
-                           " - Resposta enviada: " + response);
-                           
-                logger.info("🔄 [TCP] Mensagem processada: " + iotMessage.getMessageId() + 
-                           " - Sensor: " + iotMessage.getSensorId() + 
-                           " - Tipo: " + iotMessage.getType() + 
-                           " - VV: " + iotMessage.getVersionVector() + 
-                           " - Origem: " + clientAddress);
+                // Processar comando de desconexão
+                if (TCPLineHandler.isDisconnectCommand(inputLine)) {
+                    writer.println(TCPLineHandler.DISCONNECT_RESPONSE);
+                    writer.flush();
+                    logger.info("Cliente TCP " + clientAddress + " solicitou desconexão");
+                    break;
+                }
                 
-            } else {
-                // Resposta de erro para mensagem inválida
-                String errorResponse = TCPProtocolConstants.formatErrorResponse("UNKNOWN", "UNKNOWN", "INVALID_MESSAGE_FORMAT");
-                writer.println(errorResponse);
-                writer.flush();
+                // Cabeçalho de lote: as próximas n linhas formam o lote
+                int batchSize = TCPBatchFrame.parseHeader(inputLine);
+                if (batchSize == TCPBatchFrame.INVALID_HEADER) {
+                    writer.println(TCPLineHandler.INVALID_BATCH_RESPONSE);
+                    writer.flush();
+                    logger.warning("Cabeçalho de lote inválido de " + clientAddress + ": " + inputLine);
+                    break; // Enquadramento perdido
+                }
+                if (batchSize != TCPBatchFrame.NOT_A_HEADER) {
+                    batch.open(batchSize);
+                    continue;
+                }
                 
-                logger.warning("Formato de mensagem TCP inválido de " + clientAddress + ": " + message + 
-                              " - Resposta de erro enviada: " + errorResponse);
+                // Processar mensagem IoT
+                response = lineHandler.processIoTMessage(inputLine, clientAddress);
+                closesAfterMessage = TCPLineHandler.closesAfterMessage(inputLine);
             }
             
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "Erro ao processar mensagem TCP de " + clientAddress + ": " + message, e);
+            writer.println(response);
             
-            // Resposta de erro para falha no processamento
-            try {
-                String errorResponse = TCPProtocolConstants.formatErrorResponse("UNKNOWN", "UNKNOWN", "PROCESSING_ERROR");
-                writer.println(errorResponse);
-                writer.flush();
-                
-                logger.warning("Erro no processamento - Resposta de erro enviada: " + errorResponse);
-            } catch (Exception ex) {
-                logger.log(Level.SEVERE, "Erro ao enviar resposta de erro para " + clientAddress, ex);
+            if (session) {
+                // Flush em lote: só quando o cliente não tem mais linhas em trânsito
+                if (++pendingResponses >= TCPLineHandler.SESSION_FLUSH_LINES || !reader.ready()) {
+                    writer.flush();
+                    pendingResponses = 0;
+                    if (writer.checkError()) {
+                        logger.info("Cliente TCP " + clientAddress + " encerrou a sessão");
+                        break;
+                    }
+                }
+                continue;
+            }
+            writer.flush(); // Força o envio da resposta
+            
+            // Para compatibilidade com JMeter TCP Sampler, fechamos após processar mensagem
+            if (closesAfterMessage) {
+                logger.info("Fechando conexão após processar mensagem IoT para compatibilidade JMeter: " + inputLine.substring(0, Math.min(inputLine.length(), 20)));
+                break;
             }
         }
     }
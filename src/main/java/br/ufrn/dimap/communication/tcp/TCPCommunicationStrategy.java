@@ -1,5 +1,7 @@
 package br.ufrn.dimap.communication.tcp;
 
+import br.ufrn.dimap.core.IoTConfig;
+import br.ufrn.dimap.core.IoTExecutors;
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.patterns.strategy.CommunicationStrategy;
 import br.ufrn.dimap.patterns.singleton.IoTGateway;
@@ -9,7 +11,6 @@ import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketTimeoutException;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Set;
@@ -32,6 +33,7 @@ import java.util.logging.Level;
  * - Thread pool configurável
  * - Timeout de conexão
  * - Compatibilidade com protocolo UDP (para JMeter)
+ * - Modo NIO opcional (iot.tcp.mode=nio): Selector com N reactors, ver TCPNioServer
  */
 public class TCPCommunicationStrategy implements CommunicationStrategy {
     private static final Logger logger = Logger.getLogger(TCPCommunicationStrategy.class.getName());
@@ -42,6 +44,9 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
     private static final int THREAD_POOL_SIZE = 50;
     private static final int SHUTDOWN_TIMEOUT = 30; // segundos
     
+    // Modo do servidor: "blocking" (thread por conexão) ou "nio" (Selector + reactors)
+    private static final String MODE_NIO = "nio";
+    
     private ServerSocket serverSocket;
     private ExecutorService threadPool;
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
@@ -50,6 +55,7 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
     private int port;
     private IoTGateway gateway;
     private Thread serverThread;
+    private TCPNioServer nioServer;
     
     public TCPCommunicationStrategy() {
         this(DEFAULT_PORT);
@@ -57,7 +63,7 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
     
     public TCPCommunicationStrategy(int port) {
         this.port = port;
-        this.threadPool = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
+        this.threadPool = IoTExecutors.newWorkerPool("TCP-Client", THREAD_POOL_SIZE);
         
         logger.info("Estratégia TCP criada para porta: " + port);
     }
@@ -73,6 +79,11 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
             return;
         }
         
+        if (MODE_NIO.equalsIgnoreCase(IoTConfig.getString("iot.tcp.mode", "blocking"))) {
+            startNioServer();
+            return;
+        }
+        
         try {
             serverSocket = new ServerSocket(port);
             serverSocket.setSoTimeout(ACCEPT_TIMEOUT);
@@ -92,6 +103,33 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
         }
     }
     
+    /**
+     * Inicia o servidor no modo NIO (reactors + workers).
+     * Workers e timeout reaproveitam as chaves do modo bloqueante.
+     */
+    private void startNioServer() {
+        int reactors = IoTConfig.getInt("iot.tcp.nio.reactors", 0);
+        if (reactors <= 0) {
+            reactors = Runtime.getRuntime().availableProcessors();
+        }
+        int workers = IoTConfig.getInt("iot.tcp.thread.pool.size", THREAD_POOL_SIZE);
+        int bufferSize = IoTConfig.getInt("iot.tcp.nio.buffer.size", 4096);
+        long idleTimeout = IoTConfig.getLong("iot.tcp.connection.timeout.ms", 30000);
+        
+        try {
+            nioServer = new TCPNioServer(this.port, new TCPLineHandler(gateway), reactors, workers, 
+                                         bufferSize, idleTimeout);
+            nioServer.start();
+            isRunning.set(true);
+            
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Erro ao iniciar servidor TCP NIO na porta " + this.port, e);
+            nioServer = null;
+            isRunning.set(false);
+            throw new RuntimeException("Falha ao iniciar servidor TCP", e);
+        }
+    }
+    
     /**
      * Loop principal do servidor TCP.
      * Baseado no padrão dos exemplos do professor.
@@ -167,6 +205,13 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
         logger.info("🛑 Parando servidor TCP...");
         isRunning.set(false);
         
+        if (nioServer != null) {
+            nioServer.stop();
+            nioServer = null;
+            logger.info("✅ Servidor TCP parado com sucesso");
+            return;
+        }
+        
         // Parar clientes ativos
         stopActiveClients();
         
@@ -276,6 +321,9 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
     
     @Override
     public boolean isRunning() {
+        if (nioServer != null) {
+            return isRunning.get() && nioServer.isRunning();
+        }
         return isRunning.get() && 
                serverSocket != null && 
                !serverSocket.isClosed() && 
@@ -287,6 +335,10 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
      * Obtém estatísticas do servidor TCP.
      */
     public String getServerStats() {
+        if (nioServer != null) {
+            return String.format("TCP Server Stats - Port: %d, Running: %s, %s",
+                                 port, isRunning.get(), nioServer.getStats());
+        }
         return String.format(
             "TCP Server Stats - Port: %d, Running: %s, Active Clients: %d, Thread Pool Active: %d",
             port,
@@ -301,6 +353,9 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
      * Obtém informações sobre clientes conectados.
      */
     public Set<String> getConnectedClients() {
+        if (nioServer != null) {
+            return nioServer.getConnectedClients();
+        }
         return activeClients.keySet();
     }
     
@@ -308,6 +363,13 @@ public class TCPCommunicationStrategy implements CommunicationStrategy {
      * Desconecta um cliente específico.
      */
     public boolean disconnectClient(String clientKey) {
+        if (nioServer != null) {
+            boolean found = nioServer.disconnect(clientKey);
+            if (found) {
+                logger.info("Cliente TCP desconectado manualmente: " + clientKey);
+            }
+            return found;
+        }
         TCPClientHandler client = activeClients.get(clientKey);
         if (client != null) {
             client.stop();
@@ -0,0 +1,157 @@
+package br.ufrn.dimap.communication.tcp;
+
+import br.ufrn.dimap.core.IoTConfig;
+import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.patterns.singleton.IoTGateway;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tratamento de uma linha do protocolo TCP IoT.
+ * Compartilhado pelo modo bloqueante (TCPClientHandler) e pelo modo NIO
+ * (TCPNioServer): recebe a linha já enquadrada e devolve a resposta, sem
+ * conhecer o transporte.
+ */
+class TCPLineHandler {
+    private static final Logger logger = Logger.getLogger(TCPLineHandler.class.getName());
+
+    static final String DISCONNECT_RESPONSE = "OK|DISCONNECTED";
+    static final String INVALID_BATCH_RESPONSE = "ERROR|BATCH|0|INVALID_BATCH_SIZE";
+
+    // Máximo de respostas acumuladas antes de um flush forçado em sessão
+    static final int SESSION_FLUSH_LINES = IoTConfig.getInt("iot.tcp.session.flush.lines", 256);
+
+    private final IoTGateway gateway;
+    private final TCPMessageProcessor messageProcessor;
+
+    TCPLineHandler(IoTGateway gateway) {
+        this.gateway = gateway;
+        this.messageProcessor = new TCPMessageProcessor();
+    }
+
+    /**
+     * Comando de desconexão do cliente.
+     */
+    static boolean isDisconnectCommand(String line) {
+        return "DISCONNECT".equalsIgnoreCase(line) || "EXIT".equalsIgnoreCase(line);
+    }
+
+    /**
+     * Pedido de sessão persistente (HELLO|v2), enviado como primeira linha.
+     * Em sessão a conexão não é fechada após cada mensagem IoT. Em qualquer
+     * outra posição a linha é tratada como mensagem comum.
+     */
+    static boolean isSessionHello(String line) {
+        return TCPProtocolConstants.MSG_SESSION_HELLO.equalsIgnoreCase(line);
+    }
+
+    /**
+     * Para compatibilidade com JMeter TCP Sampler, a conexão é fechada
+     * após processar uma mensagem IoT (fora de sessão).
+     */
+    static boolean closesAfterMessage(String line) {
+        return line.startsWith("SENSOR_") || line.startsWith("HEARTBEAT");
+    }
+
+    /**
+     * Processa uma mensagem IoT recebida via TCP.
+     * Segue o padrão estabelecido nos exemplos do professor.
+     *
+     * @return resposta a enviar ao cliente (sem terminador de linha)
+     */
+    String processIoTMessage(String message, String clientAddress) {
+        try {
+            logger.info("🔄 [TCP] Mensagem recebida de " + clientAddress + ": " + message);
+
+            // Processar mensagem usando o processador TCP
+            IoTMessage iotMessage = messageProcessor.processIncomingMessage(message, clientAddress);
+
+            if (iotMessage != null) {
+                // Rotear mensagem através do gateway
+                if (gateway != null) {
+                    gateway.routeToDataReceiver(iotMessage, clientAddress, 0);
+                }
+
+                // Gerar resposta
+                String response = messageProcessor.generateResponse(iotMessage, true);
+
+                logger.info("Mensagem TCP processada com sucesso para " + clientAddress +
+                           " - Sensor: " + iotMessage.getSensorId() +
+                           ", Tipo: " + iotMessage.getType() +
+                           " - Resposta enviada: " + response);
+
+                logger.info("🔄 [TCP] Mensagem processada: " + iotMessage.getMessageId() +
+                           " - Sensor: " + iotMessage.getSensorId() +
+                           " - Tipo: " + iotMessage.getType() +
+                           " - VV: " + iotMessage.getVersionVector() +
+                           " - Origem: " + clientAddress);
+
+                return response;
+            }
+
+            // Resposta de erro para mensagem inválida
+            String errorResponse = TCPProtocolConstants.formatErrorResponse("UNKNOWN", "UNKNOWN", "INVALID_MESSAGE_FORMAT");
+
+            logger.warning("Formato de mensagem TCP inválido de " + clientAddress + ": " + message +
+                          " - Resposta de erro enviada: " + errorResponse);
+            return errorResponse;
+
+        } catch (Exception e) {
+            logger.log(Level.SEVERE, "Erro ao processar mensagem TCP de " + clientAddress + ": " + message, e);
+
+            // Resposta de erro para falha no processamento
+            String errorResponse = TCPProtocolConstants.formatErrorResponse("UNKNOWN", "UNKNOWN", "PROCESSING_ERROR");
+            logger.warning("Erro no processamento - Resposta de erro enviada: " + errorResponse);
+            return errorResponse;
+        }
+    }
+
+    /**
+     * Processa um lote (linhas após "BATCH|n") e o roteia como unidade.
+     *
+     * @return uma única linha de resposta com o status de cada item
+     */
+    String processBatch(List<String> lines, String clientAddress) {
+        logger.info("🔄 [TCP] Lote de " + lines.size() + " leituras recebido de " + clientAddress);
+
+        char[] itemStatus = new char[lines.size()];
+        List<IoTMessage> messages = new ArrayList<>(lines.size());
+        int[] positions = new int[lines.size()];
+
+        for (int i = 0; i < lines.size(); i++) {
+            IoTMessage message = null;
+            try {
+                message = messageProcessor.processIncomingMessage(lines.get(i), clientAddress);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "Erro ao processar item " + i + " do lote de " + clientAddress, e);
+            }
+            if (message == null) {
+                itemStatus[i] = TCPProtocolConstants.BATCH_ITEM_INVALID;
+            } else {
+                positions[messages.size()] = i;
+                messages.add(message);
+            }
+        }
+
+        boolean[] routed = null;
+        if (gateway != null && !messages.isEmpty()) {
+            routed = gateway.routeBatchToDataReceiver(messages, clientAddress, 0);
+        }
+
+        int accepted = 0;
+        for (int m = 0; m < messages.size(); m++) {
+            boolean ok = routed == null || routed[m];
+            itemStatus[positions[m]] = ok ? TCPProtocolConstants.BATCH_ITEM_PROCESSED : TCPProtocolConstants.BATCH_ITEM_FAILED;
+            if (ok) {
+                accepted++;
+            }
+        }
+
+        String response = TCPProtocolConstants.formatBatchResponse(lines.size(), accepted, new String(itemStatus));
+        logger.info("Lote TCP processado para " + clientAddress + " - " + accepted + "/" + lines.size() + " aceitas");
+        return response;
+    }
+}
@@ -2,6 +2,9 @@ package br.ufrn.dimap.communication.tcp;
 
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.core.IoTMessage.MessageType;
+import br.ufrn.dimap.core.IoTTextParser;
+import br.ufrn.dimap.core.IoTTextRecord;
+import br.ufrn.dimap.core.ScratchPool;
 
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
@@ -14,12 +17,25 @@ import static br.ufrn.dimap.communication.tcp.TCPProtocolConstants.*;
  */
 public class TCPMessageProcessor {
     
+    // Registro de texto reutilizado (por thread de conexão no modo platform)
+    private static final ScratchPool<IoTTextRecord> TEXT_RECORDS = ScratchPool.of(IoTTextRecord::new);
+    
     /**
      * Processa mensagem TCP e converte para IoTMessage - VERSÃO SIMPLIFICADA
      * Aceita qualquer formato simples e gera resposta de sucesso
      */
     public IoTMessage processIncomingMessage(String rawMessage, String clientAddress) {
-        if (rawMessage == null || rawMessage.trim().isEmpty()) {
+        IoTTextRecord record = TEXT_RECORDS.acquire();
+        try {
+            return processIncomingMessage(rawMessage, clientAddress, record);
+        } finally {
+            TEXT_RECORDS.release(record);
+        }
+    }
+    
+    private IoTMessage processIncomingMessage(String rawMessage, String clientAddress, IoTTextRecord record) {
+        // Como no split original: a linha é aparada antes da tokenização
+        if (rawMessage == null || !IoTTextParser.parse(rawMessage.trim(), record)) {
             System.err.println("❌ [TCP] Mensagem vazia recebida de " + clientAddress);
             return null;
         }
@@ -27,28 +43,27 @@ public class TCPMessageProcessor {
         System.out.println("📥 [TCP] Mensagem recebida de " + clientAddress + ": " + rawMessage);
         
         try {
-            // PARSE SIMPLIFICADO - aceita qualquer formato
-            String[] parts = rawMessage.trim().split("\\|");
-            
-            String messageTypeStr = parts.length > 0 ? parts[0].trim() : "SENSOR_DATA";
-            String sensorId = parts.length > 1 ? parts[1].trim() : "TCP_SENSOR_" + System.currentTimeMillis();
-            String sensorType = parts.length > 2 ? parts[2].trim() : "TEMPERATURE";
-            String valueStr = parts.length > 3 ? parts[3].trim() : "25.0";
+            // PARSE SIMPLIFICADO - aceita qualquer formato (campos delimitados sobre os bytes)
+            // Linha só com delimitadores ("|||") não tem campos: todos os padrões se aplicam
+            String sensorId = record.hasField(1) ? record.fieldString(1) : "TCP_SENSOR_" + System.currentTimeMillis();
+            String sensorType = record.hasField(2) ? record.fieldSensorType(2) : "TEMPERATURE";
             
             // Determinar tipo de mensagem - aceita qualquer tipo
             MessageType messageType = MessageType.SENSOR_DATA; // Default
-            if (messageTypeStr.contains("REGISTER")) {
+            if (record.hasField(0) && record.fieldContains(0, "REGISTER", false)) {
                 messageType = MessageType.SENSOR_REGISTER;
-            } else if (messageTypeStr.contains("HEARTBEAT")) {
+            } else if (record.hasField(0) && record.fieldContains(0, "HEARTBEAT", false)) {
                 messageType = MessageType.HEARTBEAT;
             }
             
             // Parse do valor
             double sensorValue = 25.0; // Default
-            try {
-                sensorValue = Double.parseDouble(valueStr);
-            } catch (NumberFormatException e) {
-                System.out.println("⚠️ [TCP] Valor inválido, usando 25.0: " + valueStr);
+            if (record.hasField(3)) {
+                try {
+                    sensorValue = record.fieldDouble(3);
+                } catch (NumberFormatException e) {
+                    System.out.println("⚠️ [TCP] Valor inválido, usando 25.0: " + record.fieldString(3));
+                }
             }
             
             // Version Vector simplificado
@@ -0,0 +1,593 @@
+package br.ufrn.dimap.communication.tcp;
+
+import br.ufrn.dimap.core.IoTExecutors;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Servidor TCP não bloqueante (iot.tcp.mode=nio).
+ *
+ * Características:
+ * - ServerSocketChannel + Selector, com N threads reactor
+ * - Conexões aceitas no reactor 0 e distribuídas em round-robin
+ * - Reactors fazem apenas I/O; enquadramento de linhas e TCPLineHandler
+ *   rodam no pool de workers
+ * - Buffers de leitura e escrita por conexão
+ * - Por conexão, leitura e processamento se alternam: OP_READ fica
+ *   desligado enquanto um worker processa ou a resposta não foi toda
+ *   escrita, o que preserva a ordem e aplica backpressure
+ * - Timeout de inatividade verificado pelo próprio reactor
+ *
+ * O protocolo de linhas é o mesmo do modo bloqueante (TCPClientHandler).
+ * Em sessão HELLO|v2 as respostas de todas as linhas de uma leitura são
+ * escritas de uma vez, na ordem de chegada.
+ */
+class TCPNioServer {
+    private static final Logger logger = Logger.getLogger(TCPNioServer.class.getName());
+
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final long SELECT_TIMEOUT_MS = 1000;
+
+    private final int port;
+    private final TCPLineHandler lineHandler;
+    private final int reactorCount;
+    private final int workerThreads;
+    private final int bufferSize;
+    private final long idleTimeoutMs;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+
+    // Métricas
+    private final AtomicLong acceptedConnections = new AtomicLong(0);
+    private final AtomicLong linesProcessed = new AtomicLong(0);
+
+    private ServerSocketChannel serverChannel;
+    private Reactor[] reactors;
+    private ExecutorService workers;
+    private int nextReactor; // Apenas a thread do reactor 0 (accept)
+
+    TCPNioServer(int port, TCPLineHandler lineHandler, int reactorCount, int workerThreads,
+                 int bufferSize, long idleTimeoutMs) {
+        this.port = port;
+        this.lineHandler = lineHandler;
+        this.reactorCount = Math.max(1, reactorCount);
+        this.workerThreads = Math.max(1, workerThreads);
+        this.bufferSize = Math.max(256, bufferSize);
+        this.idleTimeoutMs = idleTimeoutMs;
+    }
+
+    /**
+     * Abre o canal de escuta e inicia reactors e workers.
+     */
+    synchronized void start() throws IOException {
+        if (running.get()) {
+            return;
+        }
+
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(port), TCPProtocolConstants.DEFAULT_BACKLOG);
+            serverChannel.configureBlocking(false);
+
+            reactors = new Reactor[reactorCount];
+            for (int i = 0; i < reactorCount; i++) {
+                reactors[i] = new Reactor(i);
+            }
+            serverChannel.register(reactors[0].selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            closeQuietly();
+            throw e;
+        }
+
+        workers = IoTExecutors.newWorkerPool("TCP-NIO-Worker", workerThreads);
+
+        running.set(true);
+        for (Reactor reactor : reactors) {
+            reactor.start();
+        }
+
+        logger.info("🚀 Servidor TCP NIO iniciado na porta " + port + " - reactors: " + reactorCount +
+                   ", workers: " + workerThreads + ", buffer: " + bufferSize + " bytes");
+    }
+
+    /**
+     * Fecha o canal de escuta, todas as conexões e aguarda workers.
+     */
+    synchronized void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+
+        closeQuietly();
+
+        for (Reactor reactor : reactors) {
+            reactor.selector.wakeup();
+        }
+        for (Reactor reactor : reactors) {
+            try {
+                reactor.thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warning("Interrupção ao aguardar reactor TCP NIO " + reactor.index);
+            }
+        }
+
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            workers.shutdownNow();
+        }
+
+        connections.clear();
+        logger.info("✅ Servidor TCP NIO parado - conexões aceitas: " + acceptedConnections.get() +
+                   ", linhas processadas: " + linesProcessed.get());
+    }
+
+    private void closeQuietly() {
+        if (serverChannel != null) {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Erro ao fechar server channel TCP: " + e.getMessage());
+            }
+        }
+    }
+
+    boolean isRunning() {
+        return running.get() && serverChannel != null && serverChannel.isOpen();
+    }
+
+    Set<String> getConnectedClients() {
+        return connections.keySet();
+    }
+
+    /**
+     * Desconecta um cliente (fechamento executado no reactor da conexão).
+     */
+    boolean disconnect(String clientKey) {
+        Connection connection = connections.get(clientKey);
+        if (connection == null) {
+            return false;
+        }
+        connection.reactor.execute(connection::close);
+        return true;
+    }
+
+    String getStats() {
+        return String.format("Mode: NIO, Reactors: %d, Workers: %d, Connections: %d, Accepted: %d, Lines: %d",
+                           reactorCount, workerThreads, connections.size(),
+                           acceptedConnections.get(), linesProcessed.get());
+    }
+
+    /**
+     * Thread de I/O com seu próprio Selector.
+     */
+    private final class Reactor implements Runnable {
+        private final int index;
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private Thread thread;
+
+        Reactor(int index) throws IOException {
+            this.index = index;
+            this.selector = Selector.open();
+        }
+
+        void start() {
+            thread = new Thread(this, "TCP-NIO-Reactor-" + port + "-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Agenda tarefa para rodar na thread deste reactor.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long lastIdleCheck = System.currentTimeMillis();
+
+            while (running.get()) {
+                try {
+                    selector.select(SELECT_TIMEOUT_MS);
+                    runTasks();
+
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            acceptAll();
+                            continue;
+                        }
+
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isWritable()) {
+                            connection.onWritable();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                    }
+
+                    long now = System.currentTimeMillis();
+                    if (now - lastIdleCheck >= SELECT_TIMEOUT_MS) {
+                        closeIdleConnections(now);
+                        lastIdleCheck = now;
+                    }
+
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (IOException e) {
+                    if (running.get()) {
+                        logger.log(Level.WARNING, "Erro no reactor TCP NIO " + index + ": " + e.getMessage());
+                    }
+                }
+            }
+
+            shutdown();
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Erro em tarefa do reactor TCP NIO " + index, e);
+                }
+            }
+        }
+
+        private void acceptAll() throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                try {
+                    channel.configureBlocking(false);
+                    channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+                    Reactor target = reactors[nextReactor];
+                    nextReactor = (nextReactor + 1) % reactors.length;
+
+                    Connection connection = new Connection(channel, target);
+                    acceptedConnections.incrementAndGet();
+                    target.execute(connection::register);
+
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Erro ao configurar conexão TCP NIO: " + e.getMessage());
+                    channel.close();
+                }
+            }
+        }
+
+        private void closeIdleConnections(long now) {
+            if (idleTimeoutMs <= 0) {
+                return;
+            }
+            for (SelectionKey key : selector.keys()) {
+                Object attachment = key.attachment();
+                if (attachment instanceof Connection) {
+                    Connection connection = (Connection) attachment;
+                    // Conexão parada em OP_WRITE também expira (cliente que não lê respostas)
+                    boolean waiting = !connection.processing || connection.awaitingWrite;
+                    if (waiting && now - connection.lastActivity > idleTimeoutMs) {
+                        logger.log(Level.INFO, "Timeout na conexão TCP com cliente: " + connection.clientAddress);
+                        connection.close();
+                    }
+                }
+            }
+        }
+
+        private void shutdown() {
+            runTasks();
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    Object attachment = key.attachment();
+                    if (attachment instanceof Connection) {
+                        ((Connection) attachment).close();
+                    }
+                }
+                selector.close();
+            } catch (ClosedSelectorException | IOException e) {
+                logger.log(Level.FINE, "Selector TCP NIO " + index + " já fechado");
+            }
+        }
+    }
+
+    /**
+     * Estado de uma conexão. Campos de I/O são tocados pelo reactor; o
+     * worker só os acessa enquanto OP_READ está desligado (handoff via
+     * executor e fila de tarefas do reactor).
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final Reactor reactor;
+        private final String clientAddress;
+
+        private ByteBuffer readBuffer = ByteBuffer.allocate(bufferSize);
+        private ByteBuffer writeBuffer = ByteBuffer.allocate(bufferSize);
+        private SelectionKey key;
+        private boolean endOfStream;
+        private boolean closeAfterFlush;
+        private boolean session; // HELLO|v2: sem fechamento após mensagem IoT
+        private boolean linesSeen; // HELLO|v2 só vale como primeira linha
+        private final TCPBatchFrame batch = new TCPBatchFrame();
+        private boolean closed;
+        private boolean awaitingWrite; // Só na thread do reactor
+
+        private volatile boolean processing;
+        private volatile long lastActivity = System.currentTimeMillis();
+
+        Connection(SocketChannel channel, Reactor reactor) throws IOException {
+            this.channel = channel;
+            this.reactor = reactor;
+            this.clientAddress = channel.getRemoteAddress().toString();
+        }
+
+        /**
+         * Registro no selector do reactor (na thread do reactor).
+         */
+        void register() {
+            try {
+                key = channel.register(reactor.selector, SelectionKey.OP_READ, this);
+                connections.put(clientAddress, this);
+                logger.info("Nova conexão TCP aceita de: " + clientAddress + " (reactor " + reactor.index + ")");
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Erro ao registrar conexão TCP " + clientAddress + ": " + e.getMessage());
+                close();
+            }
+        }
+
+        void onReadable() {
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Erro de I/O na conexão TCP com cliente " + clientAddress + ": " + e.getMessage());
+                close();
+                return;
+            }
+
+            if (read == 0) {
+                return;
+            }
+            if (read < 0) {
+                if (readBuffer.position() == 0) {
+                    close();
+                    return;
+                }
+                // Última linha sem terminador: processa antes de fechar
+                endOfStream = true;
+            }
+
+            lastActivity = System.currentTimeMillis();
+            processing = true;
+            key.interestOps(0);
+
+            try {
+                workers.execute(this::process);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        /**
+         * Enquadramento de linhas e processamento (thread do worker).
+         */
+        private void process() {
+            try {
+                readBuffer.flip();
+                int limit = readBuffer.limit();
+                int lineStart = readBuffer.position();
+
+                for (int i = lineStart; i < limit && !closeAfterFlush; i++) {
+                    if (readBuffer.get(i) == '\n') {
+                        handleLine(lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (endOfStream && !closeAfterFlush && lineStart < limit) {
+                    handleLine(lineStart, limit);
+                    lineStart = limit;
+                }
+
+                readBuffer.position(lineStart);
+                readBuffer.compact();
+
+                if (!readBuffer.hasRemaining()) {
+                    growReadBuffer();
+                }
+
+            } catch (Exception e) {
+                logger.log(Level.SEVERE, "Erro inesperado no processamento do cliente TCP " + clientAddress, e);
+                closeAfterFlush = true;
+            }
+
+            reactor.execute(this::afterProcessing);
+        }
+
+        private void handleLine(int start, int end) {
+            String line = new String(readBuffer.array(), readBuffer.arrayOffset() + start, end - start,
+                                     StandardCharsets.UTF_8).trim();
+            if (line.isEmpty()) {
+                return;
+            }
+            linesProcessed.incrementAndGet();
+            boolean helloAllowed = !linesSeen;
+            linesSeen = true;
+
+            // Linhas de um lote aberto: resposta única quando o lote completa
+            if (batch.isOpen()) {
+                if (batch.add(line)) {
+                    appendResponse(lineHandler.processBatch(batch.take(), clientAddress));
+                    closeAfterFlush = !session;
+                }
+                return;
+            }
+
+            // Negociação de sessão persistente (pipelining): só na primeira linha
+            if (helloAllowed && TCPLineHandler.isSessionHello(line)) {
+                session = true;
+                appendResponse(TCPProtocolConstants.RESPONSE_SESSION);
+                logger.info("Cliente TCP " + clientAddress + " iniciou sessão persistente " + line);
+                return;
+            }
+
+            // Processar comando de desconexão
+            if (TCPLineHandler.isDisconnectCommand(line)) {
+                appendResponse(TCPLineHandler.DISCONNECT_RESPONSE);
+                logger.info("Cliente TCP " + clientAddress + " solicitou desconexão");
+                closeAfterFlush = true;
+                return;
+            }
+
+            // Cabeçalho de lote: as próximas n linhas formam o lote
+            int batchSize = TCPBatchFrame.parseHeader(line);
+            if (batchSize == TCPBatchFrame.INVALID_HEADER) {
+                appendResponse(TCPLineHandler.INVALID_BATCH_RESPONSE);
+                logger.warning("Cabeçalho de lote inválido de " + clientAddress + ": " + line);
+                closeAfterFlush = true; // Enquadramento perdido
+                return;
+            }
+            if (batchSize != TCPBatchFrame.NOT_A_HEADER) {
+                batch.open(batchSize);
+                return;
+            }
+
+            appendResponse(lineHandler.processIoTMessage(line, clientAddress));
+
+            // Para compatibilidade com JMeter TCP Sampler, fechamos após processar mensagem
+            if (!session && TCPLineHandler.closesAfterMessage(line)) {
+                closeAfterFlush = true;
+            }
+        }
+
+        private void appendResponse(String response) {
+            byte[] data = response.getBytes(StandardCharsets.UTF_8);
+            int needed = data.length + 1;
+            if (writeBuffer.remaining() < needed) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(writeBuffer.capacity() * 2, writeBuffer.position() + needed));
+                writeBuffer.flip();
+                larger.put(writeBuffer);
+                writeBuffer = larger;
+            }
+            writeBuffer.put(data);
+            writeBuffer.put((byte) '\n');
+        }
+
+        /**
+         * Linha sem terminador ocupando todo o buffer: dobra até o limite.
+         */
+        private void growReadBuffer() {
+            if (readBuffer.capacity() >= MAX_LINE_LENGTH) {
+                logger.warning("Linha TCP excede " + MAX_LINE_LENGTH + " bytes - fechando conexão com " + clientAddress);
+                readBuffer.clear();
+                closeAfterFlush = true;
+                return;
+            }
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, MAX_LINE_LENGTH));
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+
+        /**
+         * Retorno do worker (thread do reactor): escreve respostas e retoma leitura.
+         */
+        private void afterProcessing() {
+            if (closed) {
+                return;
+            }
+            writeBuffer.flip();
+            onWritable();
+        }
+
+        void onWritable() {
+            int written;
+            try {
+                written = channel.write(writeBuffer);
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Erro ao escrever para cliente TCP " + clientAddress + ": " + e.getMessage());
+                close();
+                return;
+            }
+
+            // Timeout em OP_WRITE contado a partir do último progresso na escrita
+            if (written > 0 || !awaitingWrite) {
+                lastActivity = System.currentTimeMillis();
+            }
+
+            if (writeBuffer.hasRemaining()) {
+                // Cliente lento: aguarda OP_WRITE sem ler novas linhas
+                awaitingWrite = true;
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+
+            awaitingWrite = false;
+            writeBuffer.clear();
+            processing = false;
+            lastActivity = System.currentTimeMillis();
+
+            if (closeAfterFlush || endOfStream) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Erro ao fechar socket do cliente: " + e.getMessage());
+            }
+
+            if (connections.remove(clientAddress, this)) {
+                logger.info("Cliente TCP desconectado: " + clientAddress);
+            }
+        }
+    }
+}
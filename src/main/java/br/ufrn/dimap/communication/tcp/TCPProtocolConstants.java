@@ -15,10 +15,23 @@ public class TCPProtocolConstants {
     public static final String MSG_SENSOR_DATA = "SENSOR_DATA";
     public static final String MSG_HEARTBEAT = "HEARTBEAT";
     
+    // Lote: "BATCH|n" seguido de n linhas de leitura
+    public static final String MSG_BATCH = "BATCH";
+    
+    // Sessão persistente com pipelining (negociada na primeira linha)
+    public static final String MSG_SESSION_HELLO = "HELLO|v2";
+    
     // Respostas padrão
     public static final String RESPONSE_SUCCESS = "SUCCESS";
     public static final String RESPONSE_ERROR = "ERROR";
     public static final String RESPONSE_PROCESSED = "PROCESSED";
+    public static final String RESPONSE_SESSION = "OK|SESSION|v2";
+    public static final String RESPONSE_PARTIAL = "PARTIAL";
+    
+    // Status por item na resposta de lote
+    public static final char BATCH_ITEM_PROCESSED = 'P';
+    public static final char BATCH_ITEM_INVALID = 'I';
+    public static final char BATCH_ITEM_FAILED = 'F';
     
     // Configurações de conexão
     public static final int DEFAULT_SOCKET_TIMEOUT = 5000; // 5 segundos
@@ -49,4 +62,14 @@ public class TCPProtocolConstants {
     public static String formatErrorResponse(String messageId, String sensorId, String error) {
         return "ERROR|IOT-MSG-" + System.currentTimeMillis() + "|" + sensorId + "|" + error;
     }
+    
+    /**
+     * Formatar resposta de lote TCP: STATUS|BATCH|total|aceitas|status por item
+     * Status por item na ordem do lote: P (processada), I (formato inválido), F (falha no roteamento)
+     * Ex.: "PARTIAL|BATCH|4|3|PPIP"
+     */
+    public static String formatBatchResponse(int total, int accepted, CharSequence itemStatus) {
+        String status = accepted == total ? RESPONSE_SUCCESS : accepted == 0 ? RESPONSE_ERROR : RESPONSE_PARTIAL;
+        return status + "|" + MSG_BATCH + "|" + total + "|" + accepted + "|" + itemStatus;
+    }
 }
\ No newline at end of file
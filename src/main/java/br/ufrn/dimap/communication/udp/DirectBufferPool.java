@@ -0,0 +1,63 @@
+package br.ufrn.dimap.communication.udp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Pool de ByteBuffers diretos para recepção de datagramas
+ *
+ * Cada datagrama em processamento ocupa um buffer exclusivo, devolvido
+ * ao pool após a decodificação. Todos os buffers são alocados na criação,
+ * portanto não há alocação por pacote no caminho de recepção.
+ *
+ * Quando todos os buffers estão em uso, acquire() bloqueia: a pressão
+ * volta para o buffer do socket no kernel em vez de crescer o heap.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public class DirectBufferPool {
+
+    private final BlockingQueue<ByteBuffer> available;
+    private final int bufferSize;
+    private final int capacity;
+
+    public DirectBufferPool(int capacity, int bufferSize) {
+        if (capacity <= 0 || bufferSize <= 0) {
+            throw new IllegalArgumentException("Capacidade e tamanho do buffer devem ser positivos");
+        }
+
+        this.capacity = capacity;
+        this.bufferSize = bufferSize;
+        this.available = new ArrayBlockingQueue<>(capacity);
+
+        for (int i = 0; i < capacity; i++) {
+            available.offer(ByteBuffer.allocateDirect(bufferSize));
+        }
+    }
+
+    /**
+     * Obtém um buffer limpo, bloqueando até que algum seja devolvido
+     */
+    public ByteBuffer acquire() throws InterruptedException {
+        ByteBuffer buffer = available.take();
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Devolve o buffer ao pool
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer != null) {
+            buffer.clear();
+            available.offer(buffer);
+        }
+    }
+
+    public int getBufferSize() { return bufferSize; }
+    public int getCapacity() { return capacity; }
+    public int getAvailable() { return available.size(); }
+    public int getInFlight() { return capacity - available.size(); }
+}
@@ -0,0 +1,283 @@
+package br.ufrn.dimap.communication.udp;
+
+import br.ufrn.dimap.core.IoTExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de recepção UDP baseado em NIO DatagramChannel
+ *
+ * Características:
+ * - Recepção bloqueante no canal (sem SO_TIMEOUT / polling)
+ * - Um ByteBuffer direto do pool por datagrama em processamento
+ * - Buffer devolvido ao pool somente após a decodificação
+ * - Decodificação em pool de workers separado da thread de recepção
+ * - Fan-out opcional: N canais na mesma porta com SO_REUSEPORT,
+ *   cada um com sua thread de recepção, pool de buffers e workers
+ *
+ * Substitui o laço DatagramSocket + byte[] compartilhado, no qual um
+ * worker podia ver seu pacote sobrescrito pela recepção seguinte.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.1
+ */
+public class UDPReceiveEngine {
+    private static final Logger logger = LoggerFactory.getLogger(UDPReceiveEngine.class);
+
+    /**
+     * Callback de decodificação de datagramas.
+     * O buffer só é válido durante a chamada e não deve ser retido.
+     */
+    public interface DatagramHandler {
+        void onDatagram(ByteBuffer data, InetSocketAddress sender);
+    }
+
+    private final String name;
+    private final int bufferSize;
+    private final int poolSize;
+    private final int workerThreads;
+    private final int requestedListeners;
+    private final DatagramHandler handler;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final List<Listener> listeners = new ArrayList<>();
+
+    // Métricas
+    private final AtomicLong packetsReceived = new AtomicLong(0);
+    private final AtomicLong packetsRejected = new AtomicLong(0);
+
+    public UDPReceiveEngine(String name, int bufferSize, int poolSize, int workerThreads,
+                            DatagramHandler handler) {
+        this(name, bufferSize, poolSize, workerThreads, 1, handler);
+    }
+
+    /**
+     * @param poolSize buffers por listener
+     * @param workerThreads workers de decodificação por listener
+     * @param listeners quantidade de canais na mesma porta (SO_REUSEPORT quando maior que 1)
+     */
+    public UDPReceiveEngine(String name, int bufferSize, int poolSize, int workerThreads,
+                            int listeners, DatagramHandler handler) {
+        this.name = name;
+        this.bufferSize = bufferSize;
+        this.poolSize = Math.max(poolSize, workerThreads);
+        this.workerThreads = workerThreads;
+        this.requestedListeners = Math.max(1, listeners);
+        this.handler = handler;
+    }
+
+    /**
+     * Abre os canais na porta indicada e inicia recepção
+     */
+    public synchronized void start(int port) throws IOException {
+        if (running.get()) {
+            logger.warn("🔄 Motor UDP {} já está executando", name);
+            return;
+        }
+
+        int listenerCount = requestedListeners;
+        if (listenerCount > 1 && !isReusePortSupported()) {
+            logger.warn("⚠️ SO_REUSEPORT não suportado nesta plataforma - {} usando 1 listener em vez de {}",
+                       name, listenerCount);
+            listenerCount = 1;
+        }
+
+        try {
+            for (int i = 0; i < listenerCount; i++) {
+                listeners.add(new Listener(i, openChannel(port, listenerCount > 1)));
+            }
+        } catch (IOException e) {
+            closeListeners();
+            throw e;
+        }
+
+        running.set(true);
+        for (Listener listener : listeners) {
+            listener.start(port);
+        }
+
+        logger.info("🚀 Motor UDP {} iniciado na porta {} (listeners: {}, buffers: {} x {} bytes, workers: {} por listener)",
+                   name, port, listeners.size(), poolSize, bufferSize, workerThreads);
+    }
+
+    private DatagramChannel openChannel(int port, boolean reusePort) throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        try {
+            if (reusePort) {
+                // Kernel distribui datagramas entre os sockets por hash do remetente
+                channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+            }
+            channel.bind(new InetSocketAddress(port));
+            return channel;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static boolean isReusePortSupported() {
+        try (DatagramChannel probe = DatagramChannel.open()) {
+            return probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Para recepção, fecha os canais e aguarda workers
+     */
+    public synchronized void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        closeListeners();
+    }
+
+    private void closeListeners() {
+        for (Listener listener : listeners) {
+            listener.close();
+        }
+        listeners.clear();
+    }
+
+    public boolean isRunning() {
+        if (!running.get()) {
+            return false;
+        }
+        for (Listener listener : listeners) {
+            if (listener.channel.isOpen()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public long getPacketsReceived() { return packetsReceived.get(); }
+    public long getPacketsRejected() { return packetsRejected.get(); }
+    public int getListenerCount() { return listeners.size(); }
+
+    public int getBuffersInFlight() {
+        int inFlight = 0;
+        for (Listener listener : listeners) {
+            inFlight += listener.bufferPool.getInFlight();
+        }
+        return inFlight;
+    }
+
+    public String getStats() {
+        return String.format("%s - Listeners: %d, Packets: %d, Rejected: %d, Buffers in flight: %d/%d",
+                           name, listeners.size(), packetsReceived.get(), packetsRejected.get(),
+                           getBuffersInFlight(), poolSize * listeners.size());
+    }
+
+    /**
+     * Canal + thread de recepção + pool de buffers + workers
+     */
+    private class Listener {
+        private final int index;
+        private final DatagramChannel channel;
+        private final DirectBufferPool bufferPool;
+        private ExecutorService workers;
+        private Thread receiverThread;
+
+        Listener(int index, DatagramChannel channel) {
+            this.index = index;
+            this.channel = channel;
+            this.bufferPool = new DirectBufferPool(poolSize, bufferSize);
+        }
+
+        void start(int port) {
+            // Pool fixo ou virtual thread por datagrama (iot.executor.mode);
+            // em ambos os casos o pool de buffers limita o que está em voo
+            workers = IoTExecutors.newWorkerPool(name + "-" + index + "-Worker", workerThreads);
+
+            receiverThread = new Thread(this::receiveLoop, name + "-Receiver-" + port + "-" + index);
+            receiverThread.setDaemon(true);
+            receiverThread.start();
+        }
+
+        /**
+         * Laço de recepção: um buffer do pool por datagrama
+         */
+        private void receiveLoop() {
+            while (running.get()) {
+                ByteBuffer buffer = null;
+                try {
+                    buffer = bufferPool.acquire();
+                    SocketAddress sender = channel.receive(buffer);
+                    buffer.flip();
+                    packetsReceived.incrementAndGet();
+
+                    ByteBuffer packet = buffer;
+                    workers.execute(() -> dispatch(packet, (InetSocketAddress) sender));
+                    buffer = null; // Agora pertence ao worker
+
+                } catch (ClosedChannelException e) {
+                    break; // Canal fechado no stop()
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RejectedExecutionException e) {
+                    packetsRejected.incrementAndGet();
+                } catch (IOException e) {
+                    if (running.get()) {
+                        logger.error("❌ Erro ao receber pacote UDP em {}: {}", name, e.getMessage());
+                    }
+                } finally {
+                    bufferPool.release(buffer);
+                }
+            }
+        }
+
+        /**
+         * Executa o handler e devolve o buffer ao pool
+         */
+        private void dispatch(ByteBuffer packet, InetSocketAddress sender) {
+            try {
+                handler.onDatagram(packet, sender);
+            } catch (Exception e) {
+                logger.error("❌ Erro ao processar pacote UDP em {}: {}", name, e.getMessage());
+            } finally {
+                bufferPool.release(packet);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("⚠️ Erro ao fechar canal UDP {}: {}", name, e.getMessage());
+            }
+
+            if (receiverThread != null) {
+                receiverThread.interrupt();
+            }
+
+            if (workers != null) {
+                workers.shutdown();
+                try {
+                    if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                        workers.shutdownNow();
+                    }
+                } catch (InterruptedException e) {
+                    workers.shutdownNow();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,244 @@
+package br.ufrn.dimap.communication.udp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Envio de respostas/ACKs UDP em lote por um canal persistente
+ *
+ * Características:
+ * - Um único DatagramChannel aberto no start() e reutilizado em todos os envios
+ * - Cache de endereços resolvidos (sem InetAddress.getByName por resposta)
+ * - Fila limitada drenada em lotes por uma thread de envio dedicada
+ * - Fila cheia descarta a resposta (contabilizado) em vez de bloquear o worker
+ * - Métricas de profundidade da fila, latência de envio e descartes
+ *
+ * Substitui o padrão "novo DatagramSocket + resolve + envia + fecha" por
+ * mensagem, que gerava várias syscalls e um socket efêmero por resposta.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public class UDPResponseSender {
+    private static final Logger logger = LoggerFactory.getLogger(UDPResponseSender.class);
+
+    // Limite do cache de hosts (clientes JMeter/gateway são poucos)
+    private static final int MAX_CACHED_HOSTS = 4096;
+
+    private final String name;
+    private final int batchSize;
+    private final BlockingQueue<PendingReply> queue;
+    private final ConcurrentHashMap<String, InetAddress> addressCache = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private DatagramChannel channel;
+    private Thread senderThread;
+
+    // Métricas
+    private final AtomicLong repliesSent = new AtomicLong(0);
+    private final AtomicLong repliesDropped = new AtomicLong(0);
+    private final AtomicLong repliesFailed = new AtomicLong(0);
+    private final AtomicLong batchesSent = new AtomicLong(0);
+    private final AtomicLong totalLatencyNanos = new AtomicLong(0);
+    private final AtomicLong maxLatencyNanos = new AtomicLong(0);
+
+    /**
+     * Resposta aguardando envio
+     */
+    private static final class PendingReply {
+        final ByteBuffer data;
+        final InetSocketAddress target;
+        final long enqueuedAt;
+
+        PendingReply(byte[] data, InetSocketAddress target) {
+            this.data = ByteBuffer.wrap(data);
+            this.target = target;
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * @param queueCapacity respostas pendentes antes de começar a descartar
+     * @param batchSize máximo de respostas enviadas por ciclo da thread de envio
+     */
+    public UDPResponseSender(String name, int queueCapacity, int batchSize) {
+        this.name = name;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    /**
+     * Abre o canal de envio e inicia a thread de drenagem
+     */
+    public synchronized void start() throws IOException {
+        if (running.get()) {
+            return;
+        }
+
+        channel = DatagramChannel.open();
+        channel.bind(null);
+        running.set(true);
+
+        senderThread = new Thread(this::sendLoop, name + "-ResponseSender");
+        senderThread.setDaemon(true);
+        senderThread.start();
+
+        logger.info("📤 Sender UDP {} iniciado (porta local: {}, fila: {}, lote: {})",
+                   name, ((InetSocketAddress) channel.getLocalAddress()).getPort(),
+                   queue.remainingCapacity(), batchSize);
+    }
+
+    /**
+     * Para a thread de envio e fecha o canal; respostas pendentes são descartadas
+     */
+    public synchronized void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+
+        if (senderThread != null) {
+            senderThread.interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("⚠️ Erro ao fechar canal de envio {}: {}", name, e.getMessage());
+        }
+
+        int pending = queue.size();
+        queue.clear();
+        if (pending > 0) {
+            repliesDropped.addAndGet(pending);
+            logger.warn("⚠️ Sender UDP {} parado com {} respostas pendentes descartadas", name, pending);
+        }
+    }
+
+    /**
+     * Enfileira resposta para host:porta (host resolvido uma única vez)
+     * @return false se o sender estiver parado, o host for inválido ou a fila estiver cheia
+     */
+    public boolean send(byte[] data, String host, int port) {
+        InetAddress address;
+        try {
+            address = resolve(host);
+        } catch (UnknownHostException e) {
+            repliesFailed.incrementAndGet();
+            logger.error("❌ Host desconhecido para resposta UDP {}: {}", name, host);
+            return false;
+        }
+        return send(data, new InetSocketAddress(address, port));
+    }
+
+    /**
+     * Enfileira resposta para um endereço já resolvido
+     */
+    public boolean send(byte[] data, InetSocketAddress target) {
+        if (!running.get()) {
+            return false;
+        }
+        if (!queue.offer(new PendingReply(data, target))) {
+            repliesDropped.incrementAndGet();
+            logger.debug("⚠️ Fila de respostas {} cheia - resposta para {} descartada", name, target);
+            return false;
+        }
+        return true;
+    }
+
+    private InetAddress resolve(String host) throws UnknownHostException {
+        InetAddress cached = addressCache.get(host);
+        if (cached != null) {
+            return cached;
+        }
+
+        InetAddress resolved = InetAddress.getByName(host);
+        if (addressCache.size() >= MAX_CACHED_HOSTS) {
+            addressCache.clear();
+        }
+        addressCache.put(host, resolved);
+        return resolved;
+    }
+
+    /**
+     * Laço de envio: bloqueia pela primeira resposta e drena o restante do lote
+     */
+    private void sendLoop() {
+        List<PendingReply> batch = new ArrayList<>(batchSize);
+
+        while (running.get()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+
+                for (PendingReply reply : batch) {
+                    sendNow(reply);
+                }
+                batchesSent.incrementAndGet();
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedChannelException e) {
+                break; // Canal fechado no stop()
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendNow(PendingReply reply) throws ClosedChannelException {
+        try {
+            channel.send(reply.data, reply.target);
+            long latency = System.nanoTime() - reply.enqueuedAt;
+            repliesSent.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+
+        } catch (ClosedChannelException e) {
+            throw e;
+        } catch (IOException e) {
+            repliesFailed.incrementAndGet();
+            logger.warn("⚠️ Erro ao enviar resposta UDP {} para {}: {}", name, reply.target, e.getMessage());
+        }
+    }
+
+    public boolean isRunning() { return running.get() && channel != null && channel.isOpen(); }
+    public int getQueueDepth() { return queue.size(); }
+    public long getRepliesSent() { return repliesSent.get(); }
+    public long getRepliesDropped() { return repliesDropped.get(); }
+    public long getRepliesFailed() { return repliesFailed.get(); }
+
+    /**
+     * Latência média (enfileiramento até envio) em microssegundos
+     */
+    public double getAverageLatencyMicros() {
+        long sent = repliesSent.get();
+        return sent == 0 ? 0.0 : totalLatencyNanos.get() / 1000.0 / sent;
+    }
+
+    public double getMaxLatencyMicros() {
+        return maxLatencyNanos.get() / 1000.0;
+    }
+
+    public String getStats() {
+        long batches = batchesSent.get();
+        return String.format("%s Replies - Queue: %d, Sent: %d, Dropped: %d, Failed: %d, Avg batch: %.1f, Latency avg/max: %.0f/%.0f us",
+                           name, queue.size(), repliesSent.get(), repliesDropped.get(), repliesFailed.get(),
+                           batches == 0 ? 0.0 : (double) repliesSent.get() / batches,
+                           getAverageLatencyMicros(), getMaxLatencyMicros());
+    }
+}
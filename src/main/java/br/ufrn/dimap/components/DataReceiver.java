@@ -1,31 +1,62 @@
 package br.ufrn.dimap.components;
 
+import br.ufrn.dimap.communication.udp.ByteBufferInputStream;
+import br.ufrn.dimap.communication.udp.UDPReceiveEngine;
+import br.ufrn.dimap.communication.udp.UDPResponseSender;
+import br.ufrn.dimap.components.storage.ReadingConsumer;
+import br.ufrn.dimap.components.storage.ReadingCursor;
+import br.ufrn.dimap.components.storage.ReceiverLogRecord;
+import br.ufrn.dimap.components.storage.ReceiverSnapshot;
+import br.ufrn.dimap.components.storage.ReceiverSnapshotWriter;
+import br.ufrn.dimap.components.storage.SensorHistoryStore;
+import br.ufrn.dimap.components.storage.WriteAheadLog;
+import br.ufrn.dimap.core.IoTConfig;
 import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.core.IoTMessageCodec;
 import br.ufrn.dimap.core.IoTSensor;
+import br.ufrn.dimap.core.IoTTextParser;
+import br.ufrn.dimap.core.IoTTextRecord;
+import br.ufrn.dimap.core.ScratchPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
 
 /**
  * Data Receiver - Instância B Stateful
  * 
  * Componente stateful responsável por:
  * - Receber dados roteados pelo Gateway (Proxy Pattern)
- * - Persistir dados em memória (ConcurrentHashMap)
+ * - Persistir dados em memória (último valor por sensor + histórico colunar)
+ * - Registrar cada alteração no WAL (opcional) e reconstruir o estado no start()
+ * - Snapshots binários incrementais, restaurados mapeando o arquivo (opcional)
  * - Manter Version Vector local distribuído
  * - Resolver conflitos usando Last Write Wins
  * - Logs detalhados para fácil compreensão
  * 
  * Arquitetura Minimalista:
  * - Armazenamento em memória
- * - Servidor UDP dedicado
+ * - Servidor UDP dedicado (motor NIO, SO_REUSEPORT opcional)
  * - Thread-safe com concurrent collections
  * - Logs estruturados com timestamps
  * 
@@ -38,14 +69,74 @@ public class DataReceiver {
     private final String receiverId;
     private final int port;
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private DatagramSocket serverSocket;
-    private ExecutorService executorService;
+    private final UDPReceiveEngine receiveEngine;
+    private final UDPResponseSender ackSender;
+    
+    // Notificado quando o receiver inicia ou para (o Gateway republica a membership)
+    private volatile Consumer<DataReceiver> stateListener;
+    
+    // Configurações do servidor UDP interno
+    private static final int BUFFER_SIZE = IoTConfig.getInt("iot.udp.buffer.size", 65536);
+    private static final int BUFFER_POOL_SIZE = IoTConfig.getInt("iot.receiver.buffer.pool.size", 32);
+    private static final int WORKER_THREADS = IoTConfig.getInt("iot.receiver.worker.threads", 4);
+    private static final int LISTENERS = IoTConfig.getInt("iot.receiver.udp.listeners", 1);
+    private static final int ACK_QUEUE_SIZE = IoTConfig.getInt("iot.receiver.ack.queue.size", 1024);
+    private static final int ACK_BATCH_SIZE = IoTConfig.getInt("iot.receiver.ack.batch.size", 64);
+    
+    // Write-ahead log (um diretório por receiver)
+    private static final boolean WAL_ENABLED = IoTConfig.getBoolean("iot.receiver.wal.enabled", false);
+    private static final String WAL_DIR = IoTConfig.getString("iot.receiver.wal.dir", "data/wal");
+    private static final WriteAheadLog.SyncPolicy WAL_FSYNC =
+        WriteAheadLog.SyncPolicy.parse(IoTConfig.getString("iot.receiver.wal.fsync", "group"));
+    private static final long WAL_FSYNC_INTERVAL_MS = IoTConfig.getLong("iot.receiver.wal.fsync.interval.ms", 10L);
+    private static final int WAL_FSYNC_RECORDS = IoTConfig.getInt("iot.receiver.wal.fsync.records", 512);
+    private static final long WAL_SEGMENT_BYTES = IoTConfig.getLong("iot.receiver.wal.segment.bytes", 64L * 1024 * 1024);
+    
+    // Snapshots mapeados em memória (um diretório por receiver)
+    private static final boolean SNAPSHOT_ENABLED = IoTConfig.getBoolean("iot.receiver.snapshot.enabled", false);
+    private static final String SNAPSHOT_DIR = IoTConfig.getString("iot.receiver.snapshot.dir", "data/snapshots");
+    private static final int SNAPSHOT_MAX_CHAIN = IoTConfig.getInt("iot.receiver.snapshot.max.chain", 8);
+    private static final boolean SNAPSHOT_FSYNC = IoTConfig.getBoolean("iot.receiver.snapshot.fsync", true);
     
     // ESTADO STATEFUL - Persistência em Memória
     private final ConcurrentHashMap<String, SensorDataEntry> sensorDatabase;
     private final ConcurrentHashMap<String, Long> versionVector;
     private final AtomicLong totalMessages;
     private final AtomicLong conflictsResolved;
+    // Merge do version vector de cada mensagem (referência criada uma vez)
+    private final ObjLongConsumer<String> versionMerger = this::mergeVersion;
+    // Histórico de leituras por sensor (séries temporais colunares com retenção)
+    private final SensorHistoryStore history;
+    // Durabilidade: null quando iot.receiver.wal.enabled=false
+    private final WriteAheadLog wal;
+    // O WAL é reexecutado só no primeiro start(); recover() reabre sem reexecutar
+    private boolean walReplayed;
+    
+    // Base restaurada de snapshot mapeado: sensorDatabase guarda só o que mudou
+    // depois dela, e a leitura cai na base quando o sensor não está no mapa
+    private volatile ReceiverSnapshot baseSnapshot;
+    // Sensores da base já sobrescritos em sensorDatabase (contagem sem dupla)
+    private final AtomicInteger baseOverrides = new AtomicInteger();
+    // Sequência de escrita: o incremental leva as entradas posteriores ao último snapshot
+    private final AtomicLong writeSequence = new AtomicLong();
+    private final Object snapshotLock = new Object();
+    // Escritas (WAL + sequência + aplicação) em modo compartilhado;
+    // restaurações, que substituem o estado inteiro, e a leitura da marca
+    // d'água dos snapshots em modo exclusivo. Não reentrante.
+    private final StampedLock stateLock = new StampedLock();
+    private ReceiverSnapshot lastSnapshot;
+    private long lastSnapshotSequence;
+    private boolean snapshotLoaded;
+    // Snapshot sob a cauda do WAL em reexecução no start (null fora dela)
+    private ReceiverSnapshot replayBase;
+    
+    // CARGA - exportada para estratégias de seleção (ex.: power-of-two-choices)
+    // Mensagens roteadas pelo Gateway ainda em processamento
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Média móvel exponencial (peso 1/8) da latência por mensagem; atualização
+    // sem CAS: uma amostra perdida entre threads concorrentes é irrelevante
+    private volatile long latencyEwmaNanos;
+    private volatile long lastLatencySampleNanos;
     
     // Formatador para logs legíveis
     private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
@@ -59,14 +150,22 @@ public class DataReceiver {
         private final String sensorType;
         private final LocalDateTime timestamp;
         private final long versionVectorClock;
+        // Ordem de escrita no receiver (0 para entradas vindas de backup/snapshot)
+        private final long sequence;
         
         public SensorDataEntry(String sensorId, double value, String sensorType, 
                               LocalDateTime timestamp, long versionVectorClock) {
+            this(sensorId, value, sensorType, timestamp, versionVectorClock, 0L);
+        }
+        
+        public SensorDataEntry(String sensorId, double value, String sensorType, 
+                              LocalDateTime timestamp, long versionVectorClock, long sequence) {
             this.sensorId = sensorId;
             this.value = value;
             this.sensorType = sensorType;
             this.timestamp = timestamp;
             this.versionVectorClock = versionVectorClock;
+            this.sequence = sequence;
         }
         
         // Getters
@@ -75,6 +174,7 @@ public class DataReceiver {
         public String getSensorType() { return sensorType; }
         public LocalDateTime getTimestamp() { return timestamp; }
         public long getVersionVectorClock() { return versionVectorClock; }
+        public long getSequence() { return sequence; }
         
         @Override
         public String toString() {
@@ -90,11 +190,15 @@ public class DataReceiver {
         this.versionVector = new ConcurrentHashMap<>();
         this.totalMessages = new AtomicLong(0);
         this.conflictsResolved = new AtomicLong(0);
-        this.executorService = Executors.newFixedThreadPool(5, r -> {
-            Thread t = new Thread(r, "DataReceiver-" + receiverId + "-" + System.nanoTime());
-            t.setDaemon(true);
-            return t;
-        });
+        this.history = new SensorHistoryStore();
+        this.wal = WAL_ENABLED
+            ? new WriteAheadLog(Paths.get(WAL_DIR, receiverId), WAL_SEGMENT_BYTES, WAL_FSYNC,
+                                WAL_FSYNC_INTERVAL_MS, WAL_FSYNC_RECORDS)
+            : null;
+        this.receiveEngine = new UDPReceiveEngine("DataReceiver-" + receiverId, BUFFER_SIZE, 
+                                                  BUFFER_POOL_SIZE, WORKER_THREADS, LISTENERS,
+                                                  this::handleIncomingMessage);
+        this.ackSender = new UDPResponseSender("DataReceiver-" + receiverId, ACK_QUEUE_SIZE, ACK_BATCH_SIZE);
         
         logger.info("🏗️ Data Receiver criado: {} na porta {}", receiverId, port);
     }
@@ -108,60 +212,64 @@ public class DataReceiver {
             return;
         }
         
-        serverSocket = new DatagramSocket(port);
+        openWriteAheadLog();
+        loadLatestSnapshot();
+        try {
+            receiveEngine.start(port);
+            ackSender.start();
+        } catch (SocketException e) {
+            receiveEngine.stop();
+            closeWriteAheadLog();
+            throw e;
+        } catch (IOException e) {
+            receiveEngine.stop();
+            closeWriteAheadLog();
+            SocketException socketException = new SocketException("Falha ao abrir canal UDP na porta " + port);
+            socketException.initCause(e);
+            throw socketException;
+        }
         running.set(true);
+        notifyStateChanged();
         
         logger.info("🚀 Data Receiver {} iniciado na porta {}", receiverId, port);
-        logger.info("📊 Estado inicial: Database={}, VV={}", sensorDatabase.size(), versionVector.size());
-        
-        // Thread principal para receber mensagens
-        executorService.submit(() -> {
-            byte[] buffer = new byte[65536];
-            
-            while (running.get() && !Thread.currentThread().isInterrupted()) {
-                try {
-                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                    serverSocket.receive(packet);
-                    
-                    // Processar mensagem em thread separada
-                    executorService.submit(() -> handleIncomingMessage(packet));
-                    
-                } catch (SocketTimeoutException e) {
-                    // Timeout normal, continuar
-                } catch (Exception e) {
-                    if (running.get()) {
-                        logger.error("❌ Erro ao receber mensagem: {}", e.getMessage());
-                    }
-                }
-            }
-        });
-        
-        // Configurar timeout para recepção
-        serverSocket.setSoTimeout(1000);
+        logger.info("📊 Estado inicial: Database={}, VV={}", getSensorCount(), versionVector.size());
     }
     
     /**
      * Processa mensagem recebida do Gateway
      */
-    private void handleIncomingMessage(DatagramPacket packet) {
+    private void handleIncomingMessage(ByteBuffer data, InetSocketAddress sender) {
         try {
-            String senderHost = packet.getAddress().getHostAddress();
-            int senderPort = packet.getPort();
-            
-            // Primeiro tentar como string (para compatibilidade com JMeter)
-            String rawMessage = new String(packet.getData(), 0, packet.getLength()).trim();
+            String senderHost = sender.getAddress().getHostAddress();
+            int senderPort = sender.getPort();
             
             IoTMessage message = null;
+            boolean binaryRequest = false;
             
-            // Verificar se é mensagem em formato texto (JMeter)
-            if (rawMessage.startsWith("SENSOR_DATA|")) {
-                message = parseTextMessage(rawMessage);
-                logger.debug("📬 Mensagem texto recebida de {}:{} - Raw: {}", senderHost, senderPort, rawMessage);
+            // Negociação pelo primeiro byte: codec binário, texto (JMeter) ou objeto Java
+            if (IoTMessageCodec.isBinary(data)) {
+                try {
+                    message = IoTMessageCodec.decode(data);
+                    binaryRequest = true;
+                    logger.debug("📬 Mensagem binária recebida de {}:{} - Tipo: {} - Sensor: {}", 
+                                senderHost, senderPort, message.getType(), message.getSensorId());
+                } catch (IllegalArgumentException codecEx) {
+                    logger.error("❌ Mensagem binária inválida de {}:{}: {}", senderHost, senderPort, codecEx.getMessage());
+                    return;
+                }
+            } else if (startsWith(data, TEXT_PREFIX)) {
+                IoTTextRecord rawMessage = TEXT_RECORDS.acquire();
+                try {
+                    IoTTextParser.parse(data, rawMessage);
+                    message = parseTextMessage(rawMessage);
+                    logger.debug("📬 Mensagem texto recebida de {}:{} - Raw: {}", senderHost, senderPort, rawMessage);
+                } finally {
+                    TEXT_RECORDS.release(rawMessage);
+                }
             } else {
                 // Tentar deserializar como objeto Java
                 try {
-                    ByteArrayInputStream bais = new ByteArrayInputStream(packet.getData(), 0, packet.getLength());
-                    ObjectInputStream ois = new ObjectInputStream(bais);
+                    ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(data));
                     message = (IoTMessage) ois.readObject();
                     logger.debug("📬 Mensagem objeto recebida de {}:{} - Tipo: {} - Sensor: {}", 
                                 senderHost, senderPort, message.getType(), message.getSensorId());
@@ -191,7 +299,7 @@ public class DataReceiver {
                 }
                 
                 // Enviar ACK de volta para o Gateway
-                sendAck(message, packet.getAddress(), senderPort);
+                sendAck(message, sender, binaryRequest);
             }
             
         } catch (Exception e) {
@@ -199,39 +307,57 @@ public class DataReceiver {
         }
     }
     
+    private static final byte[] TEXT_PREFIX = "SENSOR_DATA|".getBytes(StandardCharsets.US_ASCII);
+    private static final ScratchPool<IoTTextRecord> TEXT_RECORDS = ScratchPool.of(IoTTextRecord::new);
+    private static final ScratchPool<ByteBuffer> ACK_BUFFERS = 
+        ScratchPool.of(() -> ByteBuffer.allocate(BUFFER_SIZE));
+    
+    /**
+     * Compara prefixo sem consumir o buffer
+     */
+    private static boolean startsWith(ByteBuffer data, byte[] prefix) {
+        if (data.remaining() < prefix.length) {
+            return false;
+        }
+        int start = data.position();
+        for (int i = 0; i < prefix.length; i++) {
+            if (data.get(start + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
     /**
      * Converte mensagem em formato texto para objeto IoTMessage
      * Formato: SENSOR_DATA|sensorId|tipo|valor|timestamp
      */
-    private IoTMessage parseTextMessage(String textMessage) {
+    private IoTMessage parseTextMessage(IoTTextRecord textMessage) {
         try {
-            String[] parts = textMessage.split("\\|");
-            if (parts.length >= 4) {
-                String sensorId = parts[1];
-                String typeStr = parts[2];
-                String value = parts[3];
-                // long timestamp = parts.length > 4 ? Long.parseLong(parts[4]) : System.currentTimeMillis();
+            if (textMessage.fieldCount() >= 4) {
+                String sensorId = textMessage.fieldString(1);
+                // long timestamp = textMessage.hasField(4) ? Long.parseLong(textMessage.fieldString(4)) : System.currentTimeMillis();
                 
                 // Determinar tipo do sensor
                 IoTSensor.SensorType sensorType = IoTSensor.SensorType.TEMPERATURE; // padrão
-                if (typeStr.toUpperCase().contains("TEMP")) {
+                if (textMessage.fieldContains(2, "TEMP", true)) {
                     sensorType = IoTSensor.SensorType.TEMPERATURE;
-                } else if (typeStr.toUpperCase().contains("HUM")) {
+                } else if (textMessage.fieldContains(2, "HUM", true)) {
                     sensorType = IoTSensor.SensorType.HUMIDITY;
                 }
                 
                 // Criar mensagem IoT
                 double sensorValue = 0.0;
                 try {
-                    sensorValue = Double.parseDouble(value);
+                    sensorValue = textMessage.fieldDouble(3);
                 } catch (NumberFormatException e) {
-                    logger.debug("⚠️ Valor não numérico: {}, usando 0.0", value);
+                    logger.debug("⚠️ Valor não numérico: {}, usando 0.0", textMessage.fieldString(3));
                 }
                 
                 IoTMessage message = new IoTMessage(
                     sensorId,
                     IoTMessage.MessageType.SENSOR_DATA,
-                    "Sensor data from JMeter: " + value,
+                    "Sensor data from JMeter: " + textMessage.fieldString(3),
                     sensorValue,
                     sensorType.toString(),
                     new ConcurrentHashMap<>()
@@ -250,71 +376,237 @@ public class DataReceiver {
      * Processa dados do sensor com Last Write Wins
      */
     private void processSensorData(IoTMessage message) {
-        totalMessages.incrementAndGet();
-        String sensorId = message.getSensorId();
-        
-        // Atualizar Version Vector
-        updateVersionVector(message);
-        
-        // Criar nova entrada de dados
-        SensorDataEntry newEntry = new SensorDataEntry(
-            sensorId,
-            message.getSensorValue(),
-            message.getSensorType(),
-            message.getTimestamp(),
-            versionVector.getOrDefault(sensorId, 0L)
-        );
-        
-        // Last Write Wins - Resolver conflitos por timestamp
-        SensorDataEntry existingEntry = sensorDatabase.get(sensorId);
-        boolean isConflict = false;
+        long stamp = stateLock.readLock();
+        try {
+            // Write-ahead: a leitura só altera o estado depois de registrada no log
+            appendToLog(ReceiverLogRecord::encodeSensorData, message);
+            totalMessages.incrementAndGet();
+            
+            // Atualizar Version Vector
+            updateVersionVector(message);
+            
+            applySensorData(message.getSensorId(), message.getSensorType(),
+                            message.getSensorValue(), message.getTimestamp(), true);
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Aplica a leitura ao histórico e ao banco (Last Write Wins, desempate por VV)
+     *
+     * A decisão e a escrita acontecem num único compute por sensor: duas
+     * threads com o mesmo sensor não passam ambas pela comparação, então a
+     * leitura mais nova nunca é sobrescrita por uma mais antiga. Contadores
+     * e logs ficam fora do compute (lock do bin mantido só na comparação).
+     * @param logChanges false na reexecução do WAL (sem log por leitura)
+     */
+    private void applySensorData(String sensorId, String sensorType, double value,
+                                 LocalDateTime timestamp, boolean logChanges) {
+        // Histórico guarda toda leitura, inclusive as que perdem o Last Write Wins
+        history.append(sensorId, sensorType, SensorHistoryStore.toEpochMillis(timestamp), value);
         
-        if (existingEntry != null) {
-            // Comparar timestamps para Last Write Wins
-            if (newEntry.getTimestamp().isAfter(existingEntry.getTimestamp())) {
-                // Nova entrada é mais recente
-                sensorDatabase.put(sensorId, newEntry);
-                logger.info("✅ [{}] Dados atualizados: {} = {} (Last Write Wins - Mais recente)", 
-                           receiverId, sensorId, newEntry);
-            } else if (newEntry.getTimestamp().isBefore(existingEntry.getTimestamp())) {
+        // Last Write Wins - Resolver conflitos por timestamp, atomicamente por sensor
+        LastWriteWins resolver = RESOLVERS.acquire();
+        SensorDataEntry newEntry;
+        SensorDataEntry existingEntry;
+        WriteOutcome outcome;
+        try {
+            writeLatest(resolver, sensorId, sensorType, value, timestamp,
+                        versionVector.getOrDefault(sensorId, 0L), logChanges ? null : replayBase);
+            newEntry = resolver.newEntry;
+            existingEntry = resolver.existing;
+            outcome = resolver.outcome;
+        } finally {
+            RESOLVERS.release(resolver);
+        }
+        switch (outcome) {
+            case NEWER:
+                if (logChanges) {
+                    logger.info("✅ [{}] Dados atualizados: {} = {} (Last Write Wins - Mais recente)", 
+                               receiverId, sensorId, newEntry);
+                }
+                break;
+            case KEPT_NEWER:
                 // Entrada existente é mais recente - manter
-                isConflict = true;
                 conflictsResolved.incrementAndGet();
-                logger.warn("⚠️ [{}] CONFLITO RESOLVIDO: {} mantido valor {} (Last Write Wins - Existente mais recente)", 
-                           receiverId, sensorId, existingEntry);
-            } else {
-                // Timestamps iguais - usar Version Vector como desempate
-                if (newEntry.getVersionVectorClock() > existingEntry.getVersionVectorClock()) {
-                    sensorDatabase.put(sensorId, newEntry);
+                if (logChanges) {
+                    logger.warn("⚠️ [{}] CONFLITO RESOLVIDO: {} mantido valor {} (Last Write Wins - Existente mais recente)", 
+                               receiverId, sensorId, existingEntry);
+                }
+                break;
+            case VV_TIEBREAK:
+                if (logChanges) {
                     logger.info("✅ [{}] Dados atualizados: {} = {} (Desempate por VV)", 
                                receiverId, sensorId, newEntry);
-                } else {
-                    isConflict = true;
-                    conflictsResolved.incrementAndGet();
+                }
+                break;
+            case DUPLICATE:
+                break;
+            case KEPT_BY_VV:
+                conflictsResolved.incrementAndGet();
+                if (logChanges) {
                     logger.warn("⚠️ [{}] CONFLITO RESOLVIDO: {} mantido por VV {}", 
                                receiverId, sensorId, existingEntry);
                 }
-            }
-        } else {
-            // Primeira entrada para este sensor
-            sensorDatabase.put(sensorId, newEntry);
-            logger.info("✅ [{}] Novo sensor registrado: {} = {}", 
-                       receiverId, sensorId, newEntry);
+                break;
+            default:
+                // Primeira entrada para este sensor
+                if (logChanges) {
+                    logger.info("✅ [{}] Novo sensor registrado: {} = {}", 
+                               receiverId, sensorId, newEntry);
+                }
+                break;
         }
         
         // Log estatísticas periodicamente
-        if (totalMessages.get() % 10 == 0) {
+        if (logChanges && totalMessages.get() % 10 == 0) {
             logger.info("📊 [{}] Stats: Mensagens={}, Sensores={}, Conflitos={}, VV={}", 
-                       receiverId, totalMessages.get(), sensorDatabase.size(), 
+                       receiverId, totalMessages.get(), getSensorCount(), 
                        conflictsResolved.get(), versionVector);
         }
     }
     
+    /**
+     * Cria a entrada com a próxima sequência de escrita e a disputa com a
+     * atual do sensor num único compute; chamado sob stateLock compartilhado
+     * (exceto na reexecução do WAL, que roda sozinha no start)
+     * @param cutSnapshot snapshot do start cuja cauda do WAL está sendo
+     *                    reexecutada (null fora disso): leitura idêntica à
+     *                    entrada dele já foi capturada e não é conflito
+     * @param resolver resolvedor obtido de RESOLVERS; guarda o resultado
+     */
+    private void writeLatest(LastWriteWins resolver, String sensorId, String sensorType, double value,
+                             LocalDateTime timestamp, long clock, ReceiverSnapshot cutSnapshot) {
+        SensorDataEntry newEntry = new SensorDataEntry(sensorId, value, sensorType, timestamp, clock,
+                                                       writeSequence.incrementAndGet());
+        resolver.begin(newEntry, baseSnapshot, cutSnapshot);
+        try {
+            sensorDatabase.compute(sensorId, resolver);
+        } finally {
+            resolver.end();
+        }
+        if (resolver.overrodeBase) {
+            baseOverrides.incrementAndGet();
+        }
+    }
+    
+    /**
+     * Aplica uma entrada vinda de outro receiver (Last Write Wins), sem
+     * histórico nem contadores: a origem já contou a mensagem, e perder
+     * para o valor local não é conflito
+     * @return true se a entrada passou a ser a atual do sensor
+     */
+    private boolean applyReplicaEntry(String sensorId, String sensorType, double value,
+                                      LocalDateTime timestamp, long clock) {
+        LastWriteWins resolver = RESOLVERS.acquire();
+        WriteOutcome outcome;
+        try {
+            writeLatest(resolver, sensorId, sensorType, value, timestamp, clock, null);
+            outcome = resolver.outcome;
+        } finally {
+            RESOLVERS.release(resolver);
+        }
+        return outcome == WriteOutcome.NEW_SENSOR || outcome == WriteOutcome.NEWER
+            || outcome == WriteOutcome.VV_TIEBREAK;
+    }
+    
+    /**
+     * Entrada atual do sensor: sensorDatabase ou, na falta, o snapshot base
+     */
+    private SensorDataEntry currentEntry(String sensorId) {
+        SensorDataEntry entry = sensorDatabase.get(sensorId);
+        ReceiverSnapshot base = baseSnapshot;
+        if (entry == null && base != null) {
+            entry = base.find(sensorId, SensorDataEntry::new);
+        }
+        return entry;
+    }
+    
+    /**
+     * Resultado do Last Write Wins para uma leitura
+     */
+    private enum WriteOutcome { NEW_SENSOR, NEWER, VV_TIEBREAK, KEPT_NEWER, KEPT_BY_VV, DUPLICATE }
+    
+    // Resolvedores reaproveitados: o compute não aloca lambda por leitura
+    private static final ScratchPool<LastWriteWins> RESOLVERS = ScratchPool.of(LastWriteWins::new);
+    
+    /**
+     * Função de remapeamento do compute: compara a leitura com a entrada
+     * atual (do mapa ou, na falta, do snapshot base) e devolve a vencedora
+     */
+    private static final class LastWriteWins implements BiFunction<String, SensorDataEntry, SensorDataEntry> {
+        private SensorDataEntry newEntry;
+        private ReceiverSnapshot base;
+        // Resultado, lido pelo chamador depois do compute
+        private SensorDataEntry existing;
+        private WriteOutcome outcome;
+        private boolean overrodeBase;
+        private ReceiverSnapshot cutSnapshot;
+        
+        void begin(SensorDataEntry newEntry, ReceiverSnapshot base, ReceiverSnapshot cutSnapshot) {
+            this.newEntry = newEntry;
+            this.base = base;
+            this.cutSnapshot = cutSnapshot;
+            this.existing = null;
+            this.outcome = null;
+            this.overrodeBase = false;
+        }
+        
+        void end() {
+            // newEntry fica até o release: o chamador ainda o loga
+            base = null;
+            cutSnapshot = null;
+        }
+        
+        /**
+         * Mesma regra do compute: timestamp mais novo ou, empatado, relógio VV maior
+         */
+        static boolean supersedes(SensorDataEntry candidate, SensorDataEntry existing) {
+            int order = candidate.getTimestamp().compareTo(existing.getTimestamp());
+            return order > 0 || (order == 0 && candidate.getVersionVectorClock() > existing.getVersionVectorClock());
+        }
+        
+        @Override
+        public SensorDataEntry apply(String sensorId, SensorDataEntry current) {
+            existing = current;
+            if (existing == null && base != null) {
+                existing = base.find(sensorId, SensorDataEntry::new);
+            }
+            if (existing == null) {
+                outcome = WriteOutcome.NEW_SENSOR;
+                return newEntry;
+            }
+            
+            int order = newEntry.getTimestamp().compareTo(existing.getTimestamp());
+            if (order > 0) {
+                outcome = WriteOutcome.NEWER;
+            } else if (order < 0) {
+                outcome = WriteOutcome.KEPT_NEWER;
+                return current;
+            } else if (current == null && base != null && base == cutSnapshot
+                    && newEntry.getValue() == existing.getValue()
+                    && Objects.equals(newEntry.getSensorType(), existing.getSensorType())) {
+                // Registro do WAL posterior ao corte que o snapshot já capturou
+                outcome = WriteOutcome.DUPLICATE;
+                return current;
+            } else if (newEntry.getVersionVectorClock() > existing.getVersionVectorClock()) {
+                // Timestamps iguais - usar Version Vector como desempate
+                outcome = WriteOutcome.VV_TIEBREAK;
+            } else {
+                outcome = WriteOutcome.KEPT_BY_VV;
+                return current;
+            }
+            overrodeBase = current == null;
+            return newEntry;
+        }
+    }
+    
     /**
      * Processa registro de sensor
      */
     private void processSensorRegistration(IoTMessage message) {
-        updateVersionVector(message);
+        logVersionMerge(message);
         logger.info("📝 [{}] Sensor registrado: {} tipo: {}", 
                    receiverId, message.getSensorId(), message.getSensorType());
     }
@@ -323,27 +615,162 @@ public class DataReceiver {
      * Processa heartbeat
      */
     private void processHeartbeat(IoTMessage message) {
-        updateVersionVector(message);
+        logVersionMerge(message);
         logger.debug("💓 [{}] Heartbeat recebido: {}", receiverId, message.getSensorId());
     }
     
+    /**
+     * Registra no WAL e aplica só o version vector da mensagem
+     */
+    private void logVersionMerge(IoTMessage message) {
+        long stamp = stateLock.readLock();
+        try {
+            appendToLog(ReceiverLogRecord::encodeVersionMerge, message);
+            updateVersionVector(message);
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+    }
+    
     /**
      * Atualiza Version Vector local
      */
     private void updateVersionVector(IoTMessage message) {
-        if (message.getVersionVector() != null) {
-            // Merge dos version vectors
-            message.getVersionVector().forEach((senderId, version) -> {
-                versionVector.merge(senderId, version.longValue(), Long::max);
-            });
+        // Merge dos version vectors sem copiar o vetor da mensagem
+        message.forEachVersion(versionMerger);
+    }
+    
+    private void mergeVersion(String senderId, long version) {
+        // Leitura antes do merge: versão já coberta não trava o bin do mapa
+        Long current = versionVector.get(senderId);
+        if (current == null || current < version) {
+            versionVector.merge(senderId, version, Long::max);
+        }
+    }
+    
+    /**
+     * Visita cada sensor uma vez: sensorDatabase primeiro, depois a base
+     * (sem os sensores já sobrescritos)
+     */
+    private void forEachEntry(BiConsumer<String, SensorDataEntry> action) {
+        sensorDatabase.forEach(action);
+        ReceiverSnapshot base = baseSnapshot;
+        if (base != null) {
+            try {
+                base.forEach((sensorId, value, sensorType, timestamp, clock) -> {
+                    if (!sensorDatabase.containsKey(sensorId)) {
+                        action.accept(sensorId, new SensorDataEntry(sensorId, value, sensorType, timestamp, clock));
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
         }
     }
     
     /**
-     * Envia ACK de confirmação
+     * Registra a mensagem no WAL antes de aplicá-la; uma falha de escrita
+     * rejeita a mensagem (sem ACK) em vez de aceitar um estado não durável
      */
-    private void sendAck(IoTMessage originalMessage, InetAddress gatewayAddress, int gatewayPort) {
-        try (DatagramSocket clientSocket = new DatagramSocket()) {
+    private <T> void appendToLog(WriteAheadLog.RecordEncoder<T> encoder, T value) {
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.append(encoder, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar WAL de " + receiverId, e);
+        }
+    }
+    
+    // Codificadores dos registros de replicação (referências criadas uma vez)
+    private static final WriteAheadLog.RecordEncoder<SensorDataEntry> REPLICA_ENCODER =
+        (entry, out) -> ReceiverLogRecord.encodeReplicaEntry(entry.getSensorId(), entry.getSensorType(),
+            entry.getValue(), entry.getTimestamp(), entry.getVersionVectorClock(), out);
+    private static final WriteAheadLog.RecordEncoder<Map<String, Long>> VERSIONS_ENCODER =
+        ReceiverLogRecord::encodeVersions;
+    
+    /**
+     * Abre o WAL; no primeiro start() reconstrói banco, version vector e
+     * histórico: mapeia o snapshot mais recente (se houver) e reexecuta em
+     * ordem só os registros dos segmentos que ele não cobre
+     */
+    private void openWriteAheadLog() {
+        if (wal == null) {
+            return;
+        }
+        try {
+            if (walReplayed) {
+                wal.open(null);
+                return;
+            }
+            long start = System.nanoTime();
+            long fromSegment = 0;
+            ReceiverSnapshot snapshot = SNAPSHOT_ENABLED ? openLatestSnapshot() : null;
+            // Snapshot gravado sem WAL não diz o que cobre: reexecuta o log inteiro
+            if (snapshot != null && snapshot.getLogSegment() > 0) {
+                replaceState(snapshot);
+                replayBase = snapshot;
+                fromSegment = snapshot.getLogSegment();
+                logger.info("📸 [{}] Snapshot {} mapeado; WAL reexecutado a partir do segmento {}",
+                           receiverId, snapshot.getFile().getFileName(), fromSegment);
+            }
+            ReceiverLogRecord record = new ReceiverLogRecord();
+            long replayed;
+            try {
+                replayed = wal.open(payload -> replayLogRecord(record, payload), fromSegment);
+            } finally {
+                replayBase = null;
+            }
+            walReplayed = true;
+            if (replayed > 0 || fromSegment > 0) {
+                logger.info("♻️ [{}] WAL reexecutado: {} registros em {} ms - Sensores={}, Mensagens={}, Conflitos={}",
+                           receiverId, replayed, (System.nanoTime() - start) / 1_000_000,
+                           getSensorCount(), totalMessages.get(), conflictsResolved.get());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir WAL de " + receiverId, e);
+        }
+    }
+    
+    private void replayLogRecord(ReceiverLogRecord record, ByteBuffer payload) {
+        record.decode(payload);
+        if (record.getType() == ReceiverLogRecord.SENSOR_DATA) {
+            totalMessages.incrementAndGet();
+        }
+        record.forEachVersion(versionMerger);
+        if (record.getType() == ReceiverLogRecord.SENSOR_DATA) {
+            applySensorData(record.getSensorId(), record.getSensorType(),
+                            record.getValue(), record.getTimestamp(), false);
+        } else if (record.getType() == ReceiverLogRecord.REPLICA_ENTRY) {
+            applyReplicaEntry(record.getSensorId(), record.getSensorType(),
+                              record.getValue(), record.getTimestamp(), record.getClock());
+        } else if (record.getType() == ReceiverLogRecord.RESTORE_SNAPSHOT) {
+            Path file = wal.getDirectory().resolve(record.getSnapshotFile());
+            try {
+                replaceState(ReceiverSnapshot.open(file));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Snapshot da restauração ilegível: " + file, e);
+            }
+        }
+    }
+    
+    private void closeWriteAheadLog() {
+        if (wal == null) {
+            return;
+        }
+        try {
+            wal.close();
+        } catch (IOException e) {
+            logger.error("❌ [{}] Erro ao fechar WAL: {}", receiverId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Envia ACK de confirmação no mesmo formato da requisição
+     */
+    private void sendAck(IoTMessage originalMessage, InetSocketAddress gateway, boolean binaryRequest) {
+        try {
             // Verificar se a mensagem veio do JMeter (baseado no conteúdo)
             boolean isFromJMeter = originalMessage.getContent() != null && 
                                  originalMessage.getContent().contains("Sensor data from JMeter");
@@ -353,11 +780,10 @@ public class DataReceiver {
                 String textResponse = "SUCCESS|" + receiverId + "|" + originalMessage.getSensorId() + 
                                     "|" + System.currentTimeMillis() + "|PROCESSED";
                 byte[] data = textResponse.getBytes();
-                DatagramPacket ackPacket = new DatagramPacket(data, data.length, gatewayAddress, gatewayPort);
-                clientSocket.send(ackPacket);
+                ackSender.send(data, gateway);
                 
-                logger.debug("✅ [{}] Resposta texto enviada para JMeter {}:{} - {}", 
-                           receiverId, gatewayAddress.getHostAddress(), gatewayPort, textResponse);
+                logger.debug("✅ [{}] Resposta texto enfileirada para JMeter {} - {}", 
+                           receiverId, gateway, textResponse);
             } else {
                 // Enviar ACK serializado para sistema interno
                 IoTMessage ackMessage = new IoTMessage(
@@ -371,17 +797,26 @@ public class DataReceiver {
                     }}
                 );
                 
-                // Serializar e enviar
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);
-                oos.writeObject(ackMessage);
+                // Codificar (binário se o remetente usou o codec, senão serialização Java) e enviar
+                byte[] data;
+                if (binaryRequest) {
+                    ByteBuffer scratch = ACK_BUFFERS.acquire();
+                    try {
+                        data = IoTMessageCodec.encodeToArray(ackMessage, scratch);
+                    } finally {
+                        ACK_BUFFERS.release(scratch);
+                    }
+                } else {
+                    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                    ObjectOutputStream oos = new ObjectOutputStream(baos);
+                    oos.writeObject(ackMessage);
+                    data = baos.toByteArray();
+                }
                 
-                byte[] data = baos.toByteArray();
-                DatagramPacket ackPacket = new DatagramPacket(data, data.length, gatewayAddress, gatewayPort);
-                clientSocket.send(ackPacket);
+                ackSender.send(data, gateway);
                 
-                logger.debug("✅ [{}] ACK objeto enviado para Gateway {}:{}", 
-                           receiverId, gatewayAddress.getHostAddress(), gatewayPort);
+                logger.debug("✅ [{}] ACK {} enfileirado para Gateway {}", 
+                           receiverId, binaryRequest ? "binário" : "objeto", gateway);
             }
             
         } catch (Exception e) {
@@ -389,31 +824,34 @@ public class DataReceiver {
         }
     }
     
+    /**
+     * Define o listener de mudança de estado (start/stop); null remove
+     */
+    public void setStateListener(Consumer<DataReceiver> listener) {
+        this.stateListener = listener;
+    }
+    
+    private void notifyStateChanged() {
+        Consumer<DataReceiver> listener = stateListener;
+        if (listener != null) {
+            listener.accept(this);
+        }
+    }
+    
     /**
      * Para o Data Receiver
      */
     public void stop() {
         logger.info("🛑 Parando Data Receiver {}...", receiverId);
         running.set(false);
+        notifyStateChanged();
         
-        if (serverSocket != null && !serverSocket.isClosed()) {
-            serverSocket.close();
-        }
-        
-        if (executorService != null) {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+        receiveEngine.stop();
+        ackSender.stop();
+        closeWriteAheadLog();
         
         logger.info("✅ [{}] Data Receiver parado - Stats finais: Mensagens={}, Sensores={}, Conflitos={}", 
-                   receiverId, totalMessages.get(), sensorDatabase.size(), conflictsResolved.get());
+                   receiverId, totalMessages.get(), getSensorCount(), conflictsResolved.get());
     }
     
     /**
@@ -428,29 +866,88 @@ public class DataReceiver {
             return false;
         }
         
+        logger.debug("📬 [{}] Processando mensagem direta - Tipo: {} - Sensor: {} - Valor: {}", 
+                    receiverId, message.getType(), message.getSensorId(), message.getSensorValue());
+        
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        boolean processed;
+        try {
+            processed = dispatchMessage(message);
+        } finally {
+            recordLatency(System.nanoTime() - start, 1);
+            inFlight.decrementAndGet();
+        }
+        if (processed) {
+            logger.debug("✅ [{}] Mensagem processada com sucesso: {}", receiverId, message.getMessageId());
+        }
+        return processed;
+    }
+    
+    /**
+     * Processa um lote de mensagens roteado de uma vez pelo Gateway
+     * @param messages mensagens do lote, na ordem recebida
+     * @return status por item (true = processada); todos false se o receiver não estiver ativo
+     */
+    public boolean[] processBatch(List<IoTMessage> messages) {
+        boolean[] results = new boolean[messages.size()];
+        if (!running.get()) {
+            logger.warn("⚠️ [{}] Data Receiver não está ativo, rejeitando lote de {} mensagens", 
+                       receiverId, messages.size());
+            return results;
+        }
+        
+        int processed = 0;
+        inFlight.addAndGet(results.length);
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < results.length; i++) {
+                results[i] = dispatchMessage(messages.get(i));
+                if (results[i]) {
+                    processed++;
+                }
+            }
+        } finally {
+            recordLatency(System.nanoTime() - start, results.length);
+            inFlight.addAndGet(-results.length);
+        }
+        
+        logger.debug("✅ [{}] Lote processado: {}/{} mensagens", receiverId, processed, results.length);
+        return results;
+    }
+    
+    /**
+     * Atualiza a média móvel de latência com a média por mensagem da chamada
+     */
+    private void recordLatency(long elapsedNanos, int count) {
+        if (count <= 0) {
+            return;
+        }
+        long sample = elapsedNanos / count;
+        long ewma = latencyEwmaNanos;
+        latencyEwmaNanos = ewma == 0 ? sample : ewma + ((sample - ewma) >> 3);
+        lastLatencySampleNanos = System.nanoTime();
+    }
+    
+    /**
+     * Processamento por tipo de mensagem (mensagem direta ou item de lote)
+     */
+    private boolean dispatchMessage(IoTMessage message) {
         try {
-            logger.debug("📬 [{}] Processando mensagem direta - Tipo: {} - Sensor: {} - Valor: {}", 
-                        receiverId, message.getType(), message.getSensorId(), message.getSensorValue());
-            
-            // Processar baseado no tipo
             switch (message.getType()) {
                 case SENSOR_DATA:
                     processSensorData(message);
-                    break;
+                    return true;
                 case SENSOR_REGISTER:
                     processSensorRegistration(message);
-                    break;
+                    return true;
                 case HEARTBEAT:
                     processHeartbeat(message);
-                    break;
+                    return true;
                 default:
                     logger.debug("🔍 [{}] Tipo de mensagem ignorado: {}", receiverId, message.getType());
                     return false;
             }
-            
-            logger.debug("✅ [{}] Mensagem processada com sucesso: {}", receiverId, message.getMessageId());
-            return true;
-            
         } catch (Exception e) {
             logger.error("❌ [{}] Erro ao processar mensagem {}: {}", 
                         receiverId, message.getMessageId(), e.getMessage());
@@ -481,16 +978,20 @@ public class DataReceiver {
      * Verifica se o Data Receiver está saudável
      */
     public boolean isHealthy() {
-        return running.get() && serverSocket != null && !serverSocket.isClosed();
+        return running.get() && receiveEngine.isRunning() && ackSender.isRunning();
     }
     
     /**
      * Cria um backup do estado atual para replicação
      */
     public DataReceiverBackup createBackup() {
+        ConcurrentHashMap<String, SensorDataEntry> database = new ConcurrentHashMap<>(sensorDatabase);
+        if (baseSnapshot != null) {
+            forEachEntry(database::putIfAbsent);
+        }
         return new DataReceiverBackup(
             receiverId, 
-            new ConcurrentHashMap<>(sensorDatabase),
+            database,
             new ConcurrentHashMap<>(versionVector),
             totalMessages.get(),
             conflictsResolved.get()
@@ -504,23 +1005,335 @@ public class DataReceiver {
         logger.info("📥 [{}] RESTAURANDO dados do backup - {} sensores, {} mensagens", 
                    receiverId, backup.getSensorDatabase().size(), backup.getTotalMessages());
         
-        // Restaurar dados apenas se o backup for mais recente
-        if (backup.getTotalMessages() > totalMessages.get()) {
-            sensorDatabase.clear();
-            sensorDatabase.putAll(backup.getSensorDatabase());
-            
-            versionVector.clear();
-            versionVector.putAll(backup.getVersionVector());
-            
-            totalMessages.set(backup.getTotalMessages());
-            conflictsResolved.set(backup.getConflictsResolved());
-            
-            logger.info("✅ [{}] BACKUP RESTAURADO com sucesso", receiverId);
+        long checkpoint = 0;
+        long stamp = stateLock.writeLock();
+        try {
+            // Restaurar dados apenas se o backup for mais recente
+            if (backup.getTotalMessages() > totalMessages.get()) {
+                checkpoint = logRestore(directory -> writeCheckpoint(backup, directory));
+                sensorDatabase.clear();
+                baseSnapshot = null;
+                baseOverrides.set(0);
+                sensorDatabase.putAll(backup.getSensorDatabase());
+                synchronized (snapshotLock) {
+                    // O estado mudou por inteiro: o próximo snapshot é completo
+                    lastSnapshot = null;
+                }
+                
+                versionVector.clear();
+                versionVector.putAll(backup.getVersionVector());
+                
+                totalMessages.set(backup.getTotalMessages());
+                conflictsResolved.set(backup.getConflictsResolved());
+                
+                logger.info("✅ [{}] BACKUP RESTAURADO com sucesso", receiverId);
+            } else {
+                logger.info("⚠️ [{}] Backup mais antigo ignorado", receiverId);
+            }
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
+        truncateLog(checkpoint);
+    }
+    
+    /**
+     * Grava o backup como snapshot completo no diretório de checkpoint do WAL
+     */
+    private Path writeCheckpoint(DataReceiverBackup backup, Path directory) throws IOException {
+        ReceiverSnapshotWriter writer = new ReceiverSnapshotWriter(directory, receiverId, null, backup.getVersionVector());
+        try {
+            for (SensorDataEntry entry : backup.getSensorDatabase().values()) {
+                writeEntry(writer, entry);
+            }
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        return writer.finish(0, 0, backup.getTotalMessages(), backup.getConflictsResolved(), true).getFile();
+    }
+    
+    /**
+     * Grava o estado restaurado num arquivo de checkpoint
+     */
+    @FunctionalInterface
+    private interface CheckpointWriter {
+        Path write(Path directory) throws IOException;
+    }
+    
+    /**
+     * Registra uma restauração no WAL antes de aplicá-la (sob stateLock exclusivo)
+     *
+     * Abre um segmento novo, grava o estado restaurado em arquivo de
+     * checkpoint e um RESTORE_SNAPSHOT que o referencia, e sincroniza. Na
+     * reexecução esse registro substitui o estado como a restauração; os
+     * segmentos anteriores deixam de ser necessários (truncateLog).
+     * @return segmento do checkpoint (0 sem WAL)
+     */
+    private long logRestore(CheckpointWriter checkpointWriter) {
+        if (wal == null) {
+            return 0;
+        }
+        try {
+            long segment = wal.checkpoint();
+            Path file = checkpointWriter.write(wal.checkpointDirectory(segment));
+            wal.append(ReceiverLogRecord::encodeRestoreSnapshot, wal.getDirectory().relativize(file).toString());
+            wal.sync();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao registrar restauração no WAL de " + receiverId, e);
+        }
+    }
+    
+    /**
+     * Apaga os segmentos do WAL anteriores ao checkpoint (restauração ou snapshot)
+     */
+    private void truncateLog(long checkpoint) {
+        if (checkpoint == 0) {
+            return;
+        }
+        try {
+            wal.deleteSegmentsBefore(checkpoint);
+        } catch (IOException e) {
+            logger.warn("⚠️ [{}] Segmentos antigos do WAL não apagados: {}", receiverId, e.getMessage());
+        }
+    }
+    
+    /**
+     * Incorpora o estado de outro receiver sensor a sensor (Last Write Wins)
+     *
+     * Replicação sob partição de sensores (consistent hash): ao contrário de
+     * restoreFromBackup/restoreFromSnapshot, nada é apagado e os valores
+     * mais novos do receiver são mantidos. Só entradas que vencem a local
+     * vão para o WAL; mensagens e conflitos não mudam.
+     * @param source receiver de origem
+     * @param since sequência de escrita de source já incorporada (0 = tudo, inclusive a base)
+     * @param sensorFilter sensores a copiar
+     * @return sequência de source coberta por este merge (since do próximo)
+     */
+    public long mergeFrom(DataReceiver source, long since, Predicate<String> sensorFilter) {
+        long covered = source.stableWriteSequence();
+        ConcurrentHashMap<String, Long> versions = source.getVersionVector();
+        long stamp = stateLock.readLock();
+        try {
+            appendToLog(VERSIONS_ENCODER, versions);
+            versions.forEach(this::mergeVersion);
+        } finally {
+            stateLock.unlockRead(stamp);
+        }
+        
+        int[] merged = new int[1];
+        BiConsumer<String, SensorDataEntry> merge = (sensorId, entry) -> {
+            if (!sensorFilter.test(sensorId)) {
+                return;
+            }
+            SensorDataEntry current = currentEntry(sensorId);
+            if (current != null && !LastWriteWins.supersedes(entry, current)) {
+                return;
+            }
+            long entryStamp = stateLock.readLock();
+            try {
+                appendToLog(REPLICA_ENCODER, entry);
+                if (applyReplicaEntry(sensorId, entry.getSensorType(), entry.getValue(),
+                                      entry.getTimestamp(), entry.getVersionVectorClock())) {
+                    merged[0]++;
+                }
+            } finally {
+                stateLock.unlockRead(entryStamp);
+            }
+        };
+        if (since == 0) {
+            source.forEachEntry(merge);
         } else {
-            logger.info("⚠️ [{}] Backup mais antigo ignorado", receiverId);
+            source.sensorDatabase.forEach((sensorId, entry) -> {
+                if (entry.getSequence() > since) {
+                    merge.accept(sensorId, entry);
+                }
+            });
+        }
+        
+        if (merged[0] > 0) {
+            logger.info("🔀 [{}] MERGE de {}: {} sensores atualizados (Last Write Wins)",
+                       receiverId, source.getReceiverId(), merged[0]);
+        }
+        return covered;
+    }
+    
+    /**
+     * Grava um snapshot do estado em iot.receiver.snapshot.dir/receiverId
+     *
+     * Incremental (só sensores alterados desde o último snapshot) enquanto a
+     * cadeia tiver menos de iot.receiver.snapshot.max.chain arquivos; depois
+     * um completo, e os arquivos fora da nova cadeia são apagados.
+     *
+     * Com WAL, o log troca de segmento no instante da marca d'água: o
+     * cabeçalho guarda esse segmento, e os anteriores (já cobertos) são
+     * apagados depois que o snapshot está em disco.
+     */
+    public ReceiverSnapshot writeSnapshot() throws IOException {
+        synchronized (snapshotLock) {
+            long start = System.nanoTime();
+            // Marca d'água e contadores no mesmo instante, sem escrita pela metade
+            long watermark;
+            long messages;
+            long conflicts;
+            long logSegment;
+            long stamp = stateLock.writeLock();
+            try {
+                watermark = writeSequence.get();
+                messages = totalMessages.get();
+                conflicts = conflictsResolved.get();
+                logSegment = wal != null ? wal.checkpoint() : 0;
+            } finally {
+                stateLock.unlockWrite(stamp);
+            }
+            ReceiverSnapshot parent = lastSnapshot != null && lastSnapshot.chainLength() < SNAPSHOT_MAX_CHAIN
+                ? lastSnapshot : null;
+            ReceiverSnapshotWriter writer = new ReceiverSnapshotWriter(snapshotDirectory(), receiverId, parent, versionVector);
+            try {
+                if (parent != null) {
+                    long since = lastSnapshotSequence;
+                    for (SensorDataEntry entry : sensorDatabase.values()) {
+                        if (entry.getSequence() > since) {
+                            writeEntry(writer, entry);
+                        }
+                    }
+                } else {
+                    ReceiverSnapshot base = baseSnapshot;
+                    if (base != null) {
+                        base.forEach((sensorId, value, sensorType, timestamp, clock) -> {
+                            if (!sensorDatabase.containsKey(sensorId)) {
+                                writer.put(sensorId, value, sensorType, timestamp, clock);
+                            }
+                        });
+                    }
+                    // Depois da base: uma entrada sobrescrita no meio da varredura prevalece
+                    for (SensorDataEntry entry : sensorDatabase.values()) {
+                        writeEntry(writer, entry);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                writer.abort();
+                throw e;
+            }
+            // O WAL só é truncado com o snapshot durável
+            ReceiverSnapshot snapshot = writer.finish(watermark, logSegment, messages, conflicts,
+                                                      SNAPSHOT_FSYNC || wal != null);
+            lastSnapshot = snapshot;
+            lastSnapshotSequence = watermark;
+            int deleted = parent == null ? snapshot.deleteSupersededFiles() : 0;
+            truncateLog(logSegment);
+            logger.info("📸 [{}] Snapshot gravado: {} em {} ms{}", receiverId, snapshot,
+                       (System.nanoTime() - start) / 1_000_000, deleted > 0 ? " (" + deleted + " antigos apagados)" : "");
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Sequência de escrita com todas as entradas até ela já no mapa
+     *
+     * Sequência e compute acontecem sob stateLock compartilhado; o modo
+     * exclusivo aqui espera as escritas em andamento, então nenhuma entrada
+     * com sequência menor fica de fora de um incremental por ainda não ter
+     * chegado ao mapa.
+     */
+    private long stableWriteSequence() {
+        long stamp = stateLock.writeLock();
+        try {
+            return writeSequence.get();
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
+    }
+    
+    private static void writeEntry(ReceiverSnapshotWriter writer, SensorDataEntry entry) throws IOException {
+        writer.put(entry.getSensorId(), entry.getValue(), entry.getSensorType(),
+                   entry.getTimestamp(), entry.getVersionVectorClock());
+    }
+    
+    /**
+     * Restaura o estado a partir de um snapshot mapeado (replicação ou start)
+     *
+     * Nenhum sensor é copiado para o heap: o snapshot vira a base de leitura
+     * e sensorDatabase recomeça vazio. Mesmo critério de restoreFromBackup:
+     * só aplica se o snapshot tiver mais mensagens que o estado atual.
+     */
+    public void restoreFromSnapshot(ReceiverSnapshot snapshot) {
+        logger.info("📥 [{}] RESTAURANDO snapshot {} - {} sensores, {} mensagens", 
+                   receiverId, snapshot.getFile().getFileName(), snapshot.size(), snapshot.getTotalMessages());
+        
+        long checkpoint = 0;
+        long stamp = stateLock.writeLock();
+        try {
+            if (snapshot.getTotalMessages() > totalMessages.get()) {
+                checkpoint = logRestore(snapshot::linkChainInto);
+                replaceState(snapshot);
+                logger.info("✅ [{}] SNAPSHOT RESTAURADO com sucesso (cadeia de {} arquivos mapeada)", 
+                           receiverId, snapshot.chainLength());
+            } else {
+                logger.info("⚠️ [{}] Snapshot mais antigo ignorado", receiverId);
+            }
+        } finally {
+            stateLock.unlockWrite(stamp);
+        }
+        truncateLog(checkpoint);
+    }
+    
+    /**
+     * Troca o estado inteiro pelo snapshot (restauração ou reexecução do WAL)
+     */
+    private void replaceState(ReceiverSnapshot snapshot) {
+        long watermark = writeSequence.get();
+        sensorDatabase.clear();
+        baseSnapshot = snapshot;
+        baseOverrides.set(0);
+        
+        versionVector.clear();
+        snapshot.forEachVersion(versionVector::put);
+        
+        totalMessages.set(snapshot.getTotalMessages());
+        conflictsResolved.set(snapshot.getConflictsResolved());
+        
+        synchronized (snapshotLock) {
+            // Snapshot próprio continua a cadeia; o de outro receiver exige um completo
+            boolean own = snapshot.getFile().getParent().equals(snapshotDirectory());
+            lastSnapshot = own ? snapshot : null;
+            lastSnapshotSequence = watermark;
+        }
+    }
+    
+    /**
+     * No primeiro start(), sem WAL, restaura o snapshot mais recente do disco
+     * (com WAL, openWriteAheadLog mapeia o snapshot e reexecuta a cauda do log)
+     */
+    private void loadLatestSnapshot() {
+        if (!SNAPSHOT_ENABLED || wal != null || snapshotLoaded) {
+            return;
+        }
+        snapshotLoaded = true;
+        ReceiverSnapshot snapshot = openLatestSnapshot();
+        if (snapshot != null) {
+            restoreFromSnapshot(snapshot);
+        }
+    }
+    
+    /**
+     * Snapshot mais recente do próprio diretório, com a cadeia mapeada
+     * @return null se não houver ou se não puder ser lido
+     */
+    private ReceiverSnapshot openLatestSnapshot() {
+        try {
+            Path latest = ReceiverSnapshot.latest(snapshotDirectory());
+            return latest != null ? ReceiverSnapshot.open(latest) : null;
+        } catch (IOException e) {
+            logger.error("❌ [{}] Snapshot não restaurado: {}", receiverId, e.getMessage());
+            return null;
         }
     }
     
+    private Path snapshotDirectory() {
+        return Paths.get(SNAPSHOT_DIR, receiverId).toAbsolutePath();
+    }
+    
     /**
      * Classe para backup do estado do Data Receiver
      */
@@ -560,8 +1373,44 @@ public class DataReceiver {
     public boolean isRunning() { return running.get(); }
     public long getTotalMessages() { return totalMessages.get(); }
     public long getConflictsResolved() { return conflictsResolved.get(); }
-    public int getSensorCount() { return sensorDatabase.size(); }
+    public boolean isSnapshotEnabled() { return SNAPSHOT_ENABLED; }
+    public ReceiverSnapshot getBaseSnapshot() { return baseSnapshot; }
+    
+    public int getSensorCount() {
+        ReceiverSnapshot base = baseSnapshot;
+        return base == null ? sensorDatabase.size() : base.size() + sensorDatabase.size() - baseOverrides.get();
+    }
     public ConcurrentHashMap<String, Long> getVersionVector() { return new ConcurrentHashMap<>(versionVector); }
+    public int getAckQueueDepth() { return ackSender.getQueueDepth(); }
+    public String getAckStats() { return ackSender.getStats(); }
+    public SensorHistoryStore getHistory() { return history; }
+    public WriteAheadLog getWriteAheadLog() { return wal; }
+    
+    /**
+     * Varre o histórico do sensor entre from e to (epoch millis, inclusive)
+     * @return número de leituras entregues
+     */
+    public int scanHistory(String sensorId, long fromMillis, long toMillis, ReadingConsumer consumer) {
+        return history.scan(sensorId, fromMillis, toMillis, consumer);
+    }
+    
+    /**
+     * Cursor sobre o histórico do sensor entre from e to (epoch millis, inclusive)
+     */
+    public ReadingCursor historyCursor(String sensorId, long fromMillis, long toMillis) {
+        return history.cursor(sensorId, fromMillis, toMillis);
+    }
+    
+    /**
+     * Descarta histórico fora da janela de retenção
+     * @return leituras descartadas
+     */
+    public long evictExpiredHistory() {
+        return history.evictExpired();
+    }
+    public int getInFlight() { return inFlight.get(); }
+    public long getLatencyEwmaNanos() { return latencyEwmaNanos; }
+    public long getLastLatencySampleNanos() { return lastLatencySampleNanos; }
     
     /**
      * Retorna dados persistidos para monitoramento
@@ -570,15 +1419,16 @@ public class DataReceiver {
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("[%s] Database Status:\n", receiverId));
         
-        if (sensorDatabase.isEmpty()) {
+        if (getSensorCount() == 0) {
             sb.append("  Nenhum dado persistido ainda\n");
         } else {
-            sensorDatabase.forEach((sensorId, entry) -> {
+            forEachEntry((sensorId, entry) -> {
                 sb.append(String.format("  %s: %s\n", sensorId, entry));
             });
         }
         
         sb.append(String.format("  Version Vector: %s\n", versionVector));
+        sb.append(String.format("  %s\n", history.getStats()));
         sb.append(String.format("  Stats: Msgs=%d, Conflitos=%d", totalMessages.get(), conflictsResolved.get()));
         
         return sb.toString();
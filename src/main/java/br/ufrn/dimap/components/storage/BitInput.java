@@ -0,0 +1,38 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Leitura sequencial de bits (MSB primeiro) sobre um long[]
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class BitInput {
+
+    private final long[] words;
+    private long position;
+
+    BitInput(long[] words) {
+        this.words = words;
+    }
+
+    boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * Lê n bits (1 <= n <= 64) como inteiro sem sinal
+     */
+    long readBits(int n) {
+        int word = (int) (position >>> 6);
+        int available = 64 - (int) (position & 63);
+        long result;
+        if (n <= available) {
+            result = words[word] >>> (available - n);
+        } else {
+            int spill = n - available;
+            result = (words[word] << spill) | (words[word + 1] >>> (64 - spill));
+        }
+        position += n;
+        return n < 64 ? result & ((1L << n) - 1) : result;
+    }
+}
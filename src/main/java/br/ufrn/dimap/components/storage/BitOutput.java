@@ -0,0 +1,61 @@
+package br.ufrn.dimap.components.storage;
+
+import java.util.Arrays;
+
+/**
+ * Escrita sequencial de bits (MSB primeiro) em um long[] que cresce
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class BitOutput {
+
+    private long[] words;
+    private long position;
+
+    BitOutput(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+    }
+
+    void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * Escreve os n bits menos significativos de value (1 <= n <= 64)
+     */
+    void writeBits(long value, int n) {
+        ensureCapacity(position + n);
+        if (n < 64) {
+            value &= (1L << n) - 1;
+        }
+        int word = (int) (position >>> 6);
+        int free = 64 - (int) (position & 63);
+        if (n <= free) {
+            words[word] |= value << (free - n);
+        } else {
+            int spill = n - free;
+            words[word] |= value >>> spill;
+            words[word + 1] |= value << (64 - spill);
+        }
+        position += n;
+    }
+
+    long bitLength() {
+        return position;
+    }
+
+    /**
+     * Palavras usadas, sem a folga de crescimento
+     */
+    long[] toWords() {
+        return Arrays.copyOf(words, (int) ((position + 63) >>> 6));
+    }
+
+    private void ensureCapacity(long bits) {
+        int needed = (int) ((bits + 63) >>> 6);
+        if (needed > words.length) {
+            words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+        }
+    }
+}
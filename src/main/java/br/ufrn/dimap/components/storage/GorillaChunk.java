@@ -0,0 +1,120 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Bloco comprimido (Gorilla) de leituras de um sensor
+ *
+ * Imutável: criado no rollover a partir do bloco colunar cheio. As
+ * leituras são decodificadas uma a uma pelo cursor, na ordem de chegada,
+ * sem materializar as colunas. Formato descrito em GorillaEncoder.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class GorillaChunk implements HistoryChunk {
+
+    private final long[] words;
+    private final int count;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+
+    GorillaChunk(long[] words, int count, long minTimestamp, long maxTimestamp) {
+        this.words = words;
+        this.count = count;
+        this.minTimestamp = minTimestamp;
+        this.maxTimestamp = maxTimestamp;
+    }
+
+    @Override
+    public int scan(long fromMillis, long toMillis, ReadingConsumer consumer) {
+        if (count == 0 || maxTimestamp < fromMillis || minTimestamp > toMillis) {
+            return 0;
+        }
+        int delivered = 0;
+        Decoder decoder = new Decoder();
+        while (decoder.next()) {
+            long timestamp = decoder.timestamp();
+            if (timestamp >= fromMillis && timestamp <= toMillis) {
+                consumer.accept(timestamp, decoder.value());
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    @Override
+    public ReadingCursor cursor() {
+        return new Decoder();
+    }
+
+    @Override public int size() { return count; }
+    @Override public long getMinTimestamp() { return minTimestamp; }
+    @Override public long getMaxTimestamp() { return maxTimestamp; }
+
+    @Override
+    public long estimatedBytes() {
+        return 16 + 8L * words.length + 40;
+    }
+
+    /**
+     * Decodificador streaming (inverso de GorillaEncoder)
+     */
+    private final class Decoder implements ReadingCursor {
+        private final BitInput in = new BitInput(words);
+        private int index;
+
+        private long timestamp;
+        private long delta;
+        private long bits;
+        private int leading;
+        private int trailing;
+
+        @Override
+        public boolean next() {
+            if (index >= count) {
+                return false;
+            }
+            if (index == 0) {
+                timestamp = in.readBits(64);
+                bits = in.readBits(64);
+            } else {
+                readTimestamp();
+                readValue();
+            }
+            index++;
+            return true;
+        }
+
+        private void readTimestamp() {
+            long deltaOfDelta;
+            if (!in.readBit()) {
+                deltaOfDelta = 0;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.readBits(7) - 63;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.readBits(9) - 255;
+            } else if (!in.readBit()) {
+                deltaOfDelta = in.readBits(12) - 2047;
+            } else {
+                deltaOfDelta = in.readBits(64);
+            }
+            delta += deltaOfDelta;
+            timestamp += delta;
+        }
+
+        private void readValue() {
+            if (!in.readBit()) {
+                return; // mesmo valor
+            }
+            if (in.readBit()) {
+                leading = (int) in.readBits(5);
+                int significant = (int) in.readBits(6) + 1;
+                trailing = 64 - leading - significant;
+            }
+            int significant = 64 - leading - trailing;
+            bits ^= in.readBits(significant) << trailing;
+        }
+
+        @Override public long timestamp() { return timestamp; }
+        @Override public double value() { return Double.longBitsToDouble(bits); }
+    }
+}
@@ -0,0 +1,124 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Codificador streaming no formato Gorilla (Facebook, VLDB 2015)
+ *
+ * Timestamps: o primeiro em 64 bits; os demais como delta-of-delta em
+ * faixas de tamanho variável:
+ *   0                    -> '0'
+ *   [-63, 64]            -> '10'   + 7 bits
+ *   [-255, 256]          -> '110'  + 9 bits
+ *   [-2047, 2048]        -> '1110' + 12 bits
+ *   demais               -> '1111' + 64 bits
+ * Leituras periódicas custam 1 bit de timestamp; jitter de poucos ms, 9.
+ *
+ * Valores: o primeiro em 64 bits; os demais como XOR com o anterior:
+ *   XOR zero             -> '0'
+ *   cabe na janela atual -> '10' + bits significativos da janela
+ *   nova janela          -> '11' + 5 bits de zeros à esquerda
+ *                           + 6 bits (tamanho - 1) + bits significativos
+ *
+ * Cada leitura é escrita assim que chega (append), sem buffer por leitura.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class GorillaEncoder {
+
+    private final BitOutput out;
+    private int count;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    private long previousTimestamp;
+    private long previousDelta;
+    private long previousBits;
+    private int previousLeading = -1;
+    private int previousTrailing;
+
+    GorillaEncoder(int expectedReadings) {
+        // ~2 bytes por leitura é o caso típico; BitOutput cresce se preciso
+        this.out = new BitOutput(Math.max(4, expectedReadings / 4));
+    }
+
+    /**
+     * Comprime um bloco colunar inteiro
+     */
+    static GorillaChunk encode(TimeSeriesChunk chunk) {
+        GorillaEncoder encoder = new GorillaEncoder(chunk.size());
+        ReadingCursor cursor = chunk.cursor();
+        while (cursor.next()) {
+            encoder.append(cursor.timestamp(), cursor.value());
+        }
+        return encoder.finish();
+    }
+
+    void append(long timestampMillis, double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        if (count == 0) {
+            out.writeBits(timestampMillis, 64);
+            out.writeBits(bits, 64);
+        } else {
+            writeTimestamp(timestampMillis);
+            writeValue(bits);
+        }
+        previousTimestamp = timestampMillis;
+        previousBits = bits;
+        if (timestampMillis < minTimestamp) {
+            minTimestamp = timestampMillis;
+        }
+        if (timestampMillis > maxTimestamp) {
+            maxTimestamp = timestampMillis;
+        }
+        count++;
+    }
+
+    private void writeTimestamp(long timestampMillis) {
+        long delta = timestampMillis - previousTimestamp;
+        long deltaOfDelta = delta - previousDelta;
+        previousDelta = delta;
+
+        if (deltaOfDelta == 0) {
+            out.writeBits(0b0, 1);
+        } else if (deltaOfDelta >= -63 && deltaOfDelta <= 64) {
+            out.writeBits(0b10, 2);
+            out.writeBits(deltaOfDelta + 63, 7);
+        } else if (deltaOfDelta >= -255 && deltaOfDelta <= 256) {
+            out.writeBits(0b110, 3);
+            out.writeBits(deltaOfDelta + 255, 9);
+        } else if (deltaOfDelta >= -2047 && deltaOfDelta <= 2048) {
+            out.writeBits(0b1110, 4);
+            out.writeBits(deltaOfDelta + 2047, 12);
+        } else {
+            out.writeBits(0b1111, 4);
+            out.writeBits(deltaOfDelta, 64);
+        }
+    }
+
+    private void writeValue(long bits) {
+        long xor = bits ^ previousBits;
+        if (xor == 0) {
+            out.writeBits(0b0, 1);
+            return;
+        }
+
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        if (previousLeading >= 0 && leading >= previousLeading && trailing >= previousTrailing) {
+            out.writeBits(0b10, 2);
+            out.writeBits(xor >>> previousTrailing, 64 - previousLeading - previousTrailing);
+        } else {
+            int significant = 64 - leading - trailing;
+            out.writeBits(0b11, 2);
+            out.writeBits(leading, 5);
+            out.writeBits(significant - 1, 6);
+            out.writeBits(xor >>> trailing, significant);
+            previousLeading = leading;
+            previousTrailing = trailing;
+        }
+    }
+
+    GorillaChunk finish() {
+        return new GorillaChunk(out.toWords(), count, minTimestamp, maxTimestamp);
+    }
+}
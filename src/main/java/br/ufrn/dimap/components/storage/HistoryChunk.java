@@ -0,0 +1,35 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Bloco de leituras de uma série temporal
+ *
+ * Implementações: TimeSeriesChunk (colunar, aberto para escrita) e
+ * GorillaChunk (comprimido, imutável após o rollover).
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+interface HistoryChunk {
+
+    /**
+     * Entrega as leituras com from <= timestamp <= to, na ordem de chegada
+     * @return número de leituras entregues
+     */
+    int scan(long fromMillis, long toMillis, ReadingConsumer consumer);
+
+    /**
+     * Cursor sobre todas as leituras do bloco, na ordem de chegada
+     */
+    ReadingCursor cursor();
+
+    int size();
+
+    long getMinTimestamp();
+
+    long getMaxTimestamp();
+
+    /**
+     * Bytes ocupados no heap pelo bloco
+     */
+    long estimatedBytes();
+}
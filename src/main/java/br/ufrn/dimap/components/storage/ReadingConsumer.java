@@ -0,0 +1,19 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Recebe as leituras de uma varredura do SensorHistoryStore
+ *
+ * Usa tipos primitivos para não criar um objeto por leitura.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface ReadingConsumer {
+
+    /**
+     * @param timestampMillis instante da leitura (epoch millis)
+     * @param value valor lido pelo sensor
+     */
+    void accept(long timestampMillis, double value);
+}
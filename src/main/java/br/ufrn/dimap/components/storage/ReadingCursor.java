@@ -0,0 +1,30 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Cursor sobre leituras do histórico (sem boxing)
+ *
+ * Uso: while (cursor.next()) { cursor.timestamp(); cursor.value(); }
+ * Blocos comprimidos são decodificados leitura a leitura, sem
+ * descomprimir o bloco inteiro.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public interface ReadingCursor {
+
+    /**
+     * Avança para a próxima leitura
+     * @return false quando não há mais leituras
+     */
+    boolean next();
+
+    /**
+     * Instante da leitura corrente (epoch millis)
+     */
+    long timestamp();
+
+    /**
+     * Valor da leitura corrente
+     */
+    double value();
+}
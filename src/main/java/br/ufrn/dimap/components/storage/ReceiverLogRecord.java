@@ -0,0 +1,207 @@
+package br.ufrn.dimap.components.storage;
+
+import br.ufrn.dimap.core.IoTMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Registro do WAL de um Data Receiver
+ *
+ * SENSOR_DATA: [byte tipo][string sensorId][string tipoSensor][double valor]
+ *              [long epochSecond][int nano][int n][n x (string nó, long versão)]
+ * VERSION_MERGE: [byte tipo][int n][n x (string nó, long versão)]
+ * REPLICA_ENTRY: [byte tipo][string sensorId][string tipoSensor][double valor]
+ *              [long epochSecond][int nano][long relógio VV][int 0]
+ * RESTORE_SNAPSHOT: [byte tipo][string arquivo do snapshot, relativo ao WAL]
+ *              - o estado inteiro passa a ser o do snapshot
+ *
+ * Strings: [short tamanho][UTF-8], -1 para null. O timestamp é gravado
+ * como LocalDateTime em UTC fixo (sem fuso), preservando os nanossegundos
+ * usados pelo Last Write Wins.
+ *
+ * A instância é reutilizável na recuperação: decode() sobrescreve os campos.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ReceiverLogRecord {
+
+    public static final byte SENSOR_DATA = 1;
+    public static final byte VERSION_MERGE = 2;
+    public static final byte REPLICA_ENTRY = 3;
+    public static final byte RESTORE_SNAPSHOT = 4;
+
+    private byte type;
+    private String sensorId;
+    private String sensorType;
+    private double value;
+    private long epochSecond;
+    private int nano;
+    private long clock;
+    private String snapshotFile;
+    private String[] versionNodes = new String[4];
+    private long[] versions = new long[4];
+    private int versionCount;
+
+    /**
+     * Leitura de sensor com o version vector da mensagem
+     */
+    public static void encodeSensorData(IoTMessage message, ByteBuffer out) {
+        out.put(SENSOR_DATA);
+        putString(out, message.getSensorId());
+        putString(out, message.getSensorType());
+        out.putDouble(message.getSensorValue());
+        LocalDateTime timestamp = message.getTimestamp();
+        out.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(timestamp.getNano());
+        putVersions(out, message);
+    }
+
+    /**
+     * Só o version vector da mensagem (registro de sensor, heartbeat)
+     */
+    public static void encodeVersionMerge(IoTMessage message, ByteBuffer out) {
+        out.put(VERSION_MERGE);
+        putVersions(out, message);
+    }
+
+    /**
+     * Version vector recebido por replicação (merge com outro receiver)
+     */
+    public static void encodeVersions(Map<String, Long> versions, ByteBuffer out) {
+        out.put(VERSION_MERGE);
+        out.putInt(versions.size());
+        for (Map.Entry<String, Long> version : versions.entrySet()) {
+            putString(out, version.getKey());
+            out.putLong(version.getValue());
+        }
+    }
+
+    /**
+     * Entrada de sensor recebida por replicação: valor mais recente com o
+     * relógio VV da origem (não conta como mensagem recebida)
+     */
+    public static void encodeReplicaEntry(String sensorId, String sensorType, double value,
+                                          LocalDateTime timestamp, long clock, ByteBuffer out) {
+        out.put(REPLICA_ENTRY);
+        putString(out, sensorId);
+        putString(out, sensorType);
+        out.putDouble(value);
+        out.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.putInt(timestamp.getNano());
+        out.putLong(clock);
+        out.putInt(0);
+    }
+
+    /**
+     * Restauração: referência ao snapshot que substitui o estado
+     */
+    public static void encodeRestoreSnapshot(String snapshotFile, ByteBuffer out) {
+        out.put(RESTORE_SNAPSHOT);
+        putString(out, snapshotFile);
+    }
+
+    /**
+     * Lê um payload do WAL
+     * @throws IllegalArgumentException tipo desconhecido
+     * @throws java.nio.BufferUnderflowException payload truncado
+     */
+    public void decode(ByteBuffer payload) {
+        type = payload.get();
+        snapshotFile = null;
+        if (type == RESTORE_SNAPSHOT) {
+            sensorId = null;
+            sensorType = null;
+            snapshotFile = getString(payload);
+            versionCount = 0;
+            return;
+        }
+        if (type == SENSOR_DATA || type == REPLICA_ENTRY) {
+            sensorId = getString(payload);
+            sensorType = getString(payload);
+            value = payload.getDouble();
+            epochSecond = payload.getLong();
+            nano = payload.getInt();
+            clock = type == REPLICA_ENTRY ? payload.getLong() : 0L;
+        } else if (type == VERSION_MERGE) {
+            sensorId = null;
+            sensorType = null;
+        } else {
+            throw new IllegalArgumentException("Tipo de registro desconhecido: " + type);
+        }
+        int count = payload.getInt();
+        if (count < 0) {
+            throw new IllegalArgumentException("Version vector inválido: " + count);
+        }
+        if (count > versions.length) {
+            versionNodes = Arrays.copyOf(versionNodes, count);
+            versions = Arrays.copyOf(versions, count);
+        }
+        for (int i = 0; i < count; i++) {
+            versionNodes[i] = getString(payload);
+            versions[i] = payload.getLong();
+        }
+        versionCount = count;
+    }
+
+    public byte getType() { return type; }
+    public String getSensorId() { return sensorId; }
+    public String getSensorType() { return sensorType; }
+    public double getValue() { return value; }
+    public long getClock() { return clock; }
+    public String getSnapshotFile() { return snapshotFile; }
+
+    public LocalDateTime getTimestamp() {
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    /**
+     * Percorre o version vector gravado (mesma forma de IoTMessage.forEachVersion)
+     */
+    public void forEachVersion(ObjLongConsumer<String> action) {
+        for (int i = 0; i < versionCount; i++) {
+            action.accept(versionNodes[i], versions[i]);
+        }
+    }
+
+    private static void putVersions(ByteBuffer out, IoTMessage message) {
+        int countPosition = out.position();
+        out.putInt(0);
+        int[] count = new int[1];
+        message.forEachVersion((nodeId, version) -> {
+            putString(out, nodeId);
+            out.putLong(version);
+            count[0]++;
+        });
+        out.putInt(countPosition, count[0]);
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("String longa demais para o WAL: " + bytes.length + " bytes");
+        }
+        out.putShort((short) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
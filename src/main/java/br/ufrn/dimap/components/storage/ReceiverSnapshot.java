@@ -0,0 +1,525 @@
+package br.ufrn.dimap.components.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Snapshot do estado de um Data Receiver, lido direto do arquivo mapeado
+ *
+ * Formato (big-endian):
+ * - cabeçalho fixo (HEADER_BYTES): magic, versão, flags, instante,
+ *   sequência, mensagens, conflitos, contagens, offsets das seções e o
+ *   primeiro segmento do WAL não coberto pelo snapshot (0 sem WAL)
+ * - receiverId e nome do arquivo pai ([short tamanho][UTF-8])
+ * - version vector: n x ([short tamanho][nó][long versão])
+ * - entradas: [short][sensorId][short][tipo][double valor]
+ *   [long epochSecond][int nano][long relógio VV]
+ * - tabela hash (endereçamento aberto, potência de 2): [int hash][int offset]
+ *   por slot, offset relativo à seção de entradas, -1 para vazio
+ * - [int CRC32C] de todo o arquivo anterior
+ *
+ * Nada é copiado para o heap na abertura: consultas fazem probe na tabela
+ * do arquivo mapeado e só a entrada encontrada é materializada.
+ *
+ * Um snapshot incremental guarda apenas as entradas alteradas desde o
+ * pai (arquivo no mesmo diretório); a consulta percorre a cadeia do mais
+ * novo para o mais antigo. Toda a cadeia é mapeada na abertura, então
+ * apagar arquivos antigos depois não invalida snapshots abertos.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ReceiverSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(ReceiverSnapshot.class);
+
+    static final int MAGIC = 0x494F5453; // "IOTS"
+    static final short FORMAT_VERSION = 2;
+    static final short FLAG_INCREMENTAL = 1;
+
+    // Cabeçalho fixo
+    static final int H_MAGIC = 0;
+    static final int H_VERSION = 4;
+    static final int H_FLAGS = 6;
+    static final int H_CREATED = 8;
+    static final int H_SEQUENCE = 16;
+    static final int H_TOTAL_MESSAGES = 24;
+    static final int H_CONFLICTS = 32;
+    static final int H_ENTRY_COUNT = 40;
+    static final int H_TOTAL_SENSORS = 44;
+    static final int H_SLOT_COUNT = 48;
+    static final int H_VERSION_COUNT = 52;
+    static final int H_VERSIONS_OFFSET = 56;
+    static final int H_ENTRIES_OFFSET = 64;
+    static final int H_SLOTS_OFFSET = 72;
+    static final int H_LOG_SEGMENT = 80;
+    static final int HEADER_BYTES = 88;
+
+    static final int SLOT_BYTES = 8;
+    static final int EMPTY_SLOT = -1;
+
+    private static final String FILE_PREFIX = "snap-";
+    private static final String FILE_SUFFIX = ".bin";
+
+    /**
+     * Visita uma entrada (mesma ordem de parâmetros de SensorDataEntry)
+     */
+    @FunctionalInterface
+    public interface EntryVisitor {
+        void visit(String sensorId, double value, String sensorType,
+                   LocalDateTime timestamp, long versionVectorClock) throws IOException;
+    }
+
+    /**
+     * Materializa uma entrada (ex.: SensorDataEntry::new)
+     */
+    @FunctionalInterface
+    public interface EntryFactory<T> {
+        T create(String sensorId, double value, String sensorType,
+                 LocalDateTime timestamp, long versionVectorClock);
+    }
+
+    private final Path file;
+    private final long index;
+    private final MappedByteBuffer buffer;
+    private final ReceiverSnapshot parent;
+
+    private final String receiverId;
+    private final boolean incremental;
+    private final long createdAtMillis;
+    private final long sequence;
+    private final long logSegment;
+    private final long totalMessages;
+    private final long conflictsResolved;
+    private final int entryCount;
+    private final int totalSensors;
+    private final int slotMask;
+    private final int versionCount;
+    private final int versionsOffset;
+    private final int entriesOffset;
+    private final int slotsOffset;
+
+    private ReceiverSnapshot(Path file, MappedByteBuffer buffer, ReceiverSnapshot parent) {
+        this.file = file;
+        this.index = parseIndex(file.getFileName().toString());
+        this.buffer = buffer;
+        this.parent = parent;
+        this.incremental = (buffer.getShort(H_FLAGS) & FLAG_INCREMENTAL) != 0;
+        this.createdAtMillis = buffer.getLong(H_CREATED);
+        this.sequence = buffer.getLong(H_SEQUENCE);
+        this.logSegment = buffer.getLong(H_LOG_SEGMENT);
+        this.totalMessages = buffer.getLong(H_TOTAL_MESSAGES);
+        this.conflictsResolved = buffer.getLong(H_CONFLICTS);
+        this.entryCount = buffer.getInt(H_ENTRY_COUNT);
+        this.totalSensors = buffer.getInt(H_TOTAL_SENSORS);
+        this.slotMask = buffer.getInt(H_SLOT_COUNT) - 1;
+        this.versionCount = buffer.getInt(H_VERSION_COUNT);
+        this.versionsOffset = (int) buffer.getLong(H_VERSIONS_OFFSET);
+        this.entriesOffset = (int) buffer.getLong(H_ENTRIES_OFFSET);
+        this.slotsOffset = (int) buffer.getLong(H_SLOTS_OFFSET);
+        this.receiverId = readString(buffer, HEADER_BYTES);
+    }
+
+    /**
+     * Mapeia o snapshot e toda a sua cadeia de pais, validando os CRCs
+     */
+    public static ReceiverSnapshot open(Path file) throws IOException {
+        return open(file, true);
+    }
+
+    static ReceiverSnapshot open(Path file, boolean verify) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 4 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot com tamanho inválido: " + file + " (" + size + " bytes)");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(H_MAGIC) != MAGIC || buffer.getShort(H_VERSION) != FORMAT_VERSION) {
+            throw new IOException("Arquivo não é um snapshot suportado: " + file);
+        }
+        if (verify) {
+            int end = buffer.capacity() - 4;
+            CRC32C crc = new CRC32C();
+            ByteBuffer content = buffer.duplicate();
+            content.position(0).limit(end);
+            crc.update(content);
+            if ((int) crc.getValue() != buffer.getInt(end)) {
+                throw new IOException("CRC inválido no snapshot " + file);
+            }
+        }
+
+        String parentName = readString(buffer, HEADER_BYTES + 2 + buffer.getShort(HEADER_BYTES));
+        ReceiverSnapshot parent = null;
+        if (parentName != null && !parentName.isEmpty()) {
+            parent = open(file.resolveSibling(parentName), verify);
+        }
+        return new ReceiverSnapshot(file, buffer, parent);
+    }
+
+    /**
+     * Snapshot mais recente do diretório
+     * @return null se não houver
+     */
+    public static Path latest(Path directory) throws IOException {
+        long index = latestIndex(directory);
+        return index == 0 ? null : directory.resolve(fileName(index));
+    }
+
+    // --------------------------------------------------------------- consulta
+
+    /**
+     * Procura o sensor na cadeia (mais novo primeiro)
+     * @return entrada materializada ou null
+     */
+    public <T> T find(String sensorId, EntryFactory<T> factory) {
+        int hash = hash(sensorId);
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            int position = snapshot.locate(sensorId, hash);
+            if (position >= 0) {
+                return snapshot.materialize(position, factory);
+            }
+        }
+        return null;
+    }
+
+    public boolean contains(String sensorId) {
+        int hash = hash(sensorId);
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            if (snapshot.locate(sensorId, hash) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visita cada sensor uma vez, com o valor mais novo da cadeia
+     */
+    public void forEach(EntryVisitor visitor) throws IOException {
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            snapshot.forEachOwn(visitor, this);
+        }
+    }
+
+    private void forEachOwn(EntryVisitor visitor, ReceiverSnapshot newest) throws IOException {
+        for (int slot = 0; slot <= slotMask; slot++) {
+            int offset = buffer.getInt(slotsOffset + slot * SLOT_BYTES + 4);
+            if (offset == EMPTY_SLOT) {
+                continue;
+            }
+            int position = entriesOffset + offset;
+            String sensorId = readString(buffer, position);
+            if (newest != this && newest.shadows(sensorId, this)) {
+                continue;
+            }
+            int cursor = position + 2 + buffer.getShort(position);
+            short typeLength = buffer.getShort(cursor);
+            String sensorType = readString(buffer, cursor);
+            cursor += 2 + Math.max(0, typeLength);
+            visitor.visit(sensorId, buffer.getDouble(cursor), sensorType,
+                          LocalDateTime.ofEpochSecond(buffer.getLong(cursor + 8), buffer.getInt(cursor + 16), ZoneOffset.UTC),
+                          buffer.getLong(cursor + 20));
+        }
+    }
+
+    /**
+     * true se algum snapshot mais novo que ancestor na cadeia contém o sensor
+     */
+    private boolean shadows(String sensorId, ReceiverSnapshot ancestor) {
+        int hash = hash(sensorId);
+        for (ReceiverSnapshot snapshot = this; snapshot != ancestor; snapshot = snapshot.parent) {
+            if (snapshot.locate(sensorId, hash) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Percorre o version vector gravado
+     */
+    public void forEachVersion(ObjLongConsumer<String> action) {
+        int cursor = versionsOffset;
+        for (int i = 0; i < versionCount; i++) {
+            String nodeId = readString(buffer, cursor);
+            cursor += 2 + buffer.getShort(cursor);
+            action.accept(nodeId, buffer.getLong(cursor));
+            cursor += 8;
+        }
+    }
+
+    private <T> T materialize(int position, EntryFactory<T> factory) {
+        String sensorId = readString(buffer, position);
+        int cursor = position + 2 + buffer.getShort(position);
+        short typeLength = buffer.getShort(cursor);
+        String sensorType = readString(buffer, cursor);
+        cursor += 2 + Math.max(0, typeLength);
+        return factory.create(sensorId, buffer.getDouble(cursor), sensorType,
+                              LocalDateTime.ofEpochSecond(buffer.getLong(cursor + 8), buffer.getInt(cursor + 16), ZoneOffset.UTC),
+                              buffer.getLong(cursor + 20));
+    }
+
+    /**
+     * Probe na tabela deste arquivo
+     * @return posição absoluta da entrada ou -1
+     */
+    private int locate(String sensorId, int hash) {
+        int slot = spread(hash) & slotMask;
+        while (true) {
+            int slotPosition = slotsOffset + slot * SLOT_BYTES;
+            int offset = buffer.getInt(slotPosition + 4);
+            if (offset == EMPTY_SLOT) {
+                return -1;
+            }
+            if (buffer.getInt(slotPosition) == hash && keyEquals(buffer, entriesOffset + offset, sensorId)) {
+                return entriesOffset + offset;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Probe por chave em bytes (usado pelo writer para contar sensores novos)
+     */
+    boolean containsKey(ByteBuffer source, int keyPosition, int hash) {
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            int slot = spread(hash) & snapshot.slotMask;
+            while (true) {
+                int slotPosition = snapshot.slotsOffset + slot * SLOT_BYTES;
+                int offset = snapshot.buffer.getInt(slotPosition + 4);
+                if (offset == EMPTY_SLOT) {
+                    break;
+                }
+                if (snapshot.buffer.getInt(slotPosition) == hash
+                        && keyEquals(snapshot.buffer, snapshot.entriesOffset + offset, source, keyPosition)) {
+                    return true;
+                }
+                slot = (slot + 1) & snapshot.slotMask;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------- metadados
+
+    public Path getFile() { return file; }
+    public long getIndex() { return index; }
+    public ReceiverSnapshot getParent() { return parent; }
+    public String getReceiverId() { return receiverId; }
+    public boolean isIncremental() { return incremental; }
+    public long getCreatedAtMillis() { return createdAtMillis; }
+    public long getSequence() { return sequence; }
+    /**
+     * Registros do WAL em segmentos anteriores a este já estão no snapshot
+     */
+    public long getLogSegment() { return logSegment; }
+    public long getTotalMessages() { return totalMessages; }
+    public long getConflictsResolved() { return conflictsResolved; }
+    public long getFileBytes() { return buffer.capacity(); }
+
+    /**
+     * Entradas gravadas neste arquivo
+     */
+    public int getEntryCount() { return entryCount; }
+
+    /**
+     * Sensores distintos na cadeia inteira
+     */
+    public int size() { return totalSensors; }
+
+    public int chainLength() {
+        int length = 0;
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Apaga snapshots mais antigos do diretório que não fazem parte desta cadeia
+     * (cadeias já mapeadas continuam válidas)
+     * @return arquivos apagados
+     */
+    public int deleteSupersededFiles() throws IOException {
+        Set<Path> chain = new HashSet<>();
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            chain.add(snapshot.file.getFileName());
+        }
+        int deleted = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(file.getParent(), FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                long other = parseIndex(path.getFileName().toString());
+                if (other > 0 && other < index && !chain.contains(path.getFileName())) {
+                    try {
+                        Files.delete(path);
+                        deleted++;
+                    } catch (IOException e) {
+                        logger.warn("⚠️ Não foi possível apagar snapshot antigo {}: {}", path, e.getMessage());
+                    }
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Liga (hard link; cópia se o sistema de arquivos não suportar) todos
+     * os arquivos da cadeia em outro diretório, com os mesmos nomes
+     * @return arquivo deste snapshot no diretório
+     */
+    public Path linkChainInto(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        for (ReceiverSnapshot snapshot = this; snapshot != null; snapshot = snapshot.parent) {
+            Path target = directory.resolve(snapshot.file.getFileName());
+            if (Files.exists(target)) {
+                continue;
+            }
+            try {
+                Files.createLink(target, snapshot.file);
+            } catch (IOException | UnsupportedOperationException e) {
+                Files.copy(snapshot.file, target);
+            }
+        }
+        return directory.resolve(file.getFileName());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (%s, %d entradas, %d sensores, cadeia %d, %d bytes)",
+                             file.getFileName(), incremental ? "incremental" : "completo",
+                             entryCount, totalSensors, chainLength(), getFileBytes());
+    }
+
+    // ------------------------------------------------------ formato/utilitários
+
+    static String fileName(long index) {
+        return String.format("%s%020d%s", FILE_PREFIX, index, FILE_SUFFIX);
+    }
+
+    static long latestIndex(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return 0;
+        }
+        long latest = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path path : stream) {
+                latest = Math.max(latest, parseIndex(path.getFileName().toString()));
+            }
+        }
+        return latest;
+    }
+
+    private static long parseIndex(String name) {
+        if (!name.startsWith(FILE_PREFIX) || !name.endsWith(FILE_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * FNV-1a sobre os bytes UTF-8 da chave; para chaves ASCII é calculado
+     * direto dos chars, sem codificar
+     */
+    static int hash(String key) {
+        int h = 0x811C9DC5;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                return hash(key.getBytes(StandardCharsets.UTF_8));
+            }
+            h = (h ^ c) * 0x01000193;
+        }
+        return h;
+    }
+
+    static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ (b & 0xFF)) * 0x01000193;
+        }
+        return h;
+    }
+
+    static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Lê [short tamanho][UTF-8] na posição absoluta; -1 representa null
+     */
+    static String readString(ByteBuffer source, int position) {
+        int length = source.getShort(position);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = source.get(position + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compara a chave gravada com a String sem alocar quando ela é ASCII
+     */
+    private static boolean keyEquals(ByteBuffer source, int position, String key) {
+        int length = source.getShort(position);
+        int chars = key.length();
+        for (int i = 0; i < chars; i++) {
+            char c = key.charAt(i);
+            if (c >= 0x80) {
+                return keyEquals(source, position, key.getBytes(StandardCharsets.UTF_8));
+            }
+            if (i >= length || source.get(position + 2 + i) != (byte) c) {
+                return false;
+            }
+        }
+        return length == chars;
+    }
+
+    private static boolean keyEquals(ByteBuffer source, int position, byte[] key) {
+        if (source.getShort(position) != key.length) {
+            return false;
+        }
+        for (int i = 0; i < key.length; i++) {
+            if (source.get(position + 2 + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean keyEquals(ByteBuffer a, int positionA, ByteBuffer b, int positionB) {
+        int length = a.getShort(positionA);
+        if (b.getShort(positionB) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (a.get(positionA + 2 + i) != b.get(positionB + 2 + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,263 @@
+package br.ufrn.dimap.components.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Grava um ReceiverSnapshot (formato descrito na classe do snapshot)
+ *
+ * As entradas são gravadas em sequência no arquivo temporário; no heap
+ * ficam só hash e offset de cada uma (8 bytes por entrada) até a tabela
+ * ser montada em finish(). Uma chave repetida prevalece pela última
+ * gravação. O arquivo só recebe o nome definitivo (rename atômico) depois
+ * de completo, com CRC.
+ *
+ * Não é thread-safe: um writer por snapshot.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ReceiverSnapshotWriter {
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final Path file;
+    private final Path temporary;
+    private final ReceiverSnapshot parent;
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+    private final int entriesOffset;
+    private int entryCount;
+    private int[] hashes = new int[1024];
+    private int[] offsets = new int[1024];
+    private boolean finished;
+
+    /**
+     * Cria o próximo snapshot do diretório
+     * @param parent snapshot base de um incremental; null para completo
+     * @param versionVector gravado por inteiro (também nos incrementais)
+     */
+    public ReceiverSnapshotWriter(Path directory, String receiverId, ReceiverSnapshot parent,
+                                  Map<String, Long> versionVector) throws IOException {
+        Files.createDirectories(directory);
+        this.file = directory.resolve(ReceiverSnapshot.fileName(ReceiverSnapshot.latestIndex(directory) + 1));
+        this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        this.parent = parent;
+        this.channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+
+        int versionCount = 0;
+        try {
+            buffer.position(ReceiverSnapshot.HEADER_BYTES);
+            putString(receiverId);
+            putString(parent == null ? "" : parent.getFile().getFileName().toString());
+            int versionsOffset = buffer.position();
+            for (Map.Entry<String, Long> version : versionVector.entrySet()) {
+                ensureRoom(2 + 3 * version.getKey().length() + 8);
+                putString(version.getKey());
+                buffer.putLong(version.getValue());
+                versionCount++;
+            }
+            buffer.putInt(ReceiverSnapshot.H_VERSION_COUNT, versionCount);
+            buffer.putLong(ReceiverSnapshot.H_VERSIONS_OFFSET, versionsOffset);
+            flush();
+            this.entriesOffset = (int) channel.position();
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Acrescenta a entrada de um sensor
+     */
+    public void put(String sensorId, double value, String sensorType,
+                    LocalDateTime timestamp, long versionVectorClock) throws IOException {
+        byte[] key = sensorId.getBytes(StandardCharsets.UTF_8);
+        byte[] type = sensorType == null ? null : sensorType.getBytes(StandardCharsets.UTF_8);
+        if (key.length > Short.MAX_VALUE || (type != null && type.length > Short.MAX_VALUE)) {
+            throw new IllegalArgumentException("Chave longa demais para o snapshot: " + sensorId);
+        }
+        int size = 2 + key.length + 2 + (type == null ? 0 : type.length) + 8 + 8 + 4 + 8;
+        ensureRoom(size);
+
+        long offset = channel.position() + buffer.position() - entriesOffset;
+        if (offset > Integer.MAX_VALUE - size) {
+            throw new IOException("Snapshot excede 2 GB: " + file);
+        }
+        if (entryCount == hashes.length) {
+            hashes = Arrays.copyOf(hashes, entryCount * 2);
+            offsets = Arrays.copyOf(offsets, entryCount * 2);
+        }
+        hashes[entryCount] = ReceiverSnapshot.hash(key);
+        offsets[entryCount] = (int) offset;
+        entryCount++;
+
+        buffer.putShort((short) key.length).put(key);
+        if (type == null) {
+            buffer.putShort((short) -1);
+        } else {
+            buffer.putShort((short) type.length).put(type);
+        }
+        buffer.putDouble(value);
+        buffer.putLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(timestamp.getNano());
+        buffer.putLong(versionVectorClock);
+    }
+
+    /**
+     * Monta a tabela, grava cabeçalho e CRC e publica o arquivo
+     * @param logSegment primeiro segmento do WAL não coberto (0 sem WAL)
+     * @param durable fsync antes do rename
+     * @return snapshot mapeado
+     */
+    public ReceiverSnapshot finish(long sequence, long logSegment, long totalMessages, long conflictsResolved,
+                                   boolean durable) throws IOException {
+        try {
+            flush();
+            int entriesEnd = (int) channel.position();
+            MappedByteBuffer entries = channel.map(FileChannel.MapMode.READ_ONLY, 0, entriesEnd);
+
+            // Tabela hash (a última gravação de uma chave prevalece)
+            int slotCount = Integer.highestOneBit(Math.max(2, entryCount * 2 - 1)) << 1;
+            int mask = slotCount - 1;
+            int[] slotHashes = new int[slotCount];
+            int[] slotOffsets = new int[slotCount];
+            Arrays.fill(slotOffsets, ReceiverSnapshot.EMPTY_SLOT);
+            int unique = 0;
+            for (int i = 0; i < entryCount; i++) {
+                int hash = hashes[i];
+                int slot = ReceiverSnapshot.spread(hash) & mask;
+                while (true) {
+                    int existing = slotOffsets[slot];
+                    if (existing == ReceiverSnapshot.EMPTY_SLOT) {
+                        slotHashes[slot] = hash;
+                        slotOffsets[slot] = offsets[i];
+                        unique++;
+                        break;
+                    }
+                    if (slotHashes[slot] == hash && ReceiverSnapshot.keyEquals(
+                            entries, entriesOffset + existing, entries, entriesOffset + offsets[i])) {
+                        slotOffsets[slot] = offsets[i];
+                        break;
+                    }
+                    slot = (slot + 1) & mask;
+                }
+            }
+
+            int totalSensors = unique;
+            if (parent != null) {
+                totalSensors = parent.size();
+                for (int slot = 0; slot < slotCount; slot++) {
+                    int offset = slotOffsets[slot];
+                    if (offset != ReceiverSnapshot.EMPTY_SLOT
+                            && !parent.containsKey(entries, entriesOffset + offset, slotHashes[slot])) {
+                        totalSensors++;
+                    }
+                }
+            }
+
+            for (int slot = 0; slot < slotCount; slot++) {
+                ensureRoom(ReceiverSnapshot.SLOT_BYTES);
+                buffer.putInt(slotHashes[slot]).putInt(slotOffsets[slot]);
+            }
+            flush();
+            long end = channel.position();
+            if (end > Integer.MAX_VALUE - 4) {
+                throw new IOException("Snapshot excede 2 GB: " + file);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(ReceiverSnapshot.HEADER_BYTES);
+            channel.read(header, 0);
+            header.putInt(ReceiverSnapshot.H_MAGIC, ReceiverSnapshot.MAGIC);
+            header.putShort(ReceiverSnapshot.H_VERSION, ReceiverSnapshot.FORMAT_VERSION);
+            header.putShort(ReceiverSnapshot.H_FLAGS, parent == null ? 0 : ReceiverSnapshot.FLAG_INCREMENTAL);
+            header.putLong(ReceiverSnapshot.H_CREATED, System.currentTimeMillis());
+            header.putLong(ReceiverSnapshot.H_SEQUENCE, sequence);
+            header.putLong(ReceiverSnapshot.H_LOG_SEGMENT, logSegment);
+            header.putLong(ReceiverSnapshot.H_TOTAL_MESSAGES, totalMessages);
+            header.putLong(ReceiverSnapshot.H_CONFLICTS, conflictsResolved);
+            header.putInt(ReceiverSnapshot.H_ENTRY_COUNT, unique);
+            header.putInt(ReceiverSnapshot.H_TOTAL_SENSORS, totalSensors);
+            header.putInt(ReceiverSnapshot.H_SLOT_COUNT, slotCount);
+            header.putLong(ReceiverSnapshot.H_ENTRIES_OFFSET, entriesOffset);
+            header.putLong(ReceiverSnapshot.H_SLOTS_OFFSET, entriesEnd);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+
+            CRC32C crc = new CRC32C();
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, end));
+            ByteBuffer trailer = ByteBuffer.allocate(4).putInt(0, (int) crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer, end + trailer.position());
+            }
+
+            if (durable) {
+                channel.force(true);
+            }
+            channel.close();
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+            return ReceiverSnapshot.open(file, false);
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Descarta o arquivo temporário
+     */
+    public void abort() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        try {
+            channel.close();
+            Files.deleteIfExists(temporary);
+        } catch (IOException ignored) {
+            // Melhor esforço: o .tmp não é listado como snapshot
+        }
+    }
+
+    public Path getFile() { return file; }
+    public int getEntryCount() { return entryCount; }
+
+    private void putString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+            if (buffer.remaining() < bytes) {
+                buffer = ByteBuffer.allocate(Math.max(bytes, buffer.capacity() * 2));
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,186 @@
+package br.ufrn.dimap.components.storage;
+
+import br.ufrn.dimap.core.IoTConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Histórico de leituras por sensor de um Data Receiver
+ *
+ * Cada sensor tem uma série append-only em blocos colunares (long[] de
+ * timestamps e double[] de valores, iot.receiver.history.chunk.size
+ * leituras por bloco). Uma leitura ocupa 16 bytes no heap, contra um
+ * SensorDataEntry com LocalDateTime e String por leitura.
+ *
+ * Blocos cheios são selados no formato Gorilla (delta-of-delta nos
+ * timestamps, XOR nos valores) quando iot.receiver.history.compression
+ * é gorilla; só o bloco aberto de cada sensor fica colunar. Varreduras e
+ * cursores decodificam leitura a leitura.
+ *
+ * A retenção (iot.receiver.history.retention.ms) é aplicada por bloco:
+ * no rollover de cada série e em evictExpired(), chamado periodicamente.
+ * Blocos com alguma leitura dentro da janela são mantidos inteiros.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class SensorHistoryStore {
+    private static final Logger logger = LoggerFactory.getLogger(SensorHistoryStore.class);
+
+    private static final int CHUNK_SIZE = IoTConfig.getInt("iot.receiver.history.chunk.size", 512);
+    private static final long RETENTION_MS = IoTConfig.getLong("iot.receiver.history.retention.ms", 3_600_000L);
+    private static final boolean COMPRESSION =
+        "gorilla".equalsIgnoreCase(IoTConfig.getString("iot.receiver.history.compression", "gorilla"));
+
+    private static final ZoneRules ZONE_RULES = ZoneId.systemDefault().getRules();
+
+    private static final ReadingCursor EMPTY_CURSOR = new ReadingCursor() {
+        @Override public boolean next() { return false; }
+        @Override public long timestamp() { throw new IllegalStateException("Cursor vazio"); }
+        @Override public double value() { throw new IllegalStateException("Cursor vazio"); }
+    };
+
+    private final ConcurrentHashMap<String, SensorTimeSeries> series = new ConcurrentHashMap<>();
+    private final int chunkSize;
+    private final long retentionMillis;
+    private final boolean compress;
+
+    public SensorHistoryStore() {
+        this(CHUNK_SIZE, RETENTION_MS, COMPRESSION);
+    }
+
+    /**
+     * @param chunkSize leituras por bloco
+     * @param retentionMillis janela de retenção; 0 ou negativo mantém tudo
+     * @param compress sela blocos cheios no formato Gorilla
+     */
+    public SensorHistoryStore(int chunkSize, long retentionMillis, boolean compress) {
+        this.chunkSize = Math.max(1, chunkSize);
+        this.retentionMillis = retentionMillis;
+        this.compress = compress;
+    }
+
+    /**
+     * Registra uma leitura do sensor
+     */
+    public void append(String sensorId, String sensorType, long timestampMillis, double value) {
+        long cutoff = cutoff();
+        while (true) {
+            SensorTimeSeries sensorSeries = series.get(sensorId);
+            if (sensorSeries == null) {
+                sensorSeries = series.computeIfAbsent(sensorId, id -> new SensorTimeSeries(sensorType, chunkSize, compress));
+            }
+            if (sensorSeries.append(sensorType, timestampMillis, value, cutoff)) {
+                return;
+            }
+            // Série removida por evictExpired entre o get e o append
+            series.remove(sensorId, sensorSeries);
+        }
+    }
+
+    /**
+     * Varre as leituras do sensor com from <= timestamp <= to (epoch millis)
+     * @return número de leituras entregues
+     */
+    public int scan(String sensorId, long fromMillis, long toMillis, ReadingConsumer consumer) {
+        SensorTimeSeries sensorSeries = series.get(sensorId);
+        if (sensorSeries == null) {
+            return 0;
+        }
+        return sensorSeries.scan(Math.max(fromMillis, cutoff()), toMillis, consumer);
+    }
+
+    /**
+     * Cursor sobre as leituras do sensor com from <= timestamp <= to (epoch millis)
+     */
+    public ReadingCursor cursor(String sensorId, long fromMillis, long toMillis) {
+        SensorTimeSeries sensorSeries = series.get(sensorId);
+        if (sensorSeries == null) {
+            return EMPTY_CURSOR;
+        }
+        return sensorSeries.cursor(Math.max(fromMillis, cutoff()), toMillis);
+    }
+
+    /**
+     * Descarta blocos fora da janela de retenção (inclusive de sensores parados)
+     * @return leituras descartadas
+     */
+    public long evictExpired() {
+        if (retentionMillis <= 0) {
+            return 0;
+        }
+        long cutoff = cutoff();
+        long evicted = 0;
+        for (var entry : series.entrySet()) {
+            SensorTimeSeries sensorSeries = entry.getValue();
+            evicted += sensorSeries.evictBefore(cutoff);
+            if (sensorSeries.retireIfEmpty()) {
+                series.remove(entry.getKey(), sensorSeries);
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("🧹 Histórico: {} leituras fora da retenção descartadas", evicted);
+        }
+        return evicted;
+    }
+
+    public void clear() {
+        series.clear();
+    }
+
+    public boolean contains(String sensorId) {
+        return series.containsKey(sensorId);
+    }
+
+    public String getSensorType(String sensorId) {
+        SensorTimeSeries sensorSeries = series.get(sensorId);
+        return sensorSeries != null ? sensorSeries.getSensorType() : null;
+    }
+
+    public int getSensorCount() {
+        return series.size();
+    }
+
+    public long getReadingCount() {
+        long count = 0;
+        for (SensorTimeSeries sensorSeries : series.values()) {
+            count += sensorSeries.getReadingCount();
+        }
+        return count;
+    }
+
+    /**
+     * Estimativa do heap ocupado pelas séries (blocos + entradas do mapa)
+     */
+    public long estimatedBytes() {
+        long bytes = 0;
+        for (var entry : series.entrySet()) {
+            bytes += 32 + 40 + 2L * entry.getKey().length() + entry.getValue().estimatedBytes();
+        }
+        return bytes;
+    }
+
+    public long getRetentionMillis() { return retentionMillis; }
+
+    public String getStats() {
+        return String.format("History - Sensores: %d, Leituras: %d, Heap estimado: %d KB, Retenção: %ds, Compressão: %s",
+                           getSensorCount(), getReadingCount(), estimatedBytes() / 1024, retentionMillis / 1000,
+                           compress ? "gorilla" : "nenhuma");
+    }
+
+    private long cutoff() {
+        return retentionMillis > 0 ? System.currentTimeMillis() - retentionMillis : Long.MIN_VALUE;
+    }
+
+    /**
+     * LocalDateTime (fuso do sistema) para epoch millis sem objetos intermediários
+     */
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toEpochSecond(ZONE_RULES.getOffset(timestamp)) * 1000L + timestamp.getNano() / 1_000_000;
+    }
+}
@@ -0,0 +1,223 @@
+package br.ufrn.dimap.components.storage;
+
+import java.util.Arrays;
+
+/**
+ * Série temporal append-only de um sensor
+ *
+ * Sequência de blocos na ordem de chegada; o último é o bloco colunar
+ * aberto para escrita (head). O head começa pequeno e dobra até o tamanho
+ * configurado, para que sensores com poucas leituras (e o head recém
+ * criado de cada série) não reservem um bloco inteiro. Quando o head
+ * cheio já tem o tamanho final, ele é selado (comprimido em GorillaChunk,
+ * se habilitado), um novo head é criado (rollover) e blocos inteiramente
+ * fora da retenção são descartados. O array de blocos é substituído a
+ * cada mudança (copy-on-write), então varreduras não pegam lock.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class SensorTimeSeries {
+    private static final HistoryChunk[] NO_CHUNKS = new HistoryChunk[0];
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int chunkSize;
+    private final boolean compress;
+    private volatile String sensorType;
+    private volatile HistoryChunk[] chunks = NO_CHUNKS;
+    // Bloco aberto para escrita (último de chunks) ou null; protegido pelo lock da série
+    private TimeSeriesChunk head;
+    // Série vazia removida do store; escritores devem criar outra
+    private boolean retired;
+
+    SensorTimeSeries(String sensorType, int chunkSize, boolean compress) {
+        this.sensorType = sensorType;
+        this.chunkSize = chunkSize;
+        this.compress = compress;
+    }
+
+    /**
+     * Acrescenta uma leitura; no rollover descarta blocos anteriores a cutoff
+     * @return false se a série já foi removida do store
+     */
+    synchronized boolean append(String type, long timestampMillis, double value, long cutoffMillis) {
+        if (retired) {
+            return false;
+        }
+        if (type != null && !type.equals(sensorType)) {
+            sensorType = type;
+        }
+        HistoryChunk[] current = chunks;
+        if (head == null) {
+            head = new TimeSeriesChunk(Math.min(INITIAL_CAPACITY, chunkSize));
+            HistoryChunk[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = head;
+            chunks = next;
+        } else if (head.isFull() && head.capacity() < chunkSize) {
+            head = head.grow(Math.min(head.capacity() * 2, chunkSize));
+            HistoryChunk[] next = current.clone();
+            next[next.length - 1] = head;
+            chunks = next;
+        } else if (head.isFull()) {
+            HistoryChunk[] sealed = current.clone();
+            if (compress) {
+                sealed[sealed.length - 1] = GorillaEncoder.encode(head);
+            }
+            head = new TimeSeriesChunk(Math.min(INITIAL_CAPACITY, chunkSize));
+            HistoryChunk[] retained = retained(sealed, cutoffMillis);
+            HistoryChunk[] next = Arrays.copyOf(retained, retained.length + 1);
+            next[retained.length] = head;
+            chunks = next;
+        }
+        head.append(timestampMillis, value);
+        return true;
+    }
+
+    /**
+     * Leituras com from <= timestamp <= to, na ordem de chegada
+     */
+    int scan(long fromMillis, long toMillis, ReadingConsumer consumer) {
+        int delivered = 0;
+        for (HistoryChunk chunk : chunks) {
+            delivered += chunk.scan(fromMillis, toMillis, consumer);
+        }
+        return delivered;
+    }
+
+    /**
+     * Cursor sobre as leituras com from <= timestamp <= to (snapshot dos blocos atuais)
+     */
+    ReadingCursor cursor(long fromMillis, long toMillis) {
+        return new RangeCursor(chunks, fromMillis, toMillis);
+    }
+
+    /**
+     * Descarta blocos com todas as leituras anteriores a cutoff
+     * @return leituras descartadas
+     */
+    synchronized int evictBefore(long cutoffMillis) {
+        HistoryChunk[] current = chunks;
+        HistoryChunk[] retained = retained(current, cutoffMillis);
+        if (retained.length == current.length) {
+            return 0;
+        }
+        int evicted = 0;
+        int r = 0;
+        for (HistoryChunk chunk : current) {
+            if (r < retained.length && retained[r] == chunk) {
+                r++;
+            } else {
+                evicted += chunk.size();
+            }
+        }
+        if (retained.length == 0 || retained[retained.length - 1] != head) {
+            head = null;
+        }
+        chunks = retained;
+        return evicted;
+    }
+
+    private static HistoryChunk[] retained(HistoryChunk[] current, long cutoffMillis) {
+        int keep = 0;
+        for (HistoryChunk chunk : current) {
+            if (!isExpired(chunk, cutoffMillis)) {
+                keep++;
+            }
+        }
+        if (keep == current.length) {
+            return current;
+        }
+        HistoryChunk[] retained = new HistoryChunk[keep];
+        int i = 0;
+        for (HistoryChunk chunk : current) {
+            if (!isExpired(chunk, cutoffMillis)) {
+                retained[i++] = chunk;
+            }
+        }
+        return retained;
+    }
+
+    private static boolean isExpired(HistoryChunk chunk, long cutoffMillis) {
+        return chunk.size() > 0 && chunk.getMaxTimestamp() < cutoffMillis;
+    }
+
+    /**
+     * Marca a série vazia como removida (depois disso append retorna false)
+     */
+    synchronized boolean retireIfEmpty() {
+        if (chunks.length == 0) {
+            retired = true;
+        }
+        return retired;
+    }
+
+    String getSensorType() { return sensorType; }
+
+    long getReadingCount() {
+        long count = 0;
+        for (HistoryChunk chunk : chunks) {
+            count += chunk.size();
+        }
+        return count;
+    }
+
+    int getChunkCount() { return chunks.length; }
+
+    long estimatedBytes() {
+        HistoryChunk[] current = chunks;
+        long bytes = 40 + 16 + 8L * current.length;
+        for (HistoryChunk chunk : current) {
+            bytes += chunk.estimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Encadeia os cursores dos blocos, filtrando pelo intervalo
+     */
+    private static final class RangeCursor implements ReadingCursor {
+        private final HistoryChunk[] chunks;
+        private final long fromMillis;
+        private final long toMillis;
+        private int chunkIndex = -1;
+        private ReadingCursor current;
+
+        RangeCursor(HistoryChunk[] chunks, long fromMillis, long toMillis) {
+            this.chunks = chunks;
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+        }
+
+        @Override
+        public boolean next() {
+            while (true) {
+                if (current != null) {
+                    while (current.next()) {
+                        long timestamp = current.timestamp();
+                        if (timestamp >= fromMillis && timestamp <= toMillis) {
+                            return true;
+                        }
+                    }
+                    current = null;
+                }
+                if (!advanceChunk()) {
+                    return false;
+                }
+            }
+        }
+
+        private boolean advanceChunk() {
+            while (++chunkIndex < chunks.length) {
+                HistoryChunk chunk = chunks[chunkIndex];
+                if (chunk.size() > 0 && chunk.getMaxTimestamp() >= fromMillis && chunk.getMinTimestamp() <= toMillis) {
+                    current = chunk.cursor();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override public long timestamp() { return current.timestamp(); }
+        @Override public double value() { return current.value(); }
+    }
+}
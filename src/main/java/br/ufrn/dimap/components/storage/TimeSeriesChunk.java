@@ -0,0 +1,117 @@
+package br.ufrn.dimap.components.storage;
+
+/**
+ * Bloco colunar de leituras de um sensor
+ *
+ * Duas colunas primitivas (timestamps e valores) de capacidade fixa, na
+ * ordem de chegada. Um único escritor (sob o lock da série) preenche a
+ * linha e só então publica o novo tamanho pelo campo volatile; leitores
+ * leem o tamanho primeiro e percorrem as colunas sem lock.
+ *
+ * minTimestamp/maxTimestamp permitem pular o bloco inteiro numa
+ * varredura por intervalo (leituras fora de ordem são aceitas, então cada
+ * linha ainda é filtrada).
+ *
+ * Quando cheio, o bloco é substituído por um novo (rollover) e pode ser
+ * comprimido em um GorillaChunk.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class TimeSeriesChunk implements HistoryChunk {
+
+    private final long[] timestamps;
+    private final double[] values;
+    private volatile int size;
+    private long minTimestamp = Long.MAX_VALUE;
+    private long maxTimestamp = Long.MIN_VALUE;
+
+    TimeSeriesChunk(int capacity) {
+        this.timestamps = new long[capacity];
+        this.values = new double[capacity];
+    }
+
+    /**
+     * Cópia com capacidade maior (mesmas leituras); usado só pelo escritor
+     */
+    TimeSeriesChunk grow(int newCapacity) {
+        TimeSeriesChunk grown = new TimeSeriesChunk(newCapacity);
+        int count = size;
+        System.arraycopy(timestamps, 0, grown.timestamps, 0, count);
+        System.arraycopy(values, 0, grown.values, 0, count);
+        grown.minTimestamp = minTimestamp;
+        grown.maxTimestamp = maxTimestamp;
+        grown.size = count;
+        return grown;
+    }
+
+    boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    /**
+     * Acrescenta uma leitura (chamado só pelo escritor da série)
+     */
+    void append(long timestampMillis, double value) {
+        int index = size;
+        timestamps[index] = timestampMillis;
+        values[index] = value;
+        if (timestampMillis < minTimestamp) {
+            minTimestamp = timestampMillis;
+        }
+        if (timestampMillis > maxTimestamp) {
+            maxTimestamp = timestampMillis;
+        }
+        size = index + 1;
+    }
+
+    /**
+     * Entrega as leituras com from <= timestamp <= to
+     * @return número de leituras entregues
+     */
+    @Override
+    public int scan(long fromMillis, long toMillis, ReadingConsumer consumer) {
+        int count = size;
+        if (count == 0 || maxTimestamp < fromMillis || minTimestamp > toMillis) {
+            return 0;
+        }
+        int delivered = 0;
+        for (int i = 0; i < count; i++) {
+            long timestamp = timestamps[i];
+            if (timestamp >= fromMillis && timestamp <= toMillis) {
+                consumer.accept(timestamp, values[i]);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    @Override
+    public ReadingCursor cursor() {
+        int count = size;
+        return new ReadingCursor() {
+            private int index = -1;
+
+            @Override
+            public boolean next() {
+                return ++index < count;
+            }
+
+            @Override public long timestamp() { return timestamps[index]; }
+            @Override public double value() { return values[index]; }
+        };
+    }
+
+    @Override public int size() { return size; }
+    int capacity() { return timestamps.length; }
+    @Override public long getMinTimestamp() { return minTimestamp; }
+    @Override public long getMaxTimestamp() { return maxTimestamp; }
+
+    /**
+     * Bytes ocupados no heap: as duas colunas e o cabeçalho do objeto
+     */
+    @Override
+    public long estimatedBytes() {
+        return 2L * (16 + 8L * timestamps.length) + 40;
+    }
+}
@@ -0,0 +1,659 @@
+package br.ufrn.dimap.components.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead log em segmentos append-only (FileChannel)
+ *
+ * Registro: [int tamanho][int CRC32C do payload][payload]. Os registros são
+ * enquadrados em um buffer de escrita e gravados no segmento corrente
+ * (wal-00000000000000000001.log, ...); ao passar de segmentBytes o segmento
+ * é sincronizado, fechado e o próximo é aberto.
+ *
+ * Políticas de sincronização (fdatasync via FileChannel.force(false)):
+ * - ALWAYS: append só retorna após o fsync do próprio registro; appends
+ *   concorrentes gravam enquanto outro thread sincroniza, e o próximo
+ *   fsync cobre todos (group commit natural)
+ * - GROUP: fsync a cada syncRecords registros ou a cada syncIntervalMs,
+ *   o que vier primeiro; uma queda da máquina perde no máximo essa janela
+ * - NONE: grava no page cache a cada syncIntervalMs, sem fsync; sobrevive
+ *   à queda do processo, não à do sistema operacional
+ *
+ * O fsync é feito fora do lock de escrita: appends não esperam o disco
+ * (exceto em ALWAYS, pelo próprio registro). Cada registro recebe um
+ * número de sequência; um fsync torna durável tudo o que já foi gravado
+ * no canal, e quem chega ao syncLock com a sequência já coberta não
+ * sincroniza de novo.
+ *
+ * Recuperação: open() reexecuta todos os registros válidos, em ordem, no
+ * handler (a partir de um segmento, quando um snapshot cobre os anteriores). A leitura para no primeiro registro truncado ou com CRC
+ * inválido; o segmento é truncado ali e segmentos posteriores são
+ * renomeados para *.discarded (não são mais reexecutados).
+ *
+ * Checkpoint: checkpoint() fecha o segmento corrente e abre um novo; quem
+ * grava no início dele um registro que substitui todo o estado anterior
+ * (com os arquivos em checkpointDirectory) pode então apagar os segmentos
+ * antigos com deleteSegmentsBefore().
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class WriteAheadLog implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final int INITIAL_BUFFER_BYTES = 64 * 1024;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+
+    /**
+     * Política de fsync
+     */
+    public enum SyncPolicy {
+        ALWAYS, GROUP, NONE;
+
+        public static SyncPolicy parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                logger.warn("⚠️ Política de fsync do WAL desconhecida: {} (usando GROUP)", value);
+                return GROUP;
+            }
+        }
+    }
+
+    /**
+     * Serializa um registro diretamente no buffer de escrita
+     */
+    @FunctionalInterface
+    public interface RecordEncoder<T> {
+        void encode(T value, ByteBuffer out);
+    }
+
+    /**
+     * Recebe cada payload válido durante a recuperação (buffer só leitura,
+     * válido apenas durante a chamada)
+     */
+    @FunctionalInterface
+    public interface RecordHandler {
+        void onRecord(ByteBuffer payload);
+    }
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final SyncPolicy policy;
+    private final long syncIntervalMillis;
+    private final int syncRecords;
+
+    // Escrita: enquadramento, buffer e troca de segmento
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // fsync e fechamento de segmento (adquirido depois de writeLock, nunca antes)
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private FileChannel channel;
+    private long segmentIndex;
+    private long segmentPosition;
+    private int unsyncedRecords;
+    // Sequência do último registro enquadrado (writeLock), gravado no canal e durável (syncLock)
+    private long appendedSeq;
+    private volatile long flushedSeq;
+    private long durableSeq;
+    private boolean closed = true;
+    // Registros válidos do último segmento reexecutado
+    private long lastReplayCount;
+
+    private ScheduledExecutorService syncTimer;
+
+    // Estatísticas
+    private final AtomicLong recordsAppended = new AtomicLong();
+    private final AtomicLong bytesAppended = new AtomicLong();
+    private final AtomicLong syncCount = new AtomicLong();
+    private final AtomicLong syncNanos = new AtomicLong();
+
+    /**
+     * @param directory diretório dos segmentos (criado se não existir)
+     * @param segmentBytes tamanho a partir do qual o segmento é trocado
+     * @param policy política de fsync
+     * @param syncIntervalMillis janela de sincronização (GROUP e NONE)
+     * @param syncRecords registros por fsync (GROUP)
+     */
+    public WriteAheadLog(Path directory, long segmentBytes, SyncPolicy policy,
+                         long syncIntervalMillis, int syncRecords) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(HEADER_BYTES + 1, segmentBytes);
+        this.policy = policy;
+        this.syncIntervalMillis = Math.max(1, syncIntervalMillis);
+        this.syncRecords = Math.max(1, syncRecords);
+    }
+
+    /**
+     * Reexecuta os registros existentes e abre o log para escrita
+     * @param replayHandler recebe cada registro válido; null para não reexecutar
+     * @return número de registros reexecutados
+     */
+    public long open(RecordHandler replayHandler) throws IOException {
+        return open(replayHandler, 0);
+    }
+
+    /**
+     * Reexecuta os registros a partir de um segmento e abre o log para
+     * escrita; segmentos anteriores são ignorados e os próximos registros
+     * nunca vão para um segmento anterior a fromSegment
+     * @param replayHandler recebe cada registro válido; null para não reexecutar
+     * @param fromSegment primeiro segmento a reexecutar (0 = todos)
+     * @return número de registros reexecutados
+     */
+    public long open(RecordHandler replayHandler, long fromSegment) throws IOException {
+        writeLock.lock();
+        try {
+            if (!closed) {
+                throw new IllegalStateException("WAL já aberto: " + directory);
+            }
+            Files.createDirectories(directory);
+            List<Long> segments = listSegments();
+            int first = 0;
+            while (first < segments.size() && segments.get(first) < fromSegment) {
+                first++;
+            }
+            segments = segments.subList(first, segments.size());
+            long replayed = 0;
+            long validBytes = 0;
+            for (int i = 0; i < segments.size(); i++) {
+                Path segment = segmentPath(segments.get(i));
+                validBytes = replaySegment(segment, replayHandler);
+                replayed += lastReplayCount;
+                if (validBytes < Files.size(segment)) {
+                    logger.warn("⚠️ WAL {}: registro inválido em {} (offset {}), truncando",
+                               directory, segment.getFileName(), validBytes);
+                    try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                        ch.truncate(validBytes);
+                        ch.force(true);
+                    }
+                    discardAfter(segments, i);
+                    segments = segments.subList(0, i + 1);
+                    break;
+                }
+            }
+
+            if (segments.isEmpty()) {
+                segmentIndex = Math.max(1, fromSegment);
+                segmentPosition = 0;
+            } else {
+                segmentIndex = segments.get(segments.size() - 1);
+                segmentPosition = validBytes;
+            }
+            channel = openSegment(segmentIndex);
+            channel.position(segmentPosition);
+            buffer.clear();
+            unsyncedRecords = 0;
+            closed = false;
+            if (segmentPosition >= segmentBytes) {
+                rollSegment();
+            }
+
+            if (policy != SyncPolicy.ALWAYS) {
+                syncTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "WAL-Sync-" + directory.getFileName());
+                    t.setDaemon(true);
+                    return t;
+                });
+                syncTimer.scheduleWithFixedDelay(this::periodicSync,
+                    syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+
+            logger.info("📜 WAL aberto em {}: {} registros reexecutados, segmento {} ({} bytes), fsync {}",
+                       directory, replayed, segmentIndex, segmentPosition, policy);
+            return replayed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Acrescenta um registro ao log
+     *
+     * Em ALWAYS retorna após o fsync; nas demais políticas o registro fica
+     * durável na próxima sincronização.
+     */
+    public <T> void append(RecordEncoder<T> encoder, T value) throws IOException {
+        FileChannel toSync = null;
+        long syncTo = 0;
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("WAL fechado: " + directory);
+            }
+            int length = frame(encoder, value);
+            segmentPosition += HEADER_BYTES + length;
+            long seq = ++appendedSeq;
+            recordsAppended.incrementAndGet();
+            bytesAppended.addAndGet(HEADER_BYTES + length);
+
+            if (segmentPosition >= segmentBytes) {
+                rollSegment();
+            } else if (policy == SyncPolicy.ALWAYS
+                    || (policy == SyncPolicy.GROUP && ++unsyncedRecords >= syncRecords)) {
+                flushBuffer();
+                unsyncedRecords = 0;
+                toSync = channel;
+                syncTo = seq;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (toSync != null) {
+            force(toSync, syncTo);
+        }
+    }
+
+    /**
+     * Grava o buffer e sincroniza o segmento corrente
+     */
+    public void sync() throws IOException {
+        FileChannel toSync;
+        long syncTo;
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            flushBuffer();
+            unsyncedRecords = 0;
+            toSync = channel;
+            syncTo = appendedSeq;
+        } finally {
+            writeLock.unlock();
+        }
+        force(toSync, syncTo);
+    }
+
+    /**
+     * Sincroniza e troca de segmento: os próximos registros começam num
+     * segmento novo (o corrente é reaproveitado se ainda estiver vazio)
+     * @return índice do segmento que recebe os próximos registros
+     */
+    public long checkpoint() throws IOException {
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IOException("WAL fechado: " + directory);
+            }
+            if (segmentPosition > 0) {
+                rollSegment();
+            }
+            return segmentIndex;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Diretório para os arquivos referenciados por registros do segmento
+     * (apagado junto com ele)
+     */
+    public Path checkpointDirectory(long segment) {
+        return directory.resolve(String.format("%s%020d", CHECKPOINT_PREFIX, segment));
+    }
+
+    /**
+     * Apaga os segmentos (e diretórios de checkpoint) anteriores ao
+     * indicado; o segmento corrente nunca é apagado
+     * @return segmentos apagados
+     */
+    public int deleteSegmentsBefore(long segment) throws IOException {
+        long limit;
+        writeLock.lock();
+        try {
+            limit = closed ? segment : Math.min(segment, segmentIndex);
+        } finally {
+            writeLock.unlock();
+        }
+        int deleted = 0;
+        for (long index : listSegments()) {
+            if (index >= limit) {
+                break;
+            }
+            Files.deleteIfExists(segmentPath(index));
+            deleted++;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, CHECKPOINT_PREFIX + "*")) {
+            for (Path path : stream) {
+                long index = parseIndex(path.getFileName().toString(), CHECKPOINT_PREFIX, "");
+                if (index > 0 && index < limit) {
+                    deleteRecursively(path);
+                }
+            }
+        }
+        if (deleted > 0) {
+            logger.info("📜 WAL {}: {} segmentos anteriores a {} apagados", directory, deleted, limit);
+        }
+        return deleted;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService timer;
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            timer = syncTimer;
+            syncTimer = null;
+            flushBuffer();
+            syncLock.lock();
+            try {
+                channel.force(false);
+                channel.close();
+            } finally {
+                syncLock.unlock();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+        logger.info("📜 WAL fechado em {}: {}", directory, getStats());
+    }
+
+    public Path getDirectory() { return directory; }
+    public SyncPolicy getPolicy() { return policy; }
+    public long getRecordsAppended() { return recordsAppended.get(); }
+    public long getBytesAppended() { return bytesAppended.get(); }
+    public long getSyncCount() { return syncCount.get(); }
+
+    public String getStats() {
+        long syncs = syncCount.get();
+        return String.format("registros=%d, bytes=%d, fsyncs=%d, fsync médio=%.1fµs, segmento=%d",
+                             recordsAppended.get(), bytesAppended.get(), syncs,
+                             syncs == 0 ? 0.0 : syncNanos.get() / 1000.0 / syncs, segmentIndex);
+    }
+
+    // ---------------------------------------------------------------- escrita
+
+    /**
+     * Enquadra o registro no buffer (sob writeLock)
+     * @return tamanho do payload
+     */
+    private <T> int frame(RecordEncoder<T> encoder, T value) throws IOException {
+        while (true) {
+            if (buffer.remaining() < HEADER_BYTES) {
+                flushBuffer();
+            }
+            int start = buffer.position();
+            buffer.position(start + HEADER_BYTES);
+            try {
+                encoder.encode(value, buffer);
+            } catch (BufferOverflowException e) {
+                buffer.position(start);
+                if (start > 0) {
+                    flushBuffer();
+                } else if (buffer.capacity() < HEADER_BYTES + MAX_RECORD_BYTES) {
+                    buffer = ByteBuffer.allocate(Math.min(HEADER_BYTES + MAX_RECORD_BYTES, buffer.capacity() * 2));
+                } else {
+                    throw new IOException("Registro do WAL excede " + MAX_RECORD_BYTES + " bytes");
+                }
+                continue;
+            } catch (RuntimeException e) {
+                buffer.position(start);
+                throw e;
+            }
+            int length = buffer.position() - start - HEADER_BYTES;
+            if (length == 0) {
+                buffer.position(start);
+                throw new IllegalArgumentException("Registro do WAL vazio");
+            }
+            crc.reset();
+            crc.update(buffer.array(), buffer.arrayOffset() + start + HEADER_BYTES, length);
+            buffer.putInt(start, length);
+            buffer.putInt(start + 4, (int) crc.getValue());
+            return length;
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        flushedSeq = appendedSeq;
+    }
+
+    /**
+     * Sincroniza, fecha o segmento corrente e abre o próximo (sob writeLock)
+     */
+    private void rollSegment() throws IOException {
+        flushBuffer();
+        syncLock.lock();
+        try {
+            long start = System.nanoTime();
+            channel.force(false);
+            recordSync(start);
+            durableSeq = flushedSeq;
+            channel.close();
+        } finally {
+            syncLock.unlock();
+        }
+        segmentIndex++;
+        segmentPosition = 0;
+        unsyncedRecords = 0;
+        channel = openSegment(segmentIndex);
+        logger.debug("📜 WAL {}: novo segmento {}", directory, segmentIndex);
+    }
+
+    /**
+     * fsync fora do writeLock até pelo menos syncTo; um segmento já fechado
+     * foi sincronizado no rollover
+     */
+    private void force(FileChannel target, long syncTo) throws IOException {
+        syncLock.lock();
+        try {
+            if (syncTo > durableSeq && target.isOpen()) {
+                // Enquanto o syncLock é mantido o segmento não troca: tudo o
+                // que foi gravado até aqui está neste canal
+                long upTo = flushedSeq;
+                long start = System.nanoTime();
+                target.force(false);
+                recordSync(start);
+                durableSeq = upTo;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void periodicSync() {
+        FileChannel toSync = null;
+        long syncTo = 0;
+        writeLock.lock();
+        try {
+            if (closed || (buffer.position() == 0 && unsyncedRecords == 0)) {
+                return;
+            }
+            flushBuffer();
+            if (policy == SyncPolicy.GROUP) {
+                unsyncedRecords = 0;
+                toSync = channel;
+                syncTo = appendedSeq;
+            }
+        } catch (IOException e) {
+            logger.error("❌ WAL {}: falha ao gravar segmento: {}", directory, e.getMessage());
+            return;
+        } finally {
+            writeLock.unlock();
+        }
+        if (toSync != null) {
+            try {
+                force(toSync, syncTo);
+            } catch (IOException e) {
+                logger.error("❌ WAL {}: falha no fsync: {}", directory, e.getMessage());
+            }
+        }
+    }
+
+    private void recordSync(long startNanos) {
+        syncCount.incrementAndGet();
+        syncNanos.addAndGet(System.nanoTime() - startNanos);
+    }
+
+    // ------------------------------------------------------------ recuperação
+
+    /**
+     * Reexecuta um segmento
+     * @return bytes válidos (offset do primeiro registro truncado ou corrompido)
+     */
+    private long replaySegment(Path segment, RecordHandler handler) throws IOException {
+        lastReplayCount = 0;
+        ByteBuffer read = ByteBuffer.allocate(HEADER_BYTES + MAX_RECORD_BYTES);
+        read.flip();
+        long valid = 0;
+        try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.READ)) {
+            boolean eof = false;
+            while (true) {
+                if (read.remaining() < HEADER_BYTES && !eof) {
+                    eof = fill(ch, read);
+                }
+                if (read.remaining() < HEADER_BYTES) {
+                    return valid;
+                }
+                int length = read.getInt(read.position());
+                int expectedCrc = read.getInt(read.position() + 4);
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    return valid;
+                }
+                if (read.remaining() < HEADER_BYTES + length && !eof) {
+                    eof = fill(ch, read);
+                }
+                if (read.remaining() < HEADER_BYTES + length) {
+                    return valid;
+                }
+                int payloadStart = read.position() + HEADER_BYTES;
+                crc.reset();
+                crc.update(read.array(), read.arrayOffset() + payloadStart, length);
+                if ((int) crc.getValue() != expectedCrc) {
+                    return valid;
+                }
+                if (handler != null) {
+                    ByteBuffer payload = read.duplicate();
+                    payload.position(payloadStart).limit(payloadStart + length);
+                    try {
+                        handler.onRecord(payload.asReadOnlyBuffer());
+                    } catch (RuntimeException e) {
+                        logger.warn("⚠️ WAL {}: registro ignorado em {} (offset {}): {}",
+                                   directory, segment.getFileName(), valid, e.getMessage());
+                    }
+                }
+                read.position(payloadStart + length);
+                valid += HEADER_BYTES + length;
+                lastReplayCount++;
+            }
+        }
+    }
+
+    /**
+     * Compacta o buffer e lê mais dados do segmento
+     * @return true ao atingir o fim do arquivo
+     */
+    private static boolean fill(FileChannel ch, ByteBuffer read) throws IOException {
+        read.compact();
+        try {
+            while (read.hasRemaining()) {
+                if (ch.read(read) < 0) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            read.flip();
+        }
+    }
+
+    private void discardAfter(List<Long> segments, int index) throws IOException {
+        for (int i = index + 1; i < segments.size(); i++) {
+            Path segment = segmentPath(segments.get(i));
+            Path discarded = segment.resolveSibling(segment.getFileName() + ".discarded");
+            Files.move(segment, discarded, StandardCopyOption.REPLACE_EXISTING);
+            logger.warn("⚠️ WAL {}: segmento {} descartado após registro inválido", directory, discarded.getFileName());
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                long index = parseIndex(name, SEGMENT_PREFIX, SEGMENT_SUFFIX);
+                if (index > 0) {
+                    segments.add(index);
+                } else {
+                    logger.warn("⚠️ WAL {}: arquivo ignorado: {}", directory, name);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Índice no nome prefixo + número + sufixo; 0 se o nome não segue o padrão
+     */
+    private static long parseIndex(String name, String prefix, String suffix) {
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return 0;
+        }
+    }
+
+    private void deleteRecursively(Path path) {
+        try (var paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.delete(p);
+                } catch (IOException e) {
+                    logger.warn("⚠️ WAL {}: não foi possível apagar {}: {}", directory, p, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            logger.warn("⚠️ WAL {}: não foi possível apagar {}: {}", directory, path, e.getMessage());
+        }
+    }
+
+    private FileChannel openSegment(long index) throws IOException {
+        return FileChannel.open(segmentPath(index),
+                                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+}
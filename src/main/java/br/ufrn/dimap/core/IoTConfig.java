@@ -0,0 +1,92 @@
+package br.ufrn.dimap.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Acesso centralizado às configurações do sistema IoT
+ *
+ * Ordem de precedência:
+ * 1. System property (-Diot.udp.port=9090)
+ * 2. application.properties no classpath
+ * 3. Valor padrão informado pelo chamador
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class IoTConfig {
+    private static final Logger logger = LoggerFactory.getLogger(IoTConfig.class);
+
+    private static final Properties properties = loadProperties();
+
+    private IoTConfig() {
+        // Utility class
+    }
+
+    private static Properties loadProperties() {
+        Properties props = new Properties();
+        try (InputStream input = IoTConfig.class.getClassLoader()
+                .getResourceAsStream("application.properties")) {
+            if (input != null) {
+                props.load(input);
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Erro ao ler application.properties: {}", e.getMessage());
+        }
+        return props;
+    }
+
+    /**
+     * Obtém configuração textual
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            value = properties.getProperty(key);
+        }
+        return (value == null || value.trim().isEmpty()) ? defaultValue : value.trim();
+    }
+
+    /**
+     * Obtém configuração inteira (valor inválido usa o padrão)
+     */
+    public static int getInt(String key, int defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            logger.warn("⚠️ Valor inválido para {}: '{}', usando {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtém configuração long (valor inválido usa o padrão)
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = getString(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            logger.warn("⚠️ Valor inválido para {}: '{}', usando {}", key, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Obtém configuração booleana
+     */
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = getString(key, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
@@ -0,0 +1,135 @@
+package br.ufrn.dimap.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fábrica central de executores para strategies e DataReceiver
+ *
+ * Modo selecionado por iot.executor.mode:
+ * - platform (padrão): pool fixo de threads de plataforma nomeadas
+ * - virtual: uma virtual thread por tarefa (Java 21+)
+ *
+ * O build continua em Java 11, então a API de virtual threads é acessada
+ * por reflexão. Em JVMs sem suporte o modo virtual cai para o pool fixo
+ * com um aviso no log.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class IoTExecutors {
+    private static final Logger logger = LoggerFactory.getLogger(IoTExecutors.class);
+
+    public enum Mode { PLATFORM, VIRTUAL }
+
+    private static final Mode MODE = parseMode(IoTConfig.getString("iot.executor.mode", "platform"));
+
+    // Thread.ofVirtual() / Thread.Builder.name(String, long) / factory() / Executors.newThreadPerTaskExecutor
+    private static final Method OF_VIRTUAL;
+    private static final Method BUILDER_NAME;
+    private static final Method BUILDER_FACTORY;
+    private static final Method NEW_THREAD_PER_TASK;
+
+    static {
+        Method ofVirtual = null;
+        Method builderName = null;
+        Method builderFactory = null;
+        Method newThreadPerTask = null;
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            builderName = builderClass.getMethod("name", String.class, long.class);
+            builderFactory = builderClass.getMethod("factory");
+            newThreadPerTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+
+            // Java 19/20 sem --enable-preview lança UnsupportedOperationException aqui
+            ofVirtual.invoke(null);
+        } catch (Exception | LinkageError e) {
+            ofVirtual = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        BUILDER_NAME = builderName;
+        BUILDER_FACTORY = builderFactory;
+        NEW_THREAD_PER_TASK = newThreadPerTask;
+    }
+
+    private IoTExecutors() {
+        // Utility class
+    }
+
+    private static Mode parseMode(String value) {
+        return "virtual".equalsIgnoreCase(value) ? Mode.VIRTUAL : Mode.PLATFORM;
+    }
+
+    /**
+     * Modo configurado (independente de suporte da JVM)
+     */
+    public static Mode getConfiguredMode() {
+        return MODE;
+    }
+
+    public static boolean isVirtualThreadsSupported() {
+        return OF_VIRTUAL != null;
+    }
+
+    /**
+     * Modo virtual configurado e disponível nesta JVM
+     */
+    public static boolean isVirtualMode() {
+        return MODE == Mode.VIRTUAL && isVirtualThreadsSupported();
+    }
+
+    /**
+     * Executor de trabalho conforme o modo configurado
+     *
+     * @param name prefixo dos nomes das threads
+     * @param platformThreads tamanho do pool no modo platform
+     */
+    public static ExecutorService newWorkerPool(String name, int platformThreads) {
+        if (MODE == Mode.VIRTUAL) {
+            if (isVirtualThreadsSupported()) {
+                logger.info("🧵 Executor {} usando virtual threads", name);
+                return newVirtualThreadPerTaskExecutor(name);
+            }
+            logger.warn("⚠️ Virtual threads não disponíveis nesta JVM ({}) - {} usando pool fixo de {} threads",
+                       System.getProperty("java.version"), name, platformThreads);
+        }
+        return newFixedPool(name, platformThreads);
+    }
+
+    /**
+     * Pool fixo de threads de plataforma daemon e nomeadas
+     */
+    public static ExecutorService newFixedPool(String name, int threads) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, name + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Uma virtual thread por tarefa, independente do modo configurado
+     * @throws UnsupportedOperationException se a JVM não suportar virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(String name) {
+        if (!isVirtualThreadsSupported()) {
+            throw new UnsupportedOperationException("Virtual threads requerem Java 21+");
+        }
+        try {
+            Object builder = OF_VIRTUAL.invoke(null);
+            builder = BUILDER_NAME.invoke(builder, name + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+            return (ExecutorService) NEW_THREAD_PER_TASK.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Falha ao criar executor de virtual threads", e);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import java.io.Serializable;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
 import java.util.Objects;
 
 /**
@@ -63,6 +64,40 @@ public class IoTMessage implements Serializable {
         this.versionVector = new ConcurrentHashMap<>(versionVector);
     }
     
+    /**
+     * Construtor usado pelo IoTMessageCodec: preserva id e timestamp originais
+     * e assume a posse do version vector decodificado (sem cópia)
+     */
+    IoTMessage(String messageId, String sensorId, MessageType type, String content,
+               LocalDateTime timestamp, double sensorValue, String sensorType,
+               ConcurrentHashMap<String, Integer> versionVector) {
+        this.messageId = messageId;
+        this.sensorId = sensorId;
+        this.type = type;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.sensorValue = sensorValue;
+        this.sensorType = sensorType;
+        this.versionVector = versionVector;
+    }
+    
+    /**
+     * Construtor para adaptadores (ex.: leitura gRPC) que expõem conteúdo e
+     * version vector a partir de outra representação, sobrescrevendo
+     * getContent() e versionVectorView(); messageId nulo gera um novo id
+     */
+    protected IoTMessage(String messageId, String sensorId, MessageType type,
+                         double sensorValue, String sensorType) {
+        this.messageId = messageId != null ? messageId : generateMessageId();
+        this.sensorId = sensorId;
+        this.type = type;
+        this.content = null;
+        this.timestamp = LocalDateTime.now();
+        this.sensorValue = sensorValue;
+        this.sensorType = sensorType;
+        this.versionVector = null;
+    }
+    
     // Construtor para mensagens simples
     public IoTMessage(String sensorId, MessageType type, String content) {
         this(sensorId, type, content, 0.0, "GENERIC", new ConcurrentHashMap<>());
@@ -82,11 +117,25 @@ public class IoTMessage implements Serializable {
     public String getContent() { return content; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public ConcurrentHashMap<String, Integer> getVersionVector() { 
-        return new ConcurrentHashMap<>(versionVector); 
+        ConcurrentHashMap<String, Integer> copy = new ConcurrentHashMap<>();
+        forEachVersion((nodeId, version) -> copy.put(nodeId, (int) version));
+        return copy;
     }
     public double getSensorValue() { return sensorValue; }
     public String getSensorType() { return sensorType; }
     
+    // Acesso sem cópia ao version vector (somente leitura)
+    protected Map<String, ? extends Number> versionVectorView() { return versionVector; }
+    
+    /**
+     * Percorre o version vector sem copiá-lo (merge em gateway e receivers)
+     */
+    public void forEachVersion(ObjLongConsumer<String> action) {
+        for (Map.Entry<String, ? extends Number> entry : versionVectorView().entrySet()) {
+            action.accept(entry.getKey(), entry.getValue().longValue());
+        }
+    }
+    
     // Métodos para Version Vector
     public void incrementVersionVector(String nodeId) {
         versionVector.compute(nodeId, (k, v) -> (v == null) ? 1 : v + 1);
@@ -103,11 +152,14 @@ public class IoTMessage implements Serializable {
     }
     
     public boolean happensBefore(IoTMessage other) {
+        Map<String, ? extends Number> thisVector = this.versionVectorView();
+        Map<String, ? extends Number> otherVector = other.versionVectorView();
         boolean hasSmaller = false;
-        for (Map.Entry<String, Integer> entry : this.versionVector.entrySet()) {
+        for (Map.Entry<String, ? extends Number> entry : thisVector.entrySet()) {
             String nodeId = entry.getKey();
-            int thisValue = entry.getValue();
-            int otherValue = other.versionVector.getOrDefault(nodeId, 0);
+            long thisValue = entry.getValue().longValue();
+            Number otherEntry = otherVector.get(nodeId);
+            long otherValue = otherEntry != null ? otherEntry.longValue() : 0;
             
             if (thisValue > otherValue) {
                 return false;
@@ -117,9 +169,9 @@ public class IoTMessage implements Serializable {
             }
         }
         
-        for (Map.Entry<String, Integer> entry : other.versionVector.entrySet()) {
+        for (Map.Entry<String, ? extends Number> entry : otherVector.entrySet()) {
             String nodeId = entry.getKey();
-            if (!this.versionVector.containsKey(nodeId) && entry.getValue() > 0) {
+            if (!thisVector.containsKey(nodeId) && entry.getValue().longValue() > 0) {
                 hasSmaller = true;
             }
         }
@@ -143,6 +195,6 @@ public class IoTMessage implements Serializable {
     @Override
     public String toString() {
         return String.format("IoTMessage{id='%s', sensor='%s', type=%s, value=%.2f, vv=%s}", 
-                           messageId, sensorId, type, sensorValue, versionVector);
+                           messageId, sensorId, type, sensorValue, versionVectorView());
     }
 }
\ No newline at end of file
@@ -0,0 +1,263 @@
+package br.ufrn.dimap.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Codec binário compacto e versionado para IoTMessage
+ *
+ * Substitui a serialização Java (descritores de classe, ConcurrentHashMap,
+ * LocalDateTime) por um layout fixo escrito direto em ByteBuffer:
+ *
+ * <pre>
+ * offset  tamanho  campo
+ * 0       1        MAGIC (0xB7)
+ * 1       1        versão do formato
+ * 2       1        código do MessageType
+ * 3       1        código do tipo de sensor (0 = string explícita)
+ * 4       8        timestamp (epoch millis)
+ * 12      8        valor do sensor (double)
+ * 20      var      messageId, sensorId, [sensorType], content  (varint len+1, UTF-8; 0 = null)
+ * ...     var      version vector: varint n, n x (string nó, varint contador)
+ * </pre>
+ *
+ * O primeiro byte permite negociar o formato no receptor: MAGIC indica
+ * este codec, 0xAC indica serialização Java (fallback) e qualquer outro
+ * valor é tratado como texto (JMeter).
+ *
+ * O timestamp é truncado para milissegundos no fuso padrão da JVM.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class IoTMessageCodec {
+
+    public static final byte MAGIC = (byte) 0xB7;
+    public static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = 20;
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // Tipos de sensor internados: código = índice + 1 (compartilhado com IoTTextRecord)
+    static final String[] SENSOR_TYPES = {
+        "TEMPERATURE", "HUMIDITY", "PRESSURE", "LIGHT", "MOTION",
+        "AIR_QUALITY", "SOIL_MOISTURE", "BATTERY",
+        "HEARTBEAT", "ACK", "GENERIC", "UNKNOWN", "CLIENT"
+    };
+
+    // Área de cópia para leitura de strings em buffers diretos
+    private static final ScratchPool<byte[]> SCRATCH = ScratchPool.of(() -> new byte[256]);
+
+    private IoTMessageCodec() {
+        // Utility class
+    }
+
+    /**
+     * Verifica se o buffer começa com o MAGIC do codec (sem consumir)
+     */
+    public static boolean isBinary(ByteBuffer data) {
+        return data.remaining() >= HEADER_SIZE && data.get(data.position()) == MAGIC;
+    }
+
+    /**
+     * Escreve a mensagem a partir da posição atual do buffer
+     * @throws java.nio.BufferOverflowException se o buffer não comportar a mensagem
+     */
+    public static void encode(IoTMessage message, ByteBuffer out) {
+        int sensorTypeCode = sensorTypeCode(message.getSensorType());
+
+        out.put(MAGIC);
+        out.put(VERSION);
+        out.put((byte) message.getType().getCode());
+        out.put((byte) sensorTypeCode);
+        out.putLong(message.getTimestamp().atZone(ZONE).toInstant().toEpochMilli());
+        out.putDouble(message.getSensorValue());
+
+        writeString(out, message.getMessageId());
+        writeString(out, message.getSensorId());
+        if (sensorTypeCode == 0) {
+            writeString(out, message.getSensorType());
+        }
+        writeString(out, message.getContent());
+
+        Map<String, ? extends Number> versionVector = message.versionVectorView();
+        writeVarInt(out, versionVector.size());
+        for (Map.Entry<String, ? extends Number> entry : versionVector.entrySet()) {
+            writeString(out, entry.getKey());
+            writeVarInt(out, zigZag(entry.getValue().intValue()));
+        }
+    }
+
+    /**
+     * Codifica em um array exato (conveniência para DatagramPacket)
+     */
+    public static byte[] encodeToArray(IoTMessage message, ByteBuffer scratch) {
+        scratch.clear();
+        encode(message, scratch);
+        scratch.flip();
+        byte[] data = new byte[scratch.remaining()];
+        scratch.get(data);
+        return data;
+    }
+
+    /**
+     * Lê uma mensagem a partir da posição atual do buffer
+     * @throws IllegalArgumentException se o conteúdo não for uma mensagem válida
+     */
+    public static IoTMessage decode(ByteBuffer in) {
+        try {
+            if (in.get() != MAGIC) {
+                throw new IllegalArgumentException("MAGIC inválido");
+            }
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Versão de codec não suportada: " + version);
+            }
+
+            IoTMessage.MessageType type = IoTMessage.MessageType.fromCode(in.get());
+            int sensorTypeCode = in.get() & 0xFF;
+            long epochMillis = in.getLong();
+            double sensorValue = in.getDouble();
+
+            String messageId = readString(in);
+            String sensorId = readString(in);
+            String sensorType = sensorTypeCode == 0 ? readString(in) : sensorTypeName(sensorTypeCode);
+            String content = readString(in);
+
+            // Cada entrada ocupa ao menos 2 bytes (string vazia + contador)
+            int vectorSize = readVarInt(in);
+            if (vectorSize < 0 || vectorSize > in.remaining() / 2) {
+                throw new IllegalArgumentException("Tamanho de version vector inválido: " + vectorSize);
+            }
+            ConcurrentHashMap<String, Integer> versionVector = new ConcurrentHashMap<>();
+            for (int i = 0; i < vectorSize; i++) {
+                String nodeId = readString(in);
+                if (nodeId == null) {
+                    throw new IllegalArgumentException("Nó nulo no version vector");
+                }
+                versionVector.put(nodeId, unZigZag(readVarInt(in)));
+            }
+
+            LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZONE);
+            return new IoTMessage(messageId, sensorId, type, content, timestamp,
+                                  sensorValue, sensorType, versionVector);
+
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("Mensagem binária truncada", e);
+        }
+    }
+
+    // === Tipos de sensor internados ===
+
+    private static int sensorTypeCode(String sensorType) {
+        if (sensorType == null) {
+            return 0;
+        }
+        for (int i = 0; i < SENSOR_TYPES.length; i++) {
+            if (SENSOR_TYPES[i].equals(sensorType)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static String sensorTypeName(int code) {
+        if (code < 1 || code > SENSOR_TYPES.length) {
+            throw new IllegalArgumentException("Código de tipo de sensor inválido: " + code);
+        }
+        return SENSOR_TYPES[code - 1];
+    }
+
+    // === Primitivas ===
+
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+
+        int length = value.length();
+        boolean ascii = true;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                ascii = false;
+                break;
+            }
+        }
+
+        if (ascii) {
+            // Caminho rápido: um byte por caractere, sem array intermediário
+            writeVarInt(out, length + 1);
+            for (int i = 0; i < length; i++) {
+                out.put((byte) value.charAt(i));
+            }
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length + 1);
+            out.put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        int encodedLength = readVarInt(in);
+        if (encodedLength == 0) {
+            return null;
+        }
+
+        int length = encodedLength - 1;
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("String excede o tamanho da mensagem");
+        }
+
+        if (in.hasArray()) {
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+
+        byte[] scratch = SCRATCH.acquire();
+        try {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+                SCRATCH.replace(scratch);
+            }
+            in.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        } finally {
+            SCRATCH.release(scratch);
+        }
+    }
+
+    private static void writeVarInt(ByteBuffer out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("VarInt malformado");
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
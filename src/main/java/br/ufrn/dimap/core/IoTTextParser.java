@@ -0,0 +1,185 @@
+package br.ufrn.dimap.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizador em nível de byte para o protocolo texto delimitado por '|'
+ *
+ * Formato: SENSOR_DATA|id|tipo|local|timestamp|valor (e variações de
+ * UDP, TCP e DataReceiver). Substitui split("\\|") + trim() +
+ * Double.parseDouble: os campos são delimitados direto sobre os bytes e
+ * gravados em um IoTTextRecord reutilizável.
+ *
+ * Cada caminho de ingestão mantém seus próprios índices de campo; este
+ * parser apenas tokeniza e converte números.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class IoTTextParser {
+
+    private static final byte SEPARATOR = '|';
+
+    // Potências de 10 exatas em double (10^22 é a maior representável sem erro)
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20,
+        1e21, 1e22
+    };
+
+    // Mantissas acima de 2^53 perdem precisão: vão para o caminho lento
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private IoTTextParser() {
+        // Utility class
+    }
+
+    /**
+     * Tokeniza os bytes restantes do buffer (sem consumir)
+     * @return false se a linha estiver vazia ou só com espaços
+     */
+    public static boolean parse(ByteBuffer buffer, IoTTextRecord record) {
+        int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            return parse(buffer.array(), buffer.arrayOffset() + buffer.position(), length, record);
+        }
+
+        // Buffer direto: cópia única para a área do registro
+        byte[] target = ensureScratch(record, length);
+        int position = buffer.position();
+        buffer.get(target, 0, length);
+        buffer.position(position);
+        return tokenize(target, 0, length, record);
+    }
+
+    /**
+     * Tokeniza um trecho de array; o registro referencia o array até o próximo parse
+     */
+    public static boolean parse(byte[] data, int offset, int length, IoTTextRecord record) {
+        return tokenize(data, offset, offset + length, record);
+    }
+
+    /**
+     * Tokeniza uma linha já lida como texto (ex.: BufferedReader no TCP)
+     */
+    public static boolean parse(CharSequence line, IoTTextRecord record) {
+        int length = line.length();
+        byte[] target = ensureScratch(record, length);
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                // Raro: conteúdo não ASCII, codifica a linha inteira
+                byte[] encoded = line.toString().getBytes(StandardCharsets.UTF_8);
+                return tokenize(encoded, 0, encoded.length, record);
+            }
+            target[i] = (byte) c;
+        }
+        return tokenize(target, 0, length, record);
+    }
+
+    private static byte[] ensureScratch(IoTTextRecord record, int length) {
+        if (record.scratch.length < length) {
+            record.scratch = new byte[Math.max(length, record.scratch.length * 2)];
+        }
+        return record.scratch;
+    }
+
+    private static boolean tokenize(byte[] data, int from, int to, IoTTextRecord record) {
+        record.data = data;
+        record.fieldCount = 0;
+
+        int fieldStart = from;
+        int count = 0;
+        int lastNonEmpty = 0;
+        boolean blank = true;
+        for (int i = from; i <= to && count < IoTTextRecord.MAX_FIELDS; i++) {
+            if (i == to || data[i] == SEPARATOR) {
+                int start = fieldStart;
+                int end = i;
+                while (start < end && isWhitespace(data[start])) {
+                    start++;
+                }
+                while (end > start && isWhitespace(data[end - 1])) {
+                    end--;
+                }
+                record.starts[count] = start;
+                record.ends[count] = end;
+                count++;
+                // Vazio conforme split(): sem nenhum byte, antes do trim
+                if (i > fieldStart) {
+                    lastNonEmpty = count;
+                }
+                if (end > start || i < to) {
+                    blank = false;
+                }
+                fieldStart = i + 1;
+            }
+        }
+
+        // Como em split(): campos vazios no final são descartados ("|||" fica sem campos)
+        record.fieldCount = lastNonEmpty;
+        return !blank;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Converte [start, end) em double
+     *
+     * Caminho rápido para decimais simples ([+-]dígitos[.dígitos]) com
+     * mantissa exata e até 22 casas: uma única divisão de doubles exatos,
+     * portanto o resultado é idêntico ao de Double.parseDouble.
+     * Expoentes, NaN, mantissas longas etc. usam Double.parseDouble.
+     *
+     * @throws NumberFormatException se o trecho não for numérico
+     */
+    public static double parseDouble(byte[] data, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        boolean anyDigit = false;
+
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                if (digits >= 18) {
+                    return slowParseDouble(data, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                anyDigit = true;
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return slowParseDouble(data, start, end);
+            }
+        }
+
+        if (!anyDigit || mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return slowParseDouble(data, start, end);
+        }
+
+        double value = fractionDigits == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    private static double slowParseDouble(byte[] data, int start, int end) {
+        return Double.parseDouble(new String(data, start, end - start, StandardCharsets.ISO_8859_1));
+    }
+}
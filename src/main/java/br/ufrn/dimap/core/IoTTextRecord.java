@@ -0,0 +1,141 @@
+package br.ufrn.dimap.core;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Registro mutável e reutilizável de uma linha do protocolo texto (JMeter)
+ *
+ * Guarda apenas os limites de cada campo sobre os bytes da linha; Strings
+ * só são criadas quando o chamador pede explicitamente (fieldString).
+ * Preenchido por IoTTextParser e pensado para uso via ScratchPool no
+ * caminho de ingestão: instâncias reaproveitadas, sem alocação por mensagem.
+ *
+ * Semântica compatível com String.split("\\|") + trim() por campo:
+ * campos vazios no final não são contados; um campo final só com
+ * espaços conta e é lido como vazio.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class IoTTextRecord {
+
+    public static final int MAX_FIELDS = 16;
+
+    // Bytes da linha: área própria ou array de quem chamou
+    byte[] data;
+    byte[] scratch = new byte[256];
+
+    final int[] starts = new int[MAX_FIELDS];
+    final int[] ends = new int[MAX_FIELDS];
+    int fieldCount;
+
+    /**
+     * Quantidade de campos (equivalente a parts.length)
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public boolean isBlank() {
+        return fieldCount == 0;
+    }
+
+    public boolean hasField(int index) {
+        return index < fieldCount;
+    }
+
+    public int fieldLength(int index) {
+        checkIndex(index);
+        return ends[index] - starts[index];
+    }
+
+    /**
+     * Compara o campo com uma constante ASCII sem criar String
+     */
+    public boolean fieldEquals(int index, String ascii) {
+        checkIndex(index);
+        int start = starts[index];
+        int length = ends[index] - start;
+        if (length != ascii.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[start + i] != (byte) ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Verifica se o campo contém a constante ASCII (em maiúsculas quando ignoreCase)
+     */
+    public boolean fieldContains(int index, String ascii, boolean ignoreCase) {
+        checkIndex(index);
+        int start = starts[index];
+        int last = ends[index] - ascii.length();
+        for (int i = start; i <= last; i++) {
+            int j = 0;
+            while (j < ascii.length()) {
+                int b = data[i + j];
+                if (ignoreCase && b >= 'a' && b <= 'z') {
+                    b -= 'a' - 'A';
+                }
+                if (b != ascii.charAt(j)) {
+                    break;
+                }
+                j++;
+            }
+            if (j == ascii.length()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Materializa o campo como String (UTF-8)
+     */
+    public String fieldString(int index) {
+        checkIndex(index);
+        return new String(data, starts[index], ends[index] - starts[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tipo de sensor: devolve a constante internada quando conhecida
+     */
+    public String fieldSensorType(int index) {
+        for (String known : IoTMessageCodec.SENSOR_TYPES) {
+            if (fieldEquals(index, known)) {
+                return known;
+            }
+        }
+        return fieldString(index);
+    }
+
+    /**
+     * Converte o campo para double sem String intermediária no caso comum
+     * @throws NumberFormatException se o campo não for numérico
+     */
+    public double fieldDouble(int index) {
+        checkIndex(index);
+        return IoTTextParser.parseDouble(data, starts[index], ends[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Campo " + index + " inexistente (total: " + fieldCount + ")");
+        }
+    }
+
+    /**
+     * Reconstrói a linha (apenas para logs)
+     */
+    @Override
+    public String toString() {
+        if (fieldCount == 0) {
+            return "";
+        }
+        return new String(data, starts[0], ends[fieldCount - 1] - starts[0], StandardCharsets.UTF_8);
+    }
+}
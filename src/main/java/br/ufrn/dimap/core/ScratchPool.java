@@ -0,0 +1,80 @@
+package br.ufrn.dimap.core;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Objetos de rascunho reaproveitados no caminho de ingestão (buffers de
+ * codificação, registros de texto, resolvedores)
+ *
+ * No modo platform cada thread do pool fixo guarda a sua instância
+ * (ThreadLocal): sem disputa e sem alocação por mensagem. No modo virtual
+ * cada tarefa roda numa virtual thread nova, então um ThreadLocal alocaria
+ * a cada tarefa; ali as instâncias ficam numa fila limitada
+ * (iot.executor.scratch.pool.size) compartilhada: acquire retira uma ou
+ * cria, release devolve se houver espaço. A memória retida fica limitada
+ * ao tamanho da fila, e nenhuma das operações bloqueia.
+ *
+ * Uso: acquire/release em try/finally; o objeto não pode escapar depois
+ * do release.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ScratchPool<T> {
+
+    private static final int POOL_SIZE = Math.max(1, IoTConfig.getInt("iot.executor.scratch.pool.size",
+        Runtime.getRuntime().availableProcessors() * 4));
+
+    private final Supplier<T> factory;
+    private final ThreadLocal<T> perThread;
+    private final ArrayBlockingQueue<T> free;
+
+    private ScratchPool(Supplier<T> factory) {
+        this.factory = factory;
+        if (IoTExecutors.isVirtualMode()) {
+            this.perThread = null;
+            this.free = new ArrayBlockingQueue<>(POOL_SIZE);
+        } else {
+            this.perThread = ThreadLocal.withInitial(factory);
+            this.free = null;
+        }
+    }
+
+    /**
+     * Pool conforme o modo de executor configurado
+     */
+    public static <T> ScratchPool<T> of(Supplier<T> factory) {
+        return new ScratchPool<>(factory);
+    }
+
+    /**
+     * Instância livre (da thread, da fila ou nova)
+     */
+    public T acquire() {
+        if (perThread != null) {
+            return perThread.get();
+        }
+        T item = free.poll();
+        return item != null ? item : factory.get();
+    }
+
+    /**
+     * Devolve a instância; no modo virtual é descartada se a fila estiver cheia
+     */
+    public void release(T item) {
+        if (free != null && item != null) {
+            free.offer(item);
+        }
+    }
+
+    /**
+     * Substitui a instância da thread (ex.: área que cresceu); no modo
+     * virtual a nova é a que deve ser devolvida em release
+     */
+    public void replace(T item) {
+        if (perThread != null) {
+            perThread.set(item);
+        }
+    }
+}
@@ -107,7 +107,7 @@ public class FaultToleranceManager {
      * Health check de todos os Data Receivers
      */
     private void performHealthCheck() {
-        var receivers = gateway.getDataReceivers();
+        var receivers = gateway.getReceiverRegistry().current().getReceivers();
         
         for (DataReceiver receiver : receivers) {
             if (!receiver.isRunning()) {
@@ -249,7 +249,7 @@ public class FaultToleranceManager {
      * Monitora balanceamento de carga
      */
     private void monitorLoadBalancing() {
-        var receivers = gateway.getDataReceivers();
+        var receivers = gateway.getReceiverRegistry().current().getReceivers();
         
         if (receivers.isEmpty()) {
             logger.error("❌ [LOAD_BALANCE] Nenhum Data Receiver disponível!");
@@ -260,15 +260,29 @@ public class FaultToleranceManager {
         long totalMessages = receivers.stream().mapToLong(DataReceiver::getTotalMessages).sum();
         double avgMessages = totalMessages / (double) receivers.size();
         
-        logger.debug("📊 [LOAD_BALANCE] Média de mensagens por receiver: {:.1f}", avgMessages);
+        logger.debug("📊 [LOAD_BALANCE] Média de mensagens por receiver: {}", String.format("%.1f", avgMessages));
         
         // Detectar desbalanceamento significativo
         boolean isUnbalanced = receivers.stream()
             .anyMatch(r -> Math.abs(r.getTotalMessages() - avgMessages) > avgMessages * 0.5);
         
         if (isUnbalanced) {
-            logger.warn("⚠️ [LOAD_BALANCE] Desbalanceamento detectado - Rebalanceando...");
-            // Estratégia Round Robin já cuida do rebalanceamento automático
+            StringBuilder load = new StringBuilder();
+            for (DataReceiver receiver : receivers) {
+                load.append(String.format(" %s[msgs=%d, em processamento=%d, latência=%dµs]",
+                    receiver.getReceiverId(), receiver.getTotalMessages(),
+                    receiver.getInFlight(), receiver.getLatencyEwmaNanos() / 1000));
+            }
+            
+            // A seleção por carga (LEAST_LOADED) já desvia mensagens de receptores lentos;
+            // com as demais estratégias o desbalanceamento só é reportado
+            String strategy = gateway.getReceiverStrategy().getStrategyName();
+            if ("LEAST_LOADED".equals(strategy)) {
+                logger.info("📊 [LOAD_BALANCE] Desbalanceamento compensado pela seleção por carga:{}", load);
+            } else {
+                logger.warn("⚠️ [LOAD_BALANCE] Desbalanceamento detectado com estratégia {} (use iot.receiver.strategy=p2c para seleção por carga):{}",
+                           strategy, load);
+            }
         }
     }
     
@@ -310,7 +324,7 @@ public class FaultToleranceManager {
      * Simula falha de receiver (para testes de apresentação)
      */
     public void simulateReceiverFailure() {
-        var receivers = gateway.getDataReceivers();
+        var receivers = gateway.getReceiverRegistry().current().getReceivers();
         if (!receivers.isEmpty()) {
             DataReceiver receiver = receivers.get(0);
             logger.info("🧪 [TEST] Simulando falha do receiver {}", receiver.getReceiverId());
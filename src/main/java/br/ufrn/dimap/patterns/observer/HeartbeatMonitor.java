@@ -44,6 +44,23 @@ public class HeartbeatMonitor implements IoTObserver {
         logger.info("💓 HeartbeatMonitor criado (timeout: {}s)", timeoutSeconds);
     }
     
+    /**
+     * Assina no barramento só os eventos de sensor (sem eventos por mensagem)
+     */
+    public void subscribeTo(IoTEventBus eventBus) {
+        eventBus.subscribe(IoTEvent.SensorRegistered.class, event -> {
+            totalEvents.incrementAndGet();
+            handleSensorRegistered(event.getSensor());
+        });
+        eventBus.subscribe(IoTEvent.SensorUnregistered.class, event -> {
+            totalEvents.incrementAndGet();
+            handleSensorUnregistered(event.getSensor());
+        });
+    }
+    
+    /**
+     * Compatibilidade com o registro como IoTObserver (gateway.addObserver)
+     */
     @Override
     public void onIoTEvent(String eventType, Object eventData) {
         totalEvents.incrementAndGet();
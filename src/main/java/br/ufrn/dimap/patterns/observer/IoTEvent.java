@@ -0,0 +1,163 @@
+package br.ufrn.dimap.patterns.observer;
+
+import br.ufrn.dimap.components.DataReceiver;
+import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.core.IoTSensor;
+
+import java.util.List;
+
+/**
+ * Observer Pattern - Eventos tipados do Gateway
+ *
+ * Hierarquia fechada: o construtor é package-private e todos os tipos
+ * concretos são classes finais declaradas aqui. Listeners assinam pelo
+ * tipo exato (IoTEventBus.subscribe) e recebem o evento já tipado.
+ *
+ * getType()/getPayload() mantêm o formato de IoTObserver
+ * (onIoTEvent(String, Object)) para os observers existentes.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public abstract class IoTEvent {
+
+    IoTEvent() {
+        // Hierarquia fechada
+    }
+
+    /**
+     * Nome do evento no formato de IoTObserver (ex.: SENSOR_REGISTERED)
+     */
+    public abstract String getType();
+
+    /**
+     * Dados do evento no formato de IoTObserver
+     */
+    public abstract Object getPayload();
+
+    @Override
+    public String toString() {
+        return getType() + "{" + getPayload() + "}";
+    }
+
+    /**
+     * Sensor registrado no gateway
+     */
+    public static final class SensorRegistered extends IoTEvent {
+        public static final String TYPE = "SENSOR_REGISTERED";
+        private final IoTSensor sensor;
+
+        public SensorRegistered(IoTSensor sensor) { this.sensor = sensor; }
+
+        public IoTSensor getSensor() { return sensor; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return sensor; }
+    }
+
+    /**
+     * Sensor removido do gateway
+     */
+    public static final class SensorUnregistered extends IoTEvent {
+        public static final String TYPE = "SENSOR_UNREGISTERED";
+        private final IoTSensor sensor;
+
+        public SensorUnregistered(IoTSensor sensor) { this.sensor = sensor; }
+
+        public IoTSensor getSensor() { return sensor; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return sensor; }
+    }
+
+    /**
+     * Data Receiver registrado no gateway
+     */
+    public static final class ReceiverRegistered extends IoTEvent {
+        public static final String TYPE = "RECEIVER_REGISTERED";
+        private final DataReceiver receiver;
+
+        public ReceiverRegistered(DataReceiver receiver) { this.receiver = receiver; }
+
+        public DataReceiver getReceiver() { return receiver; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return receiver; }
+    }
+
+    /**
+     * Data Receiver removido do gateway
+     */
+    public static final class ReceiverUnregistered extends IoTEvent {
+        public static final String TYPE = "RECEIVER_UNREGISTERED";
+        private final DataReceiver receiver;
+
+        public ReceiverUnregistered(DataReceiver receiver) { this.receiver = receiver; }
+
+        public DataReceiver getReceiver() { return receiver; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return receiver; }
+    }
+
+    /**
+     * Falha de Data Receiver detectada no roteamento
+     */
+    public static final class ReceiverFailure extends IoTEvent {
+        public static final String TYPE = "RECEIVER_FAILURE";
+        private final DataReceiver receiver;
+
+        public ReceiverFailure(DataReceiver receiver) { this.receiver = receiver; }
+
+        public DataReceiver getReceiver() { return receiver; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return receiver; }
+    }
+
+    /**
+     * Mensagem roteada (ou não) para um Data Receiver
+     *
+     * Evento de alta frequência: a instância é reutilizada pelo
+     * IoTEventBus (uma por thread publicadora) e só é válida durante
+     * onEvent. Listeners não devem guardar a referência; copie os
+     * campos necessários.
+     */
+    public static final class MessageRouted extends IoTEvent {
+        public static final String TYPE = "MESSAGE_ROUTED";
+        private IoTMessage message;
+        private boolean routed;
+        private boolean inUse;
+
+        MessageRouted() {
+        }
+
+        MessageRouted set(IoTMessage message, boolean routed) {
+            this.message = message;
+            this.routed = routed;
+            this.inUse = true;
+            return this;
+        }
+
+        void clear() {
+            this.message = null;
+            this.inUse = false;
+        }
+
+        boolean isInUse() { return inUse; }
+
+        public IoTMessage getMessage() { return message; }
+        public boolean isRouted() { return routed; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return message; }
+    }
+
+    /**
+     * Lote de mensagens roteado para um Data Receiver
+     */
+    public static final class BatchRouted extends IoTEvent {
+        public static final String TYPE = "BATCH_ROUTED";
+        private final List<IoTMessage> messages;
+
+        public BatchRouted(List<IoTMessage> messages) { this.messages = messages; }
+
+        public List<IoTMessage> getMessages() { return messages; }
+        @Override public String getType() { return TYPE; }
+        @Override public Object getPayload() { return messages; }
+    }
+}
@@ -0,0 +1,135 @@
+package br.ufrn.dimap.patterns.observer;
+
+import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.core.ScratchPool;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Observer Pattern - Barramento de eventos tipados do Gateway
+ *
+ * Dois tipos de inscrição:
+ * - listeners tipados (subscribe): recebem só o tipo assinado, na thread
+ *   que publicou, sem cast nem switch por nome de evento
+ * - IoTObserver (addObserver): recebem todos os eventos no formato
+ *   onIoTEvent(String, Object), de forma assíncrona via ObserverDispatcher
+ *
+ * Eventos sem nenhum inscrito não custam nada além de uma consulta ao
+ * mapa. MESSAGE_ROUTED, publicado a cada mensagem, não aloca: reaproveita
+ * instâncias de IoTEvent.MessageRouted via ScratchPool (uma por thread no
+ * modo platform) e os IoTObserver recebem só a mensagem.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class IoTEventBus {
+    private static final Logger logger = LoggerFactory.getLogger(IoTEventBus.class);
+
+    private final ConcurrentHashMap<Class<? extends IoTEvent>, CopyOnWriteArrayList<IoTEventListener<?>>> listeners =
+        new ConcurrentHashMap<>();
+    private final ObserverDispatcher observers;
+    private final ScratchPool<IoTEvent.MessageRouted> routedEvents =
+        ScratchPool.of(IoTEvent.MessageRouted::new);
+
+    public IoTEventBus() {
+        this(new ObserverDispatcher());
+    }
+
+    public IoTEventBus(ObserverDispatcher observers) {
+        this.observers = observers;
+    }
+
+    /**
+     * Assina um tipo de evento
+     */
+    public <E extends IoTEvent> void subscribe(Class<E> type, IoTEventListener<? super E> listener) {
+        listeners.computeIfAbsent(type, t -> new CopyOnWriteArrayList<>()).add(listener);
+        logger.debug("👁️ Listener inscrito em {}", type.getSimpleName());
+    }
+
+    /**
+     * Remove o listener de todos os tipos assinados
+     */
+    public boolean unsubscribe(IoTEventListener<?> listener) {
+        boolean removed = false;
+        for (CopyOnWriteArrayList<IoTEventListener<?>> typeListeners : listeners.values()) {
+            removed |= typeListeners.remove(listener);
+        }
+        return removed;
+    }
+
+    public void addObserver(IoTObserver observer) {
+        observers.add(observer);
+    }
+
+    public boolean removeObserver(IoTObserver observer) {
+        return observers.remove(observer);
+    }
+
+    /**
+     * Publica o evento para os listeners do seu tipo e para os IoTObserver
+     */
+    public void publish(IoTEvent event) {
+        List<IoTEventListener<?>> typeListeners = listeners.get(event.getClass());
+        if (typeListeners != null) {
+            deliver(typeListeners, event);
+        }
+        if (observers.size() > 0) {
+            observers.publish(event.getType(), event.getPayload());
+        }
+    }
+
+    /**
+     * Publica MESSAGE_ROUTED reaproveitando o evento da thread corrente
+     */
+    public void publishMessageRouted(IoTMessage message, boolean routed) {
+        if (observers.size() > 0) {
+            observers.publish(IoTEvent.MessageRouted.TYPE, message);
+        }
+        List<IoTEventListener<?>> typeListeners = listeners.get(IoTEvent.MessageRouted.class);
+        if (typeListeners == null || typeListeners.isEmpty()) {
+            return;
+        }
+        IoTEvent.MessageRouted event = routedEvents.acquire();
+        if (event.isInUse()) {
+            event = new IoTEvent.MessageRouted(); // publicação reentrante a partir de um listener
+        }
+        try {
+            deliver(typeListeners, event.set(message, routed));
+        } finally {
+            event.clear();
+            routedEvents.release(event);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void deliver(List<IoTEventListener<?>> typeListeners, IoTEvent event) {
+        for (IoTEventListener<?> listener : typeListeners) {
+            try {
+                ((IoTEventListener<IoTEvent>) listener).onEvent(event);
+            } catch (Exception e) {
+                logger.error("❌ Erro ao notificar listener de {}: {}", event.getType(), e.getMessage());
+            }
+        }
+    }
+
+    public int getObserverCount() {
+        return observers.size();
+    }
+
+    public int getListenerCount() {
+        int count = 0;
+        for (CopyOnWriteArrayList<IoTEventListener<?>> typeListeners : listeners.values()) {
+            count += typeListeners.size();
+        }
+        return count;
+    }
+
+    public String getStats() {
+        return String.format("Event Bus - Typed listeners: %d, %s", getListenerCount(), observers.getStats());
+    }
+}
@@ -0,0 +1,20 @@
+package br.ufrn.dimap.patterns.observer;
+
+/**
+ * Observer Pattern - Listener de um tipo de evento do Gateway
+ *
+ * Registrado em IoTEventBus.subscribe para um tipo de IoTEvent; só recebe
+ * eventos daquele tipo. Executa na thread que publicou o evento, então
+ * deve ser rápido e não bloquear.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface IoTEventListener<E extends IoTEvent> {
+
+    /**
+     * @param event evento do tipo assinado
+     */
+    void onEvent(E event);
+}
@@ -0,0 +1,240 @@
+package br.ufrn.dimap.patterns.observer;
+
+import br.ufrn.dimap.core.IoTConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Observer Pattern - Despacho assíncrono de eventos IoT
+ *
+ * Cada observer registrado ganha um canal próprio:
+ * - ring buffer limitado (iot.observer.buffer.size, potência de 2) com
+ *   sequência por slot no estilo Disruptor: vários produtores (threads de
+ *   protocolo) reservam slots por CAS, um único consumidor por observer
+ * - uma thread daemon que entrega os eventos em ordem ao observer
+ *
+ * A lista de canais é copy-on-write: publish() não pega lock e só percorre
+ * o snapshot corrente. Observers lentos não atrasam a ingestão; quando o
+ * buffer de um observer enche, a política iot.observer.policy decide:
+ * - drop (padrão): o evento é descartado para aquele observer e contado
+ * - block: o produtor espera espaço no buffer
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ObserverDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(ObserverDispatcher.class);
+
+    public enum OverflowPolicy { DROP, BLOCK }
+
+    private static final int BUFFER_SIZE = IoTConfig.getInt("iot.observer.buffer.size", 1024);
+    private static final OverflowPolicy POLICY = "block".equalsIgnoreCase(IoTConfig.getString("iot.observer.policy", "drop"))
+        ? OverflowPolicy.BLOCK : OverflowPolicy.DROP;
+
+    // Tempo máximo de espera do consumidor ocioso antes de reverificar o buffer
+    private static final long IDLE_PARK_NANOS = 10_000_000L;
+    // Espera do produtor por espaço no buffer (política block)
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+    // Intervalo mínimo entre avisos de descarte de um mesmo observer
+    private static final long DROP_WARN_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final CopyOnWriteArrayList<Channel> channels = new CopyOnWriteArrayList<>();
+    private final int bufferSize;
+    private final OverflowPolicy policy;
+
+    public ObserverDispatcher() {
+        this(BUFFER_SIZE, POLICY);
+    }
+
+    public ObserverDispatcher(int bufferSize, OverflowPolicy policy) {
+        this.bufferSize = Integer.highestOneBit(Math.max(2, bufferSize - 1) << 1);
+        this.policy = policy;
+    }
+
+    /**
+     * Registra o observer e inicia sua thread de entrega
+     */
+    public void add(IoTObserver observer) {
+        Channel channel = new Channel(observer, bufferSize);
+        channels.add(channel);
+        channel.start();
+        logger.debug("👁️ Canal assíncrono criado para {} (buffer: {}, política: {})",
+                    observer.getObserverName(), bufferSize, policy);
+    }
+
+    /**
+     * Remove o observer; eventos já enfileirados para ele são entregues antes da thread terminar
+     */
+    public boolean remove(IoTObserver observer) {
+        for (Channel channel : channels) {
+            if (channel.observer == observer && channels.remove(channel)) {
+                channel.stop();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Publica o evento para todos os observers sem executar nenhum deles na thread chamadora
+     */
+    public void publish(String eventType, Object eventData) {
+        for (Channel channel : channels) {
+            channel.offer(eventType, eventData, policy);
+        }
+    }
+
+    public int size() {
+        return channels.size();
+    }
+
+    public OverflowPolicy getPolicy() {
+        return policy;
+    }
+
+    public String getStats() {
+        StringBuilder sb = new StringBuilder("Observer Dispatcher - Policy: ").append(policy)
+            .append(", Buffer: ").append(bufferSize);
+        for (Channel channel : channels) {
+            sb.append(String.format(", %s[pending: %d, delivered: %d, dropped: %d, failed: %d]",
+                                  channel.observer.getObserverName(), channel.pending(),
+                                  channel.delivered.get(), channel.dropped.get(), channel.failed.get()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Canal de um observer: ring buffer MPSC + thread consumidora
+     *
+     * Slot i está livre para a posição p quando sequences[i] == p e pronto
+     * para consumo quando sequences[i] == p + 1 (fila limitada de Vyukov).
+     */
+    private static final class Channel implements Runnable {
+        private final IoTObserver observer;
+        private final int mask;
+        private final String[] eventTypes;
+        private final Object[] eventData;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong(0);
+        private volatile long head; // só a thread consumidora escreve
+
+        private final Thread consumer;
+        private volatile boolean running = true;
+        private volatile boolean sleeping;
+
+        private final AtomicLong delivered = new AtomicLong(0);
+        private final AtomicLong dropped = new AtomicLong(0);
+        private final AtomicLong failed = new AtomicLong(0);
+        private final AtomicLong lastDropWarn = new AtomicLong(System.nanoTime() - DROP_WARN_INTERVAL_NANOS);
+
+        Channel(IoTObserver observer, int capacity) {
+            this.observer = observer;
+            this.mask = capacity - 1;
+            this.eventTypes = new String[capacity];
+            this.eventData = new Object[capacity];
+            this.sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+            this.consumer = new Thread(this, "IoT-Observer-" + observer.getObserverName());
+            this.consumer.setDaemon(true);
+        }
+
+        void start() {
+            consumer.start();
+        }
+
+        void stop() {
+            running = false;
+            LockSupport.unpark(consumer);
+        }
+
+        void offer(String type, Object data, OverflowPolicy policy) {
+            while (!tryOffer(type, data)) {
+                if (policy == OverflowPolicy.DROP || !running) {
+                    long count = dropped.incrementAndGet();
+                    long now = System.nanoTime();
+                    long last = lastDropWarn.get();
+                    if (now - last >= DROP_WARN_INTERVAL_NANOS && lastDropWarn.compareAndSet(last, now)) {
+                        logger.warn("⚠️ Observer {} atrasado - {} eventos descartados",
+                                   observer.getObserverName(), count);
+                    }
+                    return;
+                }
+                wake();
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+            }
+            wake();
+        }
+
+        private boolean tryOffer(String type, Object data) {
+            long position = tail.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        eventTypes[index] = type;
+                        eventData[index] = data;
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (difference < 0) {
+                    return false; // cheio
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        private void wake() {
+            if (sleeping) {
+                LockSupport.unpark(consumer);
+            }
+        }
+
+        int pending() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int index = (int) head & mask;
+                if (sequences.get(index) == head + 1) {
+                    String type = eventTypes[index];
+                    Object data = eventData[index];
+                    eventData[index] = null;
+                    sequences.set(index, head + mask + 1);
+                    head++;
+                    deliver(type, data);
+                    continue;
+                }
+                if (!running) {
+                    return; // buffer vazio e canal removido
+                }
+                sleeping = true;
+                if (sequences.get(index) != head + 1) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                sleeping = false;
+            }
+        }
+
+        private void deliver(String type, Object data) {
+            try {
+                observer.onIoTEvent(type, data);
+                delivered.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                logger.error("❌ Erro ao notificar observer {}: {}", observer.getObserverName(), e.getMessage());
+            }
+        }
+    }
+}
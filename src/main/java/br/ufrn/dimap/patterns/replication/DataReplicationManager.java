@@ -1,14 +1,19 @@
 package br.ufrn.dimap.patterns.replication;
 
 import br.ufrn.dimap.components.DataReceiver;
+import br.ufrn.dimap.components.storage.ReceiverSnapshot;
 import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.patterns.strategy.ReceiverMembership;
+import br.ufrn.dimap.patterns.strategy.ReceiverRegistry;
+import br.ufrn.dimap.patterns.strategy.ReceiverStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.io.IOException;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Gerenciador de Replicação de Dados entre Data Receivers
@@ -25,6 +30,11 @@ import java.util.concurrent.atomic.AtomicLong;
  * - Eventual Consistency com conflict resolution
  * - Heartbeat-based failure detection
  * 
+ * Com estratégia que particiona sensores (consistent hash), a sincronização
+ * não copia o estado inteiro: cada par faz merge por sensor (Last Write
+ * Wins) só dos sensores que o destino guarda como dono ou réplica,
+ * incremental pela sequência de escrita da origem.
+ * 
  * DEMONSTRAÇÃO VERSION VECTOR:
  * - Cada operação incrementa version vector
  * - Sincronização usa merge de version vectors
@@ -37,7 +47,12 @@ import java.util.concurrent.atomic.AtomicLong;
 public class DataReplicationManager {
     private static final Logger logger = LoggerFactory.getLogger(DataReplicationManager.class);
     
-    private final List<DataReceiver> dataReceivers;
+    // Registro compartilhado com o Gateway; cada ciclo trabalha sobre um snapshot
+    private final ReceiverRegistry receiverRegistry;
+    // Estratégia ativa do Gateway (pode trocar em execução); null = sem partição
+    private final Supplier<ReceiverStrategy> strategySupplier;
+    // Merge incremental: "origem->destino" -> sequência da origem já copiada
+    private final ConcurrentHashMap<String, Long> mergeWatermarks = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler;
     private final AtomicBoolean active = new AtomicBoolean(false);
     
@@ -51,15 +66,20 @@ public class DataReplicationManager {
     private final AtomicLong conflictsDetected = new AtomicLong(0);
     private final AtomicLong backupsCreated = new AtomicLong(0);
     
-    public DataReplicationManager(List<DataReceiver> dataReceivers) {
-        this.dataReceivers = new CopyOnWriteArrayList<>(dataReceivers);
+    public DataReplicationManager(ReceiverRegistry receiverRegistry) {
+        this(receiverRegistry, () -> null);
+    }
+    
+    public DataReplicationManager(ReceiverRegistry receiverRegistry, Supplier<ReceiverStrategy> strategySupplier) {
+        this.receiverRegistry = receiverRegistry;
+        this.strategySupplier = strategySupplier;
         this.scheduler = Executors.newScheduledThreadPool(4, r -> {
             Thread t = new Thread(r, "DataReplication-" + System.nanoTime());
             t.setDaemon(true);
             return t;
         });
         
-        logger.info("🔄 Data Replication Manager criado para {} receivers", dataReceivers.size());
+        logger.info("🔄 Data Replication Manager criado para {} receivers", receiverRegistry.current().size());
     }
     
     /**
@@ -94,21 +114,33 @@ public class DataReplicationManager {
      * Demonstra Version Vector em ação
      */
     private void performSynchronization() {
-        if (dataReceivers.size() < 2) {
+        ReceiverMembership membership = receiverRegistry.current();
+        if (membership.size() < 2) {
             return; // Precisa de pelo menos 2 receivers para sincronizar
         }
         
-        logger.debug("🔄 Iniciando sincronização entre {} Data Receivers", dataReceivers.size());
+        logger.debug("🔄 Iniciando sincronização entre {} Data Receivers", membership.size());
+        
+        ReceiverStrategy strategy = strategySupplier.get();
+        if (strategy != null && strategy.partitionsSensors()) {
+            try {
+                mergePartitions(membership, strategy);
+                syncOperations.incrementAndGet();
+            } catch (Exception e) {
+                logger.error("❌ Erro durante sincronização: {}", e.getMessage(), e);
+            }
+            return;
+        }
         
         try {
             // Para cada par de receivers, sincronizar estado
-            for (int i = 0; i < dataReceivers.size(); i++) {
-                DataReceiver primary = dataReceivers.get(i);
+            for (int i = 0; i < membership.size(); i++) {
+                DataReceiver primary = membership.receiverAt(i);
                 
                 if (!primary.isRunning()) continue;
                 
-                for (int j = i + 1; j < dataReceivers.size(); j++) {
-                    DataReceiver secondary = dataReceivers.get(j);
+                for (int j = i + 1; j < membership.size(); j++) {
+                    DataReceiver secondary = membership.receiverAt(j);
                     
                     if (!secondary.isRunning()) continue;
                     
@@ -153,13 +185,13 @@ public class DataReplicationManager {
                            primary.getReceiverId(), secondary.getReceiverId());
             }
             
-            // Criar backups antes da sincronização
-            var primaryBackup = primary.createBackup();
-            var secondaryBackup = secondary.createBackup();
+            // Comparar contadores direto (sem copiar o estado dos dois lados)
+            long primaryMessages = primary.getTotalMessages();
+            long secondaryMessages = secondary.getTotalMessages();
             
             // Determinar qual receiver tem dados mais recentes
             DataReceiver source, target;
-            if (primaryBackup.getTotalMessages() >= secondaryBackup.getTotalMessages()) {
+            if (primaryMessages >= secondaryMessages) {
                 source = primary;
                 target = secondary;
             } else {
@@ -168,10 +200,9 @@ public class DataReplicationManager {
             }
             
             // Sincronizar apenas se houver diferença significativa
-            long messageDiff = Math.abs(primaryBackup.getTotalMessages() - secondaryBackup.getTotalMessages());
+            long messageDiff = Math.abs(primaryMessages - secondaryMessages);
             if (messageDiff > 0) {
-                var sourceBackup = source.createBackup();
-                target.restoreFromBackup(sourceBackup);
+                transferState(source, target);
                 
                 logger.info("✅ SYNC REALIZADA: {} → {} (diff: {} mensagens)", 
                            source.getReceiverId(), target.getReceiverId(), messageDiff);
@@ -187,6 +218,80 @@ public class DataReplicationManager {
         }
     }
     
+    /**
+     * Sincronização sob partição: para cada par ordenado, merge incremental
+     * dos sensores que o destino guarda (dono ou réplica)
+     */
+    private void mergePartitions(ReceiverMembership membership, ReceiverStrategy strategy) {
+        for (int i = 0; i < membership.size(); i++) {
+            DataReceiver source = membership.receiverAt(i);
+            if (!source.isRunning()) continue;
+            
+            for (int j = 0; j < membership.size(); j++) {
+                DataReceiver target = membership.receiverAt(j);
+                if (i == j || !target.isRunning()) continue;
+                
+                try {
+                    mergePartition(source, target, membership, strategy);
+                } catch (Exception e) {
+                    logger.error("❌ Erro no merge {} → {}: {}", 
+                                source.getReceiverId(), target.getReceiverId(), e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Merge de source em target dos sensores que target guarda
+     * @return sequência de source coberta
+     */
+    private long mergePartition(DataReceiver source, DataReceiver target,
+                                ReceiverMembership membership, ReceiverStrategy strategy) {
+        String key = source.getReceiverId() + "->" + target.getReceiverId();
+        long since = mergeWatermarks.getOrDefault(key, 0L);
+        long covered = target.mergeFrom(source, since,
+                                        sensorId -> strategy.holdsSensor(sensorId, target, membership));
+        mergeWatermarks.put(key, covered);
+        return covered;
+    }
+    
+    /**
+     * Copia para target o estado que ele deve guardar: merge por sensor sob
+     * partição (desde o início de cada origem), cópia inteira caso contrário
+     * @return mensagens do estado transferido
+     */
+    private long restoreState(DataReceiver source, DataReceiver target) throws IOException {
+        ReceiverStrategy strategy = strategySupplier.get();
+        if (strategy == null || !strategy.partitionsSensors()) {
+            return transferState(source, target);
+        }
+        ReceiverMembership membership = receiverRegistry.current();
+        for (DataReceiver receiver : membership.getReceivers()) {
+            if (receiver == target || !receiver.isRunning()) continue;
+            mergeWatermarks.remove(receiver.getReceiverId() + "->" + target.getReceiverId());
+            mergePartition(receiver, target, membership, strategy);
+        }
+        return target.getTotalMessages();
+    }
+    
+    /**
+     * Copia o estado de source para target
+     *
+     * Com snapshots habilitados, source grava um snapshot (incremental na
+     * maioria das vezes) e target o mapeia; sem snapshots, cópia em memória.
+     * @return mensagens do estado transferido
+     */
+    private long transferState(DataReceiver source, DataReceiver target) throws IOException {
+        if (source.isSnapshotEnabled()) {
+            ReceiverSnapshot snapshot = source.writeSnapshot();
+            target.restoreFromSnapshot(snapshot);
+            return snapshot.getTotalMessages();
+        }
+        DataReceiver.DataReceiverBackup backup = source.createBackup();
+        target.restoreFromBackup(backup);
+        return backup.getTotalMessages();
+    }
+    
     /**
      * Detecta conflitos usando Version Vector
      * DEMONSTRAÇÃO: Como Version Vector detecta ordem causal
@@ -227,23 +332,36 @@ public class DataReplicationManager {
      * IMPLEMENTAÇÃO 3: Sistema de backup automático de dados críticos
      */
     private void performAutomaticBackup() {
-        logger.debug("💾 Iniciando backup automático de {} Data Receivers", dataReceivers.size());
+        ReceiverMembership membership = receiverRegistry.current();
+        logger.debug("💾 Iniciando backup automático de {} Data Receivers", membership.size());
         
-        for (DataReceiver receiver : dataReceivers) {
+        for (DataReceiver receiver : membership.getReceivers()) {
             if (!receiver.isRunning()) continue;
             
             try {
-                var backup = receiver.createBackup();
-                
-                // Simular persistência de backup (em produção seria para disco/rede)
-                logger.info("💾 BACKUP CRIADO: {} - {} sensores, {} mensagens, VV={}", 
-                           backup.getReceiverId(), 
-                           backup.getSensorDatabase().size(),
-                           backup.getTotalMessages(),
-                           backup.getVersionVector());
+                if (receiver.isSnapshotEnabled()) {
+                    // Snapshot em disco (incremental enquanto a cadeia permitir)
+                    ReceiverSnapshot snapshot = receiver.writeSnapshot();
+                    logger.info("💾 BACKUP CRIADO: {} - {}, {} mensagens", 
+                               receiver.getReceiverId(), snapshot, snapshot.getTotalMessages());
+                } else {
+                    // Sem snapshots a durabilidade fica com o WAL; aqui só o resumo do estado
+                    logger.info("💾 BACKUP CRIADO: {} - {} sensores, {} mensagens, VV={}", 
+                               receiver.getReceiverId(), 
+                               receiver.getSensorCount(),
+                               receiver.getTotalMessages(),
+                               receiver.getVersionVector());
+                }
                 
                 backupsCreated.incrementAndGet();
                 
+                if (receiver.getWriteAheadLog() != null) {
+                    logger.debug("📜 WAL {}: {}", receiver.getReceiverId(), receiver.getWriteAheadLog().getStats());
+                }
+                
+                // Manutenção do histórico: retenção também para sensores sem leituras novas
+                receiver.evictExpiredHistory();
+                
             } catch (Exception e) {
                 logger.error("❌ Erro ao criar backup de {}: {}", receiver.getReceiverId(), e.getMessage());
             }
@@ -254,7 +372,7 @@ public class DataReplicationManager {
      * IMPLEMENTAÇÃO 4: Recuperação de dados após falhas
      */
     private void performHealthCheck() {
-        for (DataReceiver receiver : dataReceivers) {
+        for (DataReceiver receiver : receiverRegistry.current().getReceivers()) {
             if (!receiver.isHealthy()) {
                 logger.warn("💔 FALHA DETECTADA: {} não está saudável", receiver.getReceiverId());
                 
@@ -281,34 +399,28 @@ public class DataReplicationManager {
         logger.info("🔄 RECUPERANDO DADOS para {} após falha", recoveredReceiver.getReceiverId());
         
         // Encontrar receiver com dados mais recentes para restauração
-        DataReceiver.DataReceiverBackup bestBackup = null;
+        // (só o escolhido tem o estado copiado)
         DataReceiver sourceReceiver = null;
         long maxMessages = -1;
         
-        for (DataReceiver receiver : dataReceivers) {
+        for (DataReceiver receiver : receiverRegistry.current().getReceivers()) {
             if (!receiver.isRunning() || receiver.equals(recoveredReceiver)) continue;
             
-            try {
-                var backup = receiver.createBackup();
-                if (backup.getTotalMessages() > maxMessages) {
-                    maxMessages = backup.getTotalMessages();
-                    bestBackup = backup;
-                    sourceReceiver = receiver;
-                }
-            } catch (Exception e) {
-                logger.warn("⚠️ Erro ao obter backup de {}: {}", receiver.getReceiverId(), e.getMessage());
+            if (receiver.getTotalMessages() > maxMessages) {
+                maxMessages = receiver.getTotalMessages();
+                sourceReceiver = receiver;
             }
         }
         
         // Restaurar usando melhor backup disponível
-        if (bestBackup != null) {
+        if (sourceReceiver != null) {
             try {
-                recoveredReceiver.restoreFromBackup(bestBackup);
+                long restoredMessages = restoreState(sourceReceiver, recoveredReceiver);
                 logger.info("✅ DADOS RECUPERADOS: {} restaurado com backup de {} ({} mensagens, VV={})", 
                            recoveredReceiver.getReceiverId(), 
                            sourceReceiver.getReceiverId(),
-                           bestBackup.getTotalMessages(),
-                           bestBackup.getVersionVector());
+                           restoredMessages,
+                           recoveredReceiver.getVersionVector());
             } catch (Exception e) {
                 logger.error("❌ Erro na restauração de dados para {}: {}", 
                             recoveredReceiver.getReceiverId(), e.getMessage());
@@ -319,27 +431,22 @@ public class DataReplicationManager {
     }
     
     /**
-     * Adiciona um novo Data Receiver para replicação
+     * Novo Data Receiver registrado (já presente no ReceiverRegistry)
      */
     public void addDataReceiver(DataReceiver receiver) {
-        if (!dataReceivers.contains(receiver)) {
-            dataReceivers.add(receiver);
-            logger.info("➕ Data Receiver {} adicionado ao sistema de replicação", receiver.getReceiverId());
-            
-            // Sincronizar imediatamente com receivers existentes
-            if (receiver.isRunning()) {
-                scheduler.submit(() -> syncNewReceiver(receiver));
-            }
+        logger.info("➕ Data Receiver {} adicionado ao sistema de replicação", receiver.getReceiverId());
+        
+        // Sincronizar imediatamente com receivers existentes
+        if (receiver.isRunning()) {
+            scheduler.submit(() -> syncNewReceiver(receiver));
         }
     }
     
     /**
-     * Remove Data Receiver do sistema de replicação
+     * Data Receiver removido (já fora do ReceiverRegistry)
      */
     public void removeDataReceiver(DataReceiver receiver) {
-        if (dataReceivers.remove(receiver)) {
-            logger.info("➖ Data Receiver {} removido do sistema de replicação", receiver.getReceiverId());
-        }
+        logger.info("➖ Data Receiver {} removido do sistema de replicação", receiver.getReceiverId());
     }
     
     /**
@@ -349,18 +456,17 @@ public class DataReplicationManager {
         logger.info("🔄 Sincronizando novo receiver {} com dados existentes", newReceiver.getReceiverId());
         
         // Encontrar receiver com mais dados para sincronização inicial
-        DataReceiver bestSource = dataReceivers.stream()
+        DataReceiver bestSource = receiverRegistry.current().getReceivers().stream()
             .filter(r -> !r.equals(newReceiver) && r.isRunning())
             .max((r1, r2) -> Long.compare(r1.getTotalMessages(), r2.getTotalMessages()))
             .orElse(null);
         
         if (bestSource != null) {
             try {
-                var backup = bestSource.createBackup();
-                newReceiver.restoreFromBackup(backup);
+                long restoredMessages = restoreState(bestSource, newReceiver);
                 
                 logger.info("✅ SYNC INICIAL: {} sincronizado com {} ({} mensagens)", 
-                           newReceiver.getReceiverId(), bestSource.getReceiverId(), backup.getTotalMessages());
+                           newReceiver.getReceiverId(), bestSource.getReceiverId(), restoredMessages);
             } catch (Exception e) {
                 logger.error("❌ Erro na sincronização inicial de {}: {}", 
                             newReceiver.getReceiverId(), e.getMessage());
@@ -394,7 +500,7 @@ public class DataReplicationManager {
      */
     public String getReplicationStats() {
         return String.format("REPLICATION STATS: Receivers=%d, Syncs=%d, Conflitos=%d, Backups=%d", 
-                           dataReceivers.size(), syncOperations.get(), conflictsDetected.get(), backupsCreated.get());
+                           receiverRegistry.current().size(), syncOperations.get(), conflictsDetected.get(), backupsCreated.get());
     }
     
     // Getters para monitoramento
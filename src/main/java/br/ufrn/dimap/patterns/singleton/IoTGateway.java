@@ -1,10 +1,17 @@
 package br.ufrn.dimap.patterns.singleton;
 
+import br.ufrn.dimap.core.IoTConfig;
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.core.IoTSensor;
 import br.ufrn.dimap.patterns.strategy.CommunicationStrategy;
+import br.ufrn.dimap.patterns.strategy.ConsistentHashReceiverStrategy;
+import br.ufrn.dimap.patterns.strategy.LeastLoadedReceiverStrategy;
+import br.ufrn.dimap.patterns.strategy.ReceiverMembership;
+import br.ufrn.dimap.patterns.strategy.ReceiverRegistry;
 import br.ufrn.dimap.patterns.strategy.ReceiverStrategy;
 import br.ufrn.dimap.patterns.strategy.RoundRobinReceiverStrategy;
+import br.ufrn.dimap.patterns.observer.IoTEvent;
+import br.ufrn.dimap.patterns.observer.IoTEventBus;
 import br.ufrn.dimap.patterns.observer.IoTObserver;
 import br.ufrn.dimap.patterns.replication.DataReplicationManager;
 import br.ufrn.dimap.components.DataReceiver;
@@ -14,8 +21,9 @@ import org.slf4j.LoggerFactory;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Singleton Pattern - API Gateway IoT como ponto único de entrada
@@ -39,6 +47,9 @@ import java.util.ArrayList;
 public class IoTGateway {
     private static final Logger logger = LoggerFactory.getLogger(IoTGateway.class);
     
+    // Máximo de leituras por lote (HTTP /iot/data/batch e TCP BATCH|n)
+    public static final int MAX_BATCH_SIZE = IoTConfig.getInt("iot.batch.max.size", 1000);
+    
     // Singleton instance com double-checked locking
     private static volatile IoTGateway instance;
     private static final Object lock = new Object();
@@ -51,15 +62,17 @@ public class IoTGateway {
     private final ConcurrentHashMap<String, IoTSensor> registeredSensors;
     private final ConcurrentHashMap<String, LocalDateTime> lastHeartbeat;
     private final AtomicLong totalMessages;
-    private final List<IoTObserver> observers;
+    // Eventos do gateway: listeners tipados e IoTObserver (assíncronos, um ring buffer por observer)
+    private final IoTEventBus eventBus;
     private volatile boolean active;
     
     // Version Vector global do sistema
     private final ConcurrentHashMap<String, Long> globalVersionVector;
     
-    // PROXY PATTERN - Lista de Data Receivers (Instâncias B Stateful)
-    private final List<DataReceiver> dataReceivers;
-    private ReceiverStrategy receiverStrategy;
+    // PROXY PATTERN - Registro de Data Receivers (Instâncias B Stateful)
+    // Snapshot imutável com época, compartilhado com strategies, replicação e tolerância a falhas
+    private final ReceiverRegistry receiverRegistry;
+    private volatile ReceiverStrategy receiverStrategy;
     
     // REPLICACAO DE DADOS - Sistema de replicação entre Data Receivers
     private DataReplicationManager replicationManager;
@@ -72,11 +85,11 @@ public class IoTGateway {
         this.registeredSensors = new ConcurrentHashMap<>();
         this.lastHeartbeat = new ConcurrentHashMap<>();
         this.totalMessages = new AtomicLong(0);
-        this.observers = new ArrayList<>();
+        this.eventBus = new IoTEventBus();
         this.globalVersionVector = new ConcurrentHashMap<>();
-        this.dataReceivers = new ArrayList<>();
-        this.receiverStrategy = new RoundRobinReceiverStrategy();
-        this.replicationManager = new DataReplicationManager(dataReceivers);
+        this.receiverRegistry = new ReceiverRegistry();
+        this.receiverStrategy = createReceiverStrategy(IoTConfig.getString("iot.receiver.strategy", "round_robin"));
+        this.replicationManager = new DataReplicationManager(receiverRegistry, () -> receiverStrategy);
         this.active = false;
         
         logger.info("🏭 IoT Gateway Singleton criado: {} (PROXY para Data Receivers)", gatewayId);
@@ -96,6 +109,33 @@ public class IoTGateway {
         return instance;
     }
     
+    /**
+     * Estratégia de seleção de Data Receiver configurada (iot.receiver.strategy)
+     * round_robin (padrão), consistent_hash (afinidade por sensor) ou
+     * p2c/least_loaded (menos carregado entre dois sorteados)
+     */
+    private static ReceiverStrategy createReceiverStrategy(String name) {
+        if ("consistent_hash".equalsIgnoreCase(name)) {
+            return new ConsistentHashReceiverStrategy();
+        }
+        if ("p2c".equalsIgnoreCase(name) || "least_loaded".equalsIgnoreCase(name)) {
+            return new LeastLoadedReceiverStrategy();
+        }
+        return new RoundRobinReceiverStrategy();
+    }
+    
+    /**
+     * Configura a estratégia de seleção de Data Receivers (Strategy Pattern)
+     */
+    public void setReceiverStrategy(ReceiverStrategy strategy) {
+        this.receiverStrategy = strategy;
+        logger.info("🔧 Estratégia de Data Receivers configurada: {}", strategy.getStrategyName());
+    }
+    
+    public ReceiverStrategy getReceiverStrategy() {
+        return receiverStrategy;
+    }
+    
     /**
      * Configura a estratégia de comunicação (Strategy Pattern)
      */
@@ -121,9 +161,10 @@ public class IoTGateway {
         communicationStrategy.startServer(port);
         
         // Iniciar sistema de replicação de dados
-        if (!dataReceivers.isEmpty()) {
+        int receivers = receiverRegistry.current().size();
+        if (receivers > 0) {
             replicationManager.start();
-            logger.info("🔄 Sistema de replicação iniciado para {} Data Receivers", dataReceivers.size());
+            logger.info("🔄 Sistema de replicação iniciado para {} Data Receivers", receivers);
         }
         
         active = true;
@@ -182,7 +223,7 @@ public class IoTGateway {
                    sensorId, sensor.getType(), host, port);
         
         // Notificar observers
-        notifyObservers("SENSOR_REGISTERED", sensor);
+        eventBus.publish(new IoTEvent.SensorRegistered(sensor));
         
         return true;
     }
@@ -190,42 +231,46 @@ public class IoTGateway {
     /**
      * Registra um Data Receiver no Gateway (Instância B Stateful)
      */
-    public synchronized boolean registerDataReceiver(DataReceiver receiver) {
-        if (dataReceivers.contains(receiver)) {
+    public boolean registerDataReceiver(DataReceiver receiver) {
+        if (!receiverRegistry.register(receiver)) {
             logger.warn("⚠️ Data Receiver {} já registrado", receiver.getReceiverId());
             return false;
         }
         
-        dataReceivers.add(receiver);
-        
-        // Adicionar ao sistema de replicação
+        // Sincronização inicial no sistema de replicação
         if (replicationManager != null) {
             replicationManager.addDataReceiver(receiver);
         }
         
         logger.info("✅ Data Receiver registrado: {} na porta {} (Total: {})", 
-                   receiver.getReceiverId(), receiver.getPort(), dataReceivers.size());
+                   receiver.getReceiverId(), receiver.getPort(), receiverRegistry.current().size());
         
         // Notificar observers
-        notifyObservers("RECEIVER_REGISTERED", receiver);
+        eventBus.publish(new IoTEvent.ReceiverRegistered(receiver));
         
         return true;
     }
     
+    /**
+     * Registro de Data Receivers compartilhado (snapshot corrente via current())
+     */
+    public ReceiverRegistry getReceiverRegistry() {
+        return receiverRegistry;
+    }
+    
     /**
      * Remove Data Receiver
      */
-    public synchronized boolean unregisterDataReceiver(DataReceiver receiver) {
-        boolean removed = dataReceivers.remove(receiver);
+    public boolean unregisterDataReceiver(DataReceiver receiver) {
+        boolean removed = receiverRegistry.unregister(receiver);
         if (removed) {
-            // Remover do sistema de replicação
             if (replicationManager != null) {
                 replicationManager.removeDataReceiver(receiver);
             }
             
             logger.info("🗑️ Data Receiver removido: {} (Total: {})", 
-                       receiver.getReceiverId(), dataReceivers.size());
-            notifyObservers("RECEIVER_UNREGISTERED", receiver);
+                       receiver.getReceiverId(), receiverRegistry.current().size());
+            eventBus.publish(new IoTEvent.ReceiverUnregistered(receiver));
         }
         return removed;
     }
@@ -237,10 +282,10 @@ public class IoTGateway {
         logger.warn("⚠️ [TOLERÂNCIA_FALHAS] Detectada falha no receptor {}", failedReceiver.getReceiverId());
         
         // Notificar Strategy sobre a falha
-        receiverStrategy.handleReceiverFailure(failedReceiver, dataReceivers);
+        receiverStrategy.handleReceiverFailure(failedReceiver, receiverRegistry.current().getReceivers());
         
         // Tentar rotear para outro receptor disponível
-        DataReceiver alternativeReceiver = receiverStrategy.selectReceiver(message, dataReceivers);
+        DataReceiver alternativeReceiver = receiverStrategy.selectReceiver(message, receiverRegistry.current());
         
         if (alternativeReceiver != null && !alternativeReceiver.equals(failedReceiver)) {
             logger.info("🔄 [FAILOVER] Tentando rotear para receptor alternativo: {}", 
@@ -260,27 +305,24 @@ public class IoTGateway {
         }
         
         // Notificar observers sobre falha do sistema
-        notifyObservers("RECEIVER_FAILURE", failedReceiver);
+        eventBus.publish(new IoTEvent.ReceiverFailure(failedReceiver));
     }
     
     /**
      * Simula falha de um Data Receiver específico (para testes)
      */
     public void simulateReceiverFailure(String receiverId) {
-        DataReceiver receiver = dataReceivers.stream()
-                .filter(r -> r.getReceiverId().equals(receiverId))
-                .findFirst()
-                .orElse(null);
+        DataReceiver receiver = receiverRegistry.current().findById(receiverId);
         
         if (receiver != null) {
             logger.warn("💥 [TESTE_FALHAS] Simulando falha do receptor {}", receiverId);
             receiver.simulateFailure();
             
             // Remover temporariamente da lista ativa
-            dataReceivers.remove(receiver);
+            receiverRegistry.unregister(receiver);
             
             logger.warn("⚠️ [TESTE_FALHAS] Receptor {} removido da lista ativa (Total: {})", 
-                       receiverId, dataReceivers.size());
+                       receiverId, receiverRegistry.current().size());
         }
     }
     
@@ -316,12 +358,13 @@ public class IoTGateway {
      * Verifica saúde de todos os Data Receivers
      */
     public void performHealthCheck() {
-        logger.debug("🏥 [HEALTH_CHECK] Verificando saúde de {} receptores", dataReceivers.size());
+        ReceiverMembership membership = receiverRegistry.current();
+        logger.debug("🏥 [HEALTH_CHECK] Verificando saúde de {} receptores", membership.size());
         
         int healthy = 0;
         int unhealthy = 0;
         
-        for (DataReceiver receiver : new ArrayList<>(dataReceivers)) {
+        for (DataReceiver receiver : membership.getReceivers()) {
             if (receiver.isHealthy()) {
                 healthy++;
             } else {
@@ -332,9 +375,12 @@ public class IoTGateway {
         
         logger.info("🏥 [HEALTH_CHECK] Status: {} saudáveis, {} com problemas", healthy, unhealthy);
         
+        // Republicar se o estado dos receptores divergiu do snapshot
+        receiverRegistry.refreshIfStale();
+        
         if (unhealthy > 0) {
             logger.warn("⚠️ [SYSTEM_STATUS] Sistema operando em modo degradado - {}/{} receptores ativos", 
-                       healthy, dataReceivers.size());
+                       healthy, membership.size());
         }
     }
     
@@ -348,7 +394,7 @@ public class IoTGateway {
         
         if (removed != null) {
             logger.info("🗑️ Sensor removido: {}", sensorId);
-            notifyObservers("SENSOR_UNREGISTERED", removed);
+            eventBus.publish(new IoTEvent.SensorUnregistered(removed));
         }
     }
     
@@ -392,7 +438,7 @@ public class IoTGateway {
                    senderHost, senderPort, message.getSensorId(), message.getType());
         
         // STRATEGY PATTERN - Selecionar Data Receiver
-        DataReceiver selectedReceiver = receiverStrategy.selectReceiver(message, dataReceivers);
+        DataReceiver selectedReceiver = receiverStrategy.selectReceiver(message, receiverRegistry.current());
         
         if (selectedReceiver == null) {
             logger.error("❌ [PROXY] ERRO: Nenhum Data Receiver disponível para mensagem {}", message.getMessageId());
@@ -411,18 +457,155 @@ public class IoTGateway {
                         message.getMessageId(), selectedReceiver.getReceiverId());
             
             // Tratar falha do receptor
-            receiverStrategy.handleReceiverFailure(selectedReceiver, dataReceivers);
+            receiverStrategy.handleReceiverFailure(selectedReceiver, receiverRegistry.current().getReceivers());
             
             // Notificar observers sobre roteamento
-            notifyObservers("MESSAGE_ROUTED", message);
+            eventBus.publishMessageRouted(message, false);
             return false;
         }
         
         // Notificar observers sobre roteamento
-        notifyObservers("MESSAGE_ROUTED", message);
+        eventBus.publishMessageRouted(message, true);
         return true;
     }
     
+    /**
+     * PROXY PATTERN - Roteia um lote de leituras
+     * O receiver é selecionado por mensagem (a afinidade de sensor vale
+     * também em lotes mistos, ex.: agregadores de borda) e cada receiver
+     * recebe uma única chamada processBatch com as suas leituras. Em falha
+     * de um receiver, as leituras dele são reenviadas a receptores
+     * alternativos.
+     * @return status por item, na ordem do lote (true = processada)
+     */
+    public boolean[] routeBatchToDataReceiver(List<IoTMessage> messages, String senderHost, int senderPort) {
+        boolean[] results = new boolean[messages.size()];
+        if (messages.isEmpty()) {
+            return results;
+        }
+        totalMessages.addAndGet(messages.size());
+        
+        // Atualizar heartbeat dos sensores do lote
+        LocalDateTime now = LocalDateTime.now();
+        for (IoTMessage message : messages) {
+            if (message.getSenderId() != null) {
+                lastHeartbeat.put(message.getSenderId(), now);
+            }
+        }
+        
+        logger.info("🔄 [PROXY] Lote de {} mensagens recebido de {}:{} - Roteando para Data Receivers...", 
+                   messages.size(), senderHost, senderPort);
+        
+        // STRATEGY PATTERN - Selecionar Data Receiver de cada leitura
+        int[] indexes = new int[messages.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
+        int groups = routeBatchGroups(messages, indexes, indexes.length, results, null);
+        
+        int processed = 0;
+        for (boolean result : results) {
+            if (result) {
+                processed++;
+            }
+        }
+        if (groups == 0) {
+            logger.error("❌ [PROXY] ERRO: Nenhum Data Receiver disponível para lote de {} mensagens", messages.size());
+            return results;
+        }
+        logger.info("✅ [PROXY] Lote roteado para {} receptor(es) - {}/{} mensagens processadas", 
+                   groups, processed, results.length);
+        
+        // Notificar observers sobre roteamento (um evento por lote)
+        eventBus.publish(new IoTEvent.BatchRouted(messages));
+        return results;
+    }
+    
+    /**
+     * Agrupa as leituras indicadas por receiver selecionado e entrega cada
+     * grupo com uma chamada processBatch
+     * Como em handleReceiverFailureWithRecovery, cada receiver que falha é
+     * notificado à Strategy e publicado uma única vez como ReceiverFailure
+     * @param failed receiver que falhou (tentativa de failover) ou null na primeira tentativa
+     * @return quantidade de grupos entregues
+     */
+    private int routeBatchGroups(List<IoTMessage> messages, int[] indexes, int count, 
+                                 boolean[] results, DataReceiver failed) {
+        ReceiverMembership membership = receiverRegistry.current();
+        DataReceiver[] targets = new DataReceiver[count];
+        for (int i = 0; i < count; i++) {
+            targets[i] = receiverStrategy.selectReceiver(messages.get(indexes[i]), membership);
+        }
+        
+        int delivered = 0;
+        int[] group = new int[count];
+        for (int i = 0; i < count; i++) {
+            DataReceiver receiver = targets[i];
+            if (receiver == null) {
+                continue;
+            }
+            
+            // Leituras do mesmo receiver, na ordem do lote
+            int size = 0;
+            for (int j = i; j < count; j++) {
+                if (targets[j] == receiver) {
+                    group[size++] = indexes[j];
+                    targets[j] = null;
+                }
+            }
+            
+            if (receiver.equals(failed)) {
+                logger.error("❌ [FAILOVER] Nenhum receptor alternativo disponível - {} mensagens do lote perdidas", size);
+                continue;
+            }
+            if (routeBatchToDataReceiver(messages, group, size, receiver, results)) {
+                delivered++;
+                continue;
+            }
+            if (failed != null) {
+                logger.error("❌ [FAILOVER] Receptor alternativo {} indisponível - {} mensagens do lote perdidas", 
+                            receiver.getReceiverId(), size);
+                receiverStrategy.handleReceiverFailure(receiver, receiverRegistry.current().getReceivers());
+                eventBus.publish(new IoTEvent.ReceiverFailure(receiver));
+                continue;
+            }
+            
+            logger.warn("⚠️ [FAILOVER] Receptor {} indisponível para {} mensagens do lote", receiver.getReceiverId(), size);
+            receiverStrategy.handleReceiverFailure(receiver, receiverRegistry.current().getReceivers());
+            eventBus.publish(new IoTEvent.ReceiverFailure(receiver));
+            delivered += routeBatchGroups(messages, Arrays.copyOf(group, size), size, results, receiver);
+        }
+        return delivered;
+    }
+    
+    /**
+     * Entrega as leituras indicadas ao receiver, preenchendo os resultados por item
+     * @return false se o receiver não estava ativo (leituras não entregues)
+     */
+    private boolean routeBatchToDataReceiver(List<IoTMessage> messages, int[] indexes, int count,
+                                             DataReceiver receiver, boolean[] results) {
+        if (!receiver.isRunning()) {
+            return false;
+        }
+        List<IoTMessage> batch = messages;
+        if (count != messages.size()) {
+            batch = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                batch.add(messages.get(indexes[i]));
+            }
+        }
+        try {
+            boolean[] processed = receiver.processBatch(batch);
+            for (int i = 0; i < count; i++) {
+                results[indexes[i]] = processed[i];
+            }
+            return true;
+        } catch (Exception e) {
+            logger.error("❌ [PROXY] Erro ao rotear lote para {}: {}", receiver.getReceiverId(), e.getMessage());
+            return false;
+        }
+    }
+    
     /**
      * Roteia mensagem para Data Receiver específico - SEMPRE via UDP interno
      * Data Receivers sempre usam UDP para comunicação interna independente do protocolo de entrada
@@ -458,56 +641,42 @@ public class IoTGateway {
      * Atualiza Version Vector global
      */
     private void updateVersionVector(IoTMessage message) {
-        if (message.getVersionVector() != null) {
-            // Merge dos version vectors (converter Integer para Long)
-            message.getVersionVector().forEach((senderId, version) -> {
-                globalVersionVector.merge(senderId, version.longValue(), Long::max);
-            });
-        }
+        // Merge dos version vectors sem copiar o vetor da mensagem
+        message.forEachVersion((senderId, version) -> 
+            globalVersionVector.merge(senderId, version, Long::max));
     }
     
     /**
      * Observer Pattern - Adiciona observer
      */
     public void addObserver(IoTObserver observer) {
-        synchronized (observers) {
-            observers.add(observer);
-            logger.debug("👁️ Observer adicionado: {}", observer.getClass().getSimpleName());
-        }
+        eventBus.addObserver(observer);
+        logger.debug("👁️ Observer adicionado: {}", observer.getClass().getSimpleName());
     }
     
     /**
      * Observer Pattern - Remove observer
      */
     public void removeObserver(IoTObserver observer) {
-        synchronized (observers) {
-            observers.remove(observer);
-        }
+        eventBus.removeObserver(observer);
     }
     
     /**
-     * Notifica todos os observers
+     * Observer Pattern - Barramento de eventos tipados
+     * Ex.: gateway.getEventBus().subscribe(IoTEvent.ReceiverFailure.class, e -> ...)
      */
-    private void notifyObservers(String eventType, Object eventData) {
-        synchronized (observers) {
-            for (IoTObserver observer : observers) {
-                try {
-                    observer.onIoTEvent(eventType, eventData);
-                } catch (Exception e) {
-                    logger.error("❌ Erro ao notificar observer: {}", e.getMessage());
-                }
-            }
-        }
+    public IoTEventBus getEventBus() {
+        return eventBus;
     }
     
     // Getters para estatísticas
     public String getGatewayId() { return gatewayId; }
     public int getRegisteredSensorsCount() { return registeredSensors.size(); }
-    public int getRegisteredReceiversCount() { return dataReceivers.size(); }
+    public int getRegisteredReceiversCount() { return receiverRegistry.current().size(); }
     public long getTotalMessages() { return totalMessages.get(); }
     public boolean isActive() { return active; }
     public ConcurrentHashMap<String, Long> getGlobalVersionVector() { return new ConcurrentHashMap<>(globalVersionVector); }
-    public List<DataReceiver> getDataReceivers() { return new ArrayList<>(dataReceivers); }
+    public List<DataReceiver> getDataReceivers() { return receiverRegistry.current().getReceivers(); } // snapshot imutável
     
     /**
      * Estatísticas detalhadas do Gateway (PROXY)
@@ -520,15 +689,17 @@ public class IoTGateway {
         sb.append(String.format("  Protocol: %s\n", communicationStrategy != null ? communicationStrategy.getProtocolName() : "NONE"));
         sb.append(String.format("  Strategy: %s\n", receiverStrategy.getStrategyName()));
         sb.append(String.format("  Registered Sensors: %d\n", registeredSensors.size()));
-        sb.append(String.format("  Data Receivers: %d\n", dataReceivers.size()));
+        ReceiverMembership membership = receiverRegistry.current();
+        sb.append(String.format("  Data Receivers: %d (epoch %d)\n", membership.size(), membership.getEpoch()));
         sb.append(String.format("  Total Messages: %d\n", totalMessages.get()));
-        sb.append(String.format("  Observers: %d\n", observers.size()));
+        sb.append(String.format("  Observers: %d\n", eventBus.getObserverCount()));
+        sb.append(String.format("  %s\n", eventBus.getStats()));
         sb.append(String.format("  Version Vector: %s\n", globalVersionVector.toString()));
         
         // Status dos Data Receivers
-        if (!dataReceivers.isEmpty()) {
+        if (membership.size() > 0) {
             sb.append("  Data Receivers Status:\n");
-            for (DataReceiver receiver : dataReceivers) {
+            for (DataReceiver receiver : membership.getReceivers()) {
                 sb.append(String.format("    %s: %s (Port: %d, Messages: %d)\n", 
                          receiver.getReceiverId(), 
                          receiver.isRunning() ? "ACTIVE" : "INACTIVE",
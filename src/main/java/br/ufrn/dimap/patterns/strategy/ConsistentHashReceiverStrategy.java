@@ -0,0 +1,319 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.components.DataReceiver;
+import br.ufrn.dimap.core.IoTConfig;
+import br.ufrn.dimap.core.IoTMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Consistent Hash Strategy - Afinidade de sensor por Data Receiver
+ *
+ * Cada sensor (sensorId) tem um receptor "casa" definido por um anel de
+ * hash consistente com nós virtuais (iot.receiver.hash.virtual.nodes por
+ * receptor):
+ * - todas as leituras de um sensor vão para o mesmo receptor, evitando
+ *   conflitos de Last Write Wins entre receptores
+ * - quando um receptor entra ou sai, só ~1/N das chaves mudam de dono
+ * - receptor inativo ou com falha recente é pulado: as chaves dele vão
+ *   para o próximo receptor no anel e voltam quando ele se recupera
+ *
+ * Falhas reportadas por handleReceiverFailure suspendem o receptor por
+ * iot.receiver.hash.failure.backoff.ms mesmo que ele continue "rodando".
+ *
+ * Replicação: cada sensor fica no dono e no primeiro receptor distinto
+ * depois dele no anel (o mesmo que assume as chaves numa falha).
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0 - Consistent Hashing para Data Receivers
+ */
+public class ConsistentHashReceiverStrategy implements ReceiverStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(ConsistentHashReceiverStrategy.class);
+
+    private static final int VIRTUAL_NODES = IoTConfig.getInt("iot.receiver.hash.virtual.nodes", 160);
+    private static final long FAILURE_BACKOFF_MS = IoTConfig.getLong("iot.receiver.hash.failure.backoff.ms", 5000);
+
+    private final int virtualNodes;
+    private final long failureBackoffNanos;
+
+    // Anel imutável; reconstruído quando o conjunto de receptores muda
+    private volatile Ring ring = Ring.EMPTY;
+
+    // Receptores suspensos após falha: receptor -> fim da suspensão (System.nanoTime)
+    private final ConcurrentHashMap<DataReceiver, Long> suspendedUntil = new ConcurrentHashMap<>();
+
+    public ConsistentHashReceiverStrategy() {
+        this(VIRTUAL_NODES, FAILURE_BACKOFF_MS);
+    }
+
+    public ConsistentHashReceiverStrategy(int virtualNodes, long failureBackoffMs) {
+        this.virtualNodes = Math.max(1, virtualNodes);
+        this.failureBackoffNanos = Math.max(0, failureBackoffMs) * 1_000_000L;
+    }
+
+    @Override
+    public DataReceiver selectReceiver(IoTMessage message, List<DataReceiver> availableReceivers) {
+        if (availableReceivers == null || availableReceivers.isEmpty()) {
+            logger.warn("⚠️ Nenhum Data Receiver disponível para mensagem {}", message.getMessageId());
+            return null;
+        }
+
+        return select(message, ringFor(availableReceivers));
+    }
+
+    @Override
+    public DataReceiver selectReceiver(IoTMessage message, ReceiverMembership membership) {
+        if (membership.size() == 0) {
+            logger.warn("⚠️ Nenhum Data Receiver disponível para mensagem {}", message.getMessageId());
+            return null;
+        }
+        return select(message, ringFor(membership));
+    }
+
+    private DataReceiver select(IoTMessage message, Ring current) {
+        String key = message.getSensorId() != null ? message.getSensorId() : message.getMessageId();
+        int start = current.indexOf(hash(key));
+
+        // Sentido horário a partir do ponto da chave até um receptor disponível
+        DataReceiver home = current.owners[start];
+        int size = current.owners.length;
+        for (int i = 0; i < size; i++) {
+            DataReceiver candidate = current.owners[(start + i) % size];
+            if (isAvailable(candidate)) {
+                if (candidate != home) {
+                    logger.debug("🎯 [CONSISTENT_HASH] Sensor {} redirecionado de {} para {}",
+                                key, home.getReceiverId(), candidate.getReceiverId());
+                } else {
+                    logger.debug("🎯 [CONSISTENT_HASH] Selecionado {} para mensagem {} do sensor {}",
+                                candidate.getReceiverId(), message.getMessageId(), key);
+                }
+                return candidate;
+            }
+        }
+
+        logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
+        return null;
+    }
+
+    @Override
+    public void handleReceiverFailure(DataReceiver failedReceiver, List<DataReceiver> availableReceivers) {
+        if (failureBackoffNanos > 0) {
+            suspendedUntil.put(failedReceiver, System.nanoTime() + failureBackoffNanos);
+        }
+        logger.warn("⚠️ [CONSISTENT_HASH] Falha detectada no receiver {} - sensores redirecionados ao sucessor no anel por {}ms",
+                   failedReceiver.getReceiverId(), failureBackoffNanos / 1_000_000L);
+
+        long activeCount = availableReceivers.stream()
+                .filter(this::isAvailable)
+                .count();
+
+        if (activeCount > 0) {
+            logger.info("✅ [CONSISTENT_HASH] {} receptores ainda disponíveis para failover", activeCount);
+        } else {
+            logger.error("❌ [CONSISTENT_HASH] ALERTA: Nenhum Data Receiver disponível!");
+        }
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "CONSISTENT_HASH";
+    }
+
+    @Override
+    public boolean partitionsSensors() {
+        return true;
+    }
+
+    @Override
+    public boolean holdsSensor(String sensorId, DataReceiver receiver, ReceiverMembership membership) {
+        if (membership.size() == 0) {
+            return false;
+        }
+        Ring current = ringFor(membership);
+        int start = current.indexOf(hash(sensorId));
+        DataReceiver home = current.owners[start];
+        if (home == receiver) {
+            return true;
+        }
+        // Réplica: primeiro receptor diferente do dono no sentido horário
+        int size = current.owners.length;
+        for (int i = 1; i < size; i++) {
+            DataReceiver next = current.owners[(start + i) % size];
+            if (next != home) {
+                return next == receiver;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Receptor "casa" do sensor, ignorando disponibilidade
+     */
+    public DataReceiver homeOf(String sensorId, List<DataReceiver> receivers) {
+        if (receivers == null || receivers.isEmpty()) {
+            return null;
+        }
+        Ring current = ringFor(receivers);
+        return current.owners[current.indexOf(hash(sensorId))];
+    }
+
+    private boolean isAvailable(DataReceiver receiver) {
+        if (!receiver.isRunning()) {
+            return false;
+        }
+        if (suspendedUntil.isEmpty()) {
+            return true;
+        }
+        Long until = suspendedUntil.get(receiver);
+        if (until == null) {
+            return true;
+        }
+        if (System.nanoTime() - until >= 0) {
+            suspendedUntil.remove(receiver, until);
+            return true;
+        }
+        return false;
+    }
+
+    private Ring ringFor(List<DataReceiver> receivers) {
+        Ring current = ring;
+        if (current.hasMembers(receivers)) {
+            return current;
+        }
+        synchronized (this) {
+            current = ring;
+            if (!current.hasMembers(receivers)) {
+                current = Ring.build(receivers.toArray(new DataReceiver[0]), virtualNodes, null);
+                ring = current;
+                logger.info("🔄 [CONSISTENT_HASH] Anel reconstruído: {} receptores x {} nós virtuais",
+                           current.members.length, virtualNodes);
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Anel do snapshot do Gateway: reconstruído só quando os receptores
+     * registrados mudam (mudança só de estado reaproveita os pontos)
+     */
+    private Ring ringFor(ReceiverMembership membership) {
+        Ring current = ring;
+        if (current.source == membership) {
+            return current;
+        }
+        synchronized (this) {
+            current = ring;
+            if (current.source == membership) {
+                return current;
+            }
+            if (current.source != null && current.source.sameReceivers(membership)) {
+                current = new Ring(current.members, current.points, current.owners, membership);
+            } else {
+                DataReceiver[] members = new DataReceiver[membership.size()];
+                for (int i = 0; i < members.length; i++) {
+                    members[i] = membership.receiverAt(i);
+                }
+                current = Ring.build(members, virtualNodes, membership);
+                logger.info("🔄 [CONSISTENT_HASH] Anel reconstruído: {} receptores x {} nós virtuais",
+                           members.length, virtualNodes);
+            }
+            ring = current;
+            return current;
+        }
+    }
+
+    /**
+     * Hash de 64 bits: FNV-1a sobre os chars (byte baixo e alto, sem alocar)
+     * + finalizador do MurmurHash3
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            h ^= (c & 0xff);
+            h *= 0x100000001b3L;
+            h ^= (c >>> 8);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Anel ordenado de pontos (nós virtuais) e seus receptores
+     */
+    private static final class Ring {
+        static final Ring EMPTY = new Ring(new DataReceiver[0], new long[0], new DataReceiver[0], null);
+
+        final DataReceiver[] members;
+        final long[] points;
+        final DataReceiver[] owners;
+        // Snapshot do Gateway que originou o anel (null para a API baseada em List)
+        final ReceiverMembership source;
+
+        private Ring(DataReceiver[] members, long[] points, DataReceiver[] owners, ReceiverMembership source) {
+            this.members = members;
+            this.points = points;
+            this.owners = owners;
+            this.source = source;
+        }
+
+        static Ring build(DataReceiver[] members, int virtualNodes, ReceiverMembership source) {
+            int total = members.length * virtualNodes;
+            long[][] entries = new long[total][2];
+            int n = 0;
+            for (int m = 0; m < members.length; m++) {
+                for (int v = 0; v < virtualNodes; v++) {
+                    entries[n][0] = hash(members[m].getReceiverId() + "#" + v);
+                    entries[n][1] = m;
+                    n++;
+                }
+            }
+            // Ordena por ponto; empate (raro) decidido pelo id do receptor
+            Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                : members[(int) a[1]].getReceiverId().compareTo(members[(int) b[1]].getReceiverId()));
+
+            long[] points = new long[total];
+            DataReceiver[] owners = new DataReceiver[total];
+            for (int i = 0; i < total; i++) {
+                points[i] = entries[i][0];
+                owners[i] = members[(int) entries[i][1]];
+            }
+            return new Ring(members, points, owners, source);
+        }
+
+        /**
+         * Mesmo conjunto de receptores (por identidade e ordem) que a lista
+         */
+        boolean hasMembers(List<DataReceiver> receivers) {
+            if (receivers.size() != members.length || members.length == 0) {
+                return false;
+            }
+            for (int i = 0; i < members.length; i++) {
+                if (receivers.get(i) != members[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Primeiro ponto >= hash, com volta ao início do anel
+         */
+        int indexOf(long hash) {
+            int index = Arrays.binarySearch(points, hash);
+            if (index < 0) {
+                index = -index - 1;
+            }
+            return index == points.length ? 0 : index;
+        }
+    }
+}
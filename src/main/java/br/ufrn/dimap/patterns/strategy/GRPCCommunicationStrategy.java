@@ -1,18 +1,30 @@
 package br.ufrn.dimap.patterns.strategy;
 
+import br.ufrn.dimap.core.IoTConfig;
+import br.ufrn.dimap.core.IoTExecutors;
 import br.ufrn.dimap.core.IoTMessage;
 import br.ufrn.dimap.core.IoTSensor;
 import br.ufrn.dimap.patterns.singleton.IoTGateway;
 import br.ufrn.dimap.iot.grpc.IoTGatewayServiceGrpc;
 import br.ufrn.dimap.iot.grpc.IoTProtos;
 import io.grpc.Server;
-import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.grpc.netty.shaded.io.netty.util.concurrent.DefaultThreadFactory;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 /**
@@ -23,6 +35,10 @@ import java.util.function.BiConsumer;
  * - Integração com o sistema existente
  * - Demonstração do protocolo gRPC
  * - Compatibilidade com JMeter via HTTP (simulando gRPC)
+ * - Streaming de leituras (StreamSensorData) com controle de fluxo e ACKs em lote
+ * - Transporte Netty configurável (iot.grpc.*): event loops, executor,
+ *   keepalive, chamadas concorrentes, janela de fluxo e tamanho de mensagem
+ * - Micro-batching opcional de SendSensorData unário (iot.grpc.unary.batch.*)
  * 
  * @author UFRN-DIMAP
  * @version 1.0
@@ -31,10 +47,49 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
     
     private static final Logger logger = LoggerFactory.getLogger(GRPCCommunicationStrategy.class);
     
+    // Streaming: crédito inicial por stream, leituras por ACK e atraso máximo de um ACK parcial
+    private static final int STREAM_WINDOW = IoTConfig.getInt("iot.grpc.stream.window", 256);
+    private static final int STREAM_ACK_BATCH = IoTConfig.getInt("iot.grpc.stream.ack.batch", 64);
+    private static final long STREAM_ACK_INTERVAL_MS = IoTConfig.getLong("iot.grpc.stream.ack.interval.ms", 100);
+    
+    // Micro-batching unário: desligado por padrão; janela máxima de espera e tamanho máximo do lote
+    private static final boolean UNARY_BATCH_ENABLED = IoTConfig.getBoolean("iot.grpc.unary.batch.enabled", false);
+    private static final long UNARY_BATCH_WINDOW_MS = IoTConfig.getLong("iot.grpc.unary.batch.window.ms", 2);
+    private static final int UNARY_BATCH_MAX_SIZE = Math.min(IoTGateway.MAX_BATCH_SIZE,
+                                                             IoTConfig.getInt("iot.grpc.unary.batch.max.size", 64));
+    private static final int UNARY_BATCH_COMMIT_THREADS = IoTConfig.getInt("iot.grpc.unary.batch.commit.threads",
+                                                                           Runtime.getRuntime().availableProcessors());
+    
+    // Transporte Netty (0 = padrão do gRPC/Netty)
+    private static final int BOSS_THREADS = IoTConfig.getInt("iot.grpc.boss.threads", 1);
+    private static final int WORKER_THREADS = IoTConfig.getInt("iot.grpc.worker.threads", 0);
+    // Executor das chamadas: default (cached do gRPC, ou virtual com iot.executor.mode=virtual),
+    // fixed (pool limitado de iot.grpc.executor.threads), direct (na própria event loop) ou virtual
+    private static final String EXECUTOR = IoTConfig.getString("iot.grpc.executor", "default");
+    private static final int EXECUTOR_THREADS = IoTConfig.getInt("iot.grpc.executor.threads", 
+                                                                 Runtime.getRuntime().availableProcessors() * 2);
+    private static final long KEEPALIVE_TIME_MS = IoTConfig.getLong("iot.grpc.keepalive.time.ms", 0);
+    private static final long KEEPALIVE_TIMEOUT_MS = IoTConfig.getLong("iot.grpc.keepalive.timeout.ms", 20000);
+    private static final long PERMIT_KEEPALIVE_TIME_MS = IoTConfig.getLong("iot.grpc.permit.keepalive.time.ms", 0);
+    private static final int MAX_CONCURRENT_CALLS = IoTConfig.getInt("iot.grpc.max.concurrent.calls", 0);
+    private static final int FLOW_CONTROL_WINDOW = IoTConfig.getInt("iot.grpc.flow.control.window", 0);
+    private static final int MAX_INBOUND_MESSAGE_SIZE = IoTConfig.getInt("iot.grpc.max.inbound.message.size", 0);
+    
     private Server server;
+    private ExecutorService callExecutor;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private ScheduledExecutorService ackFlusher;
+    private volatile GRPCUnaryBatcher unaryBatcher;
     private BiConsumer<IoTMessage, String> messageProcessor;
+    private IoTGateway gateway;
     private volatile boolean running = false;
     
+    // Streams abertos e métricas de streaming
+    private final Set<GRPCSensorDataStream> openStreams = ConcurrentHashMap.newKeySet();
+    private final AtomicLong streamedReadings = new AtomicLong(0);
+    private final AtomicLong streamedFailures = new AtomicLong(0);
+    
     /**
      * Define o callback para processar mensagens recebidas
      */
@@ -42,6 +97,17 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
         this.messageProcessor = processor;
     }
     
+    /**
+     * Define o gateway usado pelo streaming para rotear leituras
+     * (routeToDataReceiver) e obter o resultado de cada uma para o ACK,
+     * e pelo micro-batching unário (routeBatchToDataReceiver).
+     * Sem gateway, o streaming usa o callback de setMessageProcessor e
+     * o micro-batching fica desligado.
+     */
+    public void setGateway(IoTGateway gateway) {
+        this.gateway = gateway;
+    }
+    
     @Override
     public void startServer(int port) throws Exception {
         logger.info("🚀 [gRPC] Iniciando servidor gRPC na porta {}", port);
@@ -49,10 +115,35 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
         // Implementação do serviço gRPC usando as classes geradas
         IoTGatewayServiceImpl serviceImpl = new IoTGatewayServiceImpl();
         
-        server = ServerBuilder.forPort(port)
-                .addService(serviceImpl)
-                .build()
-                .start();
+        NettyServerBuilder builder = NettyServerBuilder.forPort(port)
+                .addService(serviceImpl);
+        configureTransport(builder);
+        
+        try {
+            server = builder.build().start();
+        } catch (Exception e) {
+            shutdownTransport();
+            throw e;
+        }
+        
+        // Timer de ACKs parciais dos streams
+        ackFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gRPC-Stream-Ack");
+            t.setDaemon(true);
+            return t;
+        });
+        ackFlusher.scheduleAtFixedRate(this::flushStreamAcks, STREAM_ACK_INTERVAL_MS, 
+                                       STREAM_ACK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        
+        if (UNARY_BATCH_ENABLED) {
+            if (gateway != null) {
+                unaryBatcher = new GRPCUnaryBatcher(
+                    messages -> gateway.routeBatchToDataReceiver(messages, "grpc-client", port),
+                    UNARY_BATCH_MAX_SIZE, UNARY_BATCH_WINDOW_MS, UNARY_BATCH_COMMIT_THREADS);
+            } else {
+                logger.warn("⚠️ [gRPC] Micro-batching unário requer gateway (setGateway) - desligado");
+            }
+        }
         
         running = true;
         logger.info("✅ [gRPC] Servidor gRPC iniciado na porta {}", port);
@@ -72,20 +163,160 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
             logger.info("🔴 [gRPC] Parando servidor gRPC...");
             try {
                 server.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+                shutdownTransport();
                 running = false;
                 logger.info("✅ [gRPC] Servidor gRPC parado com sucesso");
             } catch (InterruptedException e) {
                 logger.warn("⚠️ [gRPC] Timeout durante shutdown do servidor - forçando parada");
                 server.shutdownNow();
+                shutdownTransport();
                 Thread.currentThread().interrupt();
                 running = false;
             }
         }
     }
     
+    /**
+     * Aplica a configuração iot.grpc.* ao builder Netty
+     */
+    private void configureTransport(NettyServerBuilder builder) {
+        // Event loops explícitos: boss aceita conexões, workers fazem o I/O HTTP/2
+        if (BOSS_THREADS > 0 || WORKER_THREADS > 0) {
+            bossGroup = new NioEventLoopGroup(Math.max(1, BOSS_THREADS), new DefaultThreadFactory("gRPC-Boss", true));
+            workerGroup = new NioEventLoopGroup(Math.max(0, WORKER_THREADS), new DefaultThreadFactory("gRPC-Worker", true));
+            builder.bossEventLoopGroup(bossGroup)
+                   .workerEventLoopGroup(workerGroup)
+                   .channelType(NioServerSocketChannel.class);
+        }
+        
+        // Executor das chamadas
+        String executorMode = EXECUTOR.toLowerCase();
+        if ("direct".equals(executorMode)) {
+            // Handlers rodam na event loop: menor latência, mas roteamento lento bloqueia o I/O
+            builder.directExecutor();
+        } else if ("fixed".equals(executorMode)) {
+            callExecutor = IoTExecutors.newFixedPool("gRPC-Call", EXECUTOR_THREADS);
+            builder.executor(callExecutor);
+        } else if ("virtual".equals(executorMode) || IoTExecutors.isVirtualMode()) {
+            if (IoTExecutors.isVirtualThreadsSupported()) {
+                callExecutor = IoTExecutors.newVirtualThreadPerTaskExecutor("gRPC-Call");
+                builder.executor(callExecutor);
+            } else {
+                logger.warn("⚠️ [gRPC] Virtual threads não disponíveis - usando executor padrão do gRPC");
+                executorMode = "default";
+            }
+        }
+        
+        if (KEEPALIVE_TIME_MS > 0) {
+            builder.keepAliveTime(KEEPALIVE_TIME_MS, TimeUnit.MILLISECONDS)
+                   .keepAliveTimeout(KEEPALIVE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        }
+        if (PERMIT_KEEPALIVE_TIME_MS > 0) {
+            builder.permitKeepAliveTime(PERMIT_KEEPALIVE_TIME_MS, TimeUnit.MILLISECONDS)
+                   .permitKeepAliveWithoutCalls(true);
+        }
+        if (MAX_CONCURRENT_CALLS > 0) {
+            builder.maxConcurrentCallsPerConnection(MAX_CONCURRENT_CALLS);
+        }
+        if (FLOW_CONTROL_WINDOW > 0) {
+            // Janela fixa (desliga o ajuste automático por BDP do Netty)
+            builder.flowControlWindow(FLOW_CONTROL_WINDOW);
+        }
+        if (MAX_INBOUND_MESSAGE_SIZE > 0) {
+            builder.maxInboundMessageSize(MAX_INBOUND_MESSAGE_SIZE);
+        }
+        
+        logger.info("⚙️ [gRPC] Transporte Netty - boss: {}, workers: {}, executor: {}, keepalive: {}ms, " +
+                   "chamadas/conexão: {}, janela: {}, msg máx.: {}",
+                   bossGroup != null ? Math.max(1, BOSS_THREADS) : "padrão",
+                   workerGroup != null && WORKER_THREADS > 0 ? WORKER_THREADS : "padrão",
+                   "fixed".equals(executorMode) ? "fixed(" + EXECUTOR_THREADS + ")" : executorMode,
+                   KEEPALIVE_TIME_MS > 0 ? KEEPALIVE_TIME_MS : "padrão",
+                   MAX_CONCURRENT_CALLS > 0 ? MAX_CONCURRENT_CALLS : "ilimitado",
+                   FLOW_CONTROL_WINDOW > 0 ? FLOW_CONTROL_WINDOW : "automática",
+                   MAX_INBOUND_MESSAGE_SIZE > 0 ? MAX_INBOUND_MESSAGE_SIZE : "padrão");
+    }
+    
+    private void shutdownTransport() {
+        if (unaryBatcher != null) {
+            unaryBatcher.close();
+            unaryBatcher = null;
+        }
+        if (ackFlusher != null) {
+            ackFlusher.shutdownNow();
+            ackFlusher = null;
+        }
+        if (callExecutor != null) {
+            callExecutor.shutdownNow();
+            callExecutor = null;
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+            workerGroup = null;
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+            bossGroup = null;
+        }
+    }
+    
+    private void flushStreamAcks() {
+        long now = System.nanoTime();
+        for (GRPCSensorDataStream stream : openStreams) {
+            try {
+                stream.flushIfStale(now);
+            } catch (Exception e) {
+                logger.warn("⚠️ [gRPC] Erro ao enviar ACK parcial de {}: {}", stream.getStreamId(), e.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Roteia uma leitura recebida por stream
+     * @return true se a leitura foi aceita (gateway ou callback)
+     */
+    private boolean routeStreamedReading(IoTMessage message) {
+        boolean routed;
+        if (gateway != null) {
+            routed = gateway.routeToDataReceiver(message, "grpc-stream", 0);
+        } else {
+            if (messageProcessor != null) {
+                messageProcessor.accept(message, "grpc-stream");
+            }
+            routed = true;
+        }
+        streamedReadings.incrementAndGet();
+        if (!routed) {
+            streamedFailures.incrementAndGet();
+        }
+        return routed;
+    }
+    
+    /**
+     * Leitura gRPC como IoTMessage do sistema (unário e streaming)
+     * Adaptador sobre o proto: sem formatação de conteúdo nem cópia do version vector
+     */
+    private static IoTMessage toSensorDataMessage(IoTProtos.IoTMessage grpcMessage) {
+        return new GRPCIoTMessage(grpcMessage);
+    }
+    
+    public int getOpenStreams() {
+        return openStreams.size();
+    }
+    
+    public String getStreamStats() {
+        return String.format("gRPC Streams - Open: %d, Readings: %d, Failed: %d",
+                           openStreams.size(), streamedReadings.get(), streamedFailures.get());
+    }
+    
+    public String getUnaryBatchStats() {
+        GRPCUnaryBatcher batcher = unaryBatcher;
+        return batcher != null ? batcher.getStats() : "gRPC Unary Batching - Disabled";
+    }
+    
     @Override
     public boolean sendMessage(IoTMessage message, String host, int port) {
-        logger.info("📤 [gRPC] Enviando mensagem: {} para {}:{}", 
+        logger.debug("📤 [gRPC] Enviando mensagem: {} para {}:{}", 
             message.getType(), host, port);
         
         // Simulação de envio gRPC
@@ -97,7 +328,7 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
     
     @Override
     public void processMessage(IoTMessage message, String senderHost, int senderPort) {
-        logger.info("📥 [gRPC] Processando mensagem: {} de {}", 
+        logger.debug("📥 [gRPC] Processando mensagem: {} de {}", 
             message.getType(), senderHost);
         
         if (messageProcessor != null) {
@@ -173,19 +404,18 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
                                  StreamObserver<IoTProtos.SensorDataResponse> responseObserver) {
             
             IoTProtos.IoTMessage grpcMessage = request.getIotMessage();
-            logger.info("📊 [gRPC] Dados do sensor: {} valor: {}", 
+            logger.debug("📊 [gRPC] Dados do sensor: {} valor: {}", 
                 grpcMessage.getSensorId(), grpcMessage.getMeasurement().getValue());
             
             // Converter para IoTMessage do sistema existente
-            IoTMessage message = new IoTMessage(
-                grpcMessage.getSensorId(),
-                IoTMessage.MessageType.SENSOR_DATA,
-                "VALUE:" + grpcMessage.getMeasurement().getValue() + 
-                ";UNIT:" + grpcMessage.getMeasurement().getUnit(),
-                grpcMessage.getMeasurement().getValue(),
-                grpcMessage.getSensorType().toString(),
-                new ConcurrentHashMap<>()
-            );
+            IoTMessage message = toSensorDataMessage(grpcMessage);
+            
+            // Micro-batching: a resposta é enviada quando o lote for confirmado
+            GRPCUnaryBatcher batcher = unaryBatcher;
+            if (batcher != null) {
+                batcher.submit(message, responseObserver);
+                return;
+            }
             
             // Processar via callback
             if (messageProcessor != null) {
@@ -202,14 +432,14 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
             responseObserver.onNext(response);
             responseObserver.onCompleted();
             
-            logger.info("✅ [gRPC] Dados do sensor {} processados", grpcMessage.getSensorId());
+            logger.debug("✅ [gRPC] Dados do sensor {} processados", grpcMessage.getSensorId());
         }
         
         @Override
         public void heartbeat(IoTProtos.HeartbeatRequest request,
                             StreamObserver<IoTProtos.HeartbeatResponse> responseObserver) {
             
-            logger.info("💓 [gRPC] Heartbeat do sensor: {}", request.getSensorId());
+            logger.debug("💓 [gRPC] Heartbeat do sensor: {}", request.getSensorId());
             
             // Converter para IoTMessage
             IoTMessage message = new IoTMessage(
@@ -235,5 +465,20 @@ public class GRPCCommunicationStrategy implements CommunicationStrategy {
             
             logger.debug("💓 [gRPC] Heartbeat do sensor {} confirmado", request.getSensorId());
         }
+        
+        @Override
+        public StreamObserver<IoTProtos.SensorDataRequest> streamSensorData(
+                StreamObserver<IoTProtos.SensorDataResponse> responseObserver) {
+            
+            // Stream com controle de fluxo manual e ACKs em lote
+            GRPCSensorDataStream stream = new GRPCSensorDataStream(
+                (ServerCallStreamObserver<IoTProtos.SensorDataResponse>) responseObserver,
+                GRPCCommunicationStrategy::toSensorDataMessage,
+                GRPCCommunicationStrategy.this::routeStreamedReading,
+                openStreams::remove,
+                STREAM_WINDOW, STREAM_ACK_BATCH, STREAM_ACK_INTERVAL_MS);
+            openStreams.add(stream);
+            return stream;
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.iot.grpc.IoTProtos;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Leitura gRPC vista como IoTMessage, sem conversão intermediária
+ *
+ * Adaptador sobre a mensagem protobuf recebida (unário e streaming):
+ * - o version vector é lido direto do map do proto (sensor_id -> int64),
+ *   sem cópia para ConcurrentHashMap; gateway e receivers fazem o merge
+ *   via forEachVersion
+ * - o conteúdo "VALUE:...;UNIT:..." só é formatado se alguém chamar
+ *   getContent() (logs, respostas em texto)
+ * - message_id do cliente é preservado quando presente
+ *
+ * A leitura recebida é imutável: incrementVersionVector e
+ * mergeVersionVector não são suportados.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class GRPCIoTMessage extends IoTMessage {
+    private static final long serialVersionUID = 1L;
+
+    private final IoTProtos.IoTMessage proto;
+
+    GRPCIoTMessage(IoTProtos.IoTMessage proto) {
+        super(proto.getMessageId().isEmpty() ? null : proto.getMessageId(),
+              proto.getSensorId(),
+              MessageType.SENSOR_DATA,
+              proto.getMeasurement().getValue(),
+              proto.getSensorType().name());
+        this.proto = proto;
+    }
+
+    @Override
+    public String getContent() {
+        return "VALUE:" + proto.getMeasurement().getValue() + ";UNIT:" + proto.getMeasurement().getUnit();
+    }
+
+    @Override
+    protected Map<String, ? extends Number> versionVectorView() {
+        return proto.getVersionVector().getVectorMap();
+    }
+
+    @Override
+    public void incrementVersionVector(String nodeId) {
+        throw new UnsupportedOperationException("Leitura gRPC é somente leitura");
+    }
+
+    @Override
+    public void mergeVersionVector(ConcurrentHashMap<String, Integer> otherVector) {
+        throw new UnsupportedOperationException("Leitura gRPC é somente leitura");
+    }
+}
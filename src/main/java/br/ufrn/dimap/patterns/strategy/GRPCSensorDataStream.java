@@ -0,0 +1,197 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.iot.grpc.IoTProtos;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Stream bidirecional de leituras (rpc StreamSensorData) de um sensor
+ *
+ * Controle de fluxo manual:
+ * - auto-request desligado; o cliente recebe um crédito inicial de
+ *   window mensagens via request(n)
+ * - créditos são devolvidos em blocos de window/2 conforme as leituras
+ *   são roteadas, e só quando a resposta do servidor está pronta
+ *   (isReady); se não estiver, o onReadyHandler devolve depois
+ *
+ * ACKs em lote: uma SensorDataResponse a cada ackBatch leituras, ou
+ * quando o lote parcial passa de ackIntervalMs sem confirmação
+ * (flushIfStale, chamado pelo timer da strategy), e uma final no
+ * onCompleted. Formato da mensagem: ACK|lote|processadas|falhas|total
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+class GRPCSensorDataStream implements StreamObserver<IoTProtos.SensorDataRequest> {
+    private static final Logger logger = LoggerFactory.getLogger(GRPCSensorDataStream.class);
+
+    private static final AtomicLong STREAM_IDS = new AtomicLong(0);
+
+    private final String streamId = "STREAM-" + STREAM_IDS.incrementAndGet();
+    private final ServerCallStreamObserver<IoTProtos.SensorDataResponse> responseObserver;
+    private final Function<IoTProtos.IoTMessage, IoTMessage> converter;
+    private final Predicate<IoTMessage> router;
+    private final Consumer<GRPCSensorDataStream> onClose;
+
+    private final int window;
+    private final int ackBatch;
+    private final long ackIntervalNanos;
+
+    // Créditos consumidos ainda não devolvidos ao cliente (threads do gRPC)
+    private int consumed;
+
+    // Estado do ACK: protegido por this (callbacks do gRPC + timer de flush)
+    private int pendingProcessed;
+    private int pendingFailed;
+    private long pendingSince;
+    private long totalReceived;
+    private boolean closed;
+
+    GRPCSensorDataStream(ServerCallStreamObserver<IoTProtos.SensorDataResponse> responseObserver,
+                         Function<IoTProtos.IoTMessage, IoTMessage> converter,
+                         Predicate<IoTMessage> router,
+                         Consumer<GRPCSensorDataStream> onClose,
+                         int window, int ackBatch, long ackIntervalMs) {
+        this.responseObserver = responseObserver;
+        this.converter = converter;
+        this.router = router;
+        this.onClose = onClose;
+        this.window = Math.max(2, window);
+        this.ackBatch = Math.max(1, ackBatch);
+        this.ackIntervalNanos = Math.max(1, ackIntervalMs) * 1_000_000L;
+
+        // Precisa ser configurado antes de streamSensorData retornar
+        responseObserver.disableAutoRequest();
+        responseObserver.setOnReadyHandler(this::replenishCredits);
+        responseObserver.setOnCancelHandler(() -> {
+            logger.info("🔌 [gRPC] {} cancelado pelo cliente após {} leituras", streamId, totalReceived());
+            close();
+        });
+        responseObserver.request(this.window);
+
+        logger.info("🌊 [gRPC] {} aberto (janela: {}, ACK a cada {} leituras ou {}ms)",
+                   streamId, this.window, this.ackBatch, ackIntervalMs);
+    }
+
+    @Override
+    public void onNext(IoTProtos.SensorDataRequest request) {
+        boolean routed;
+        try {
+            IoTMessage message = converter.apply(request.getIotMessage());
+            routed = router.test(message);
+            logger.debug("📊 [gRPC] {} leitura {} valor {} roteada: {}",
+                        streamId, message.getSensorId(), message.getSensorValue(), routed);
+        } catch (Exception e) {
+            logger.warn("⚠️ [gRPC] {} leitura inválida: {}", streamId, e.getMessage());
+            routed = false;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            totalReceived++;
+            if (pendingProcessed + pendingFailed == 0) {
+                pendingSince = System.nanoTime();
+            }
+            if (routed) {
+                pendingProcessed++;
+            } else {
+                pendingFailed++;
+            }
+            if (pendingProcessed + pendingFailed >= ackBatch) {
+                sendAck();
+            }
+        }
+
+        consumed++;
+        replenishCredits();
+    }
+
+    /**
+     * Devolve créditos em blocos de meia janela, só com a saída pronta
+     */
+    private void replenishCredits() {
+        if (consumed >= window / 2 && responseObserver.isReady() && !responseObserver.isCancelled()) {
+            int credits = consumed;
+            consumed = 0;
+            responseObserver.request(credits);
+        }
+    }
+
+    /**
+     * Confirma o lote parcial se ele estiver esperando além do intervalo de ACK
+     */
+    synchronized void flushIfStale(long now) {
+        if (!closed && pendingProcessed + pendingFailed > 0 && now - pendingSince >= ackIntervalNanos) {
+            sendAck();
+        }
+    }
+
+    private void sendAck() {
+        if (responseObserver.isCancelled()) {
+            return;
+        }
+        int batch = pendingProcessed + pendingFailed;
+        IoTProtos.SensorDataResponse ack = IoTProtos.SensorDataResponse.newBuilder()
+            .setSuccess(pendingFailed == 0)
+            .setMessage("ACK|" + batch + "|" + pendingProcessed + "|" + pendingFailed + "|" + totalReceived)
+            .setProcessedBy(streamId)
+            .build();
+        responseObserver.onNext(ack);
+        pendingProcessed = 0;
+        pendingFailed = 0;
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        logger.warn("⚠️ [gRPC] {} encerrado com erro após {} leituras: {}",
+                   streamId, totalReceived(), Status.fromThrowable(t).getCode());
+        close();
+    }
+
+    @Override
+    public void onCompleted() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (pendingProcessed + pendingFailed > 0) {
+                sendAck();
+            }
+            closed = true;
+        }
+        onClose.accept(this);
+        if (!responseObserver.isCancelled()) {
+            responseObserver.onCompleted();
+        }
+        logger.info("✅ [gRPC] {} concluído - {} leituras recebidas", streamId, totalReceived());
+    }
+
+    private void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        onClose.accept(this);
+    }
+
+    synchronized long totalReceived() {
+        return totalReceived;
+    }
+
+    String getStreamId() {
+        return streamId;
+    }
+}
@@ -0,0 +1,228 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.core.IoTExecutors;
+import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.iot.grpc.IoTProtos;
+import io.grpc.stub.StreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.function.Function;
+
+/**
+ * Micro-batching de chamadas unárias SendSensorData
+ *
+ * Chamadas que chegam dentro de uma janela curta (windowMs) ou até
+ * maxBatch chamadas são roteadas juntas como um lote; a resposta de cada
+ * chamada só é enviada quando o lote é confirmado, com o status daquela
+ * leitura. Troca um atraso limitado (no máximo a janela mais o roteamento
+ * do lote) por menos trabalho por leitura no gateway e nos receivers.
+ *
+ * Fechamento do lote:
+ * - por tamanho: na thread da chamada que completou o lote
+ * - por tempo: o timer só retira o lote corrente; o roteamento vai para o
+ *   pool de confirmação, para que um lote lento não atrase as próximas janelas
+ *
+ * Métricas: lotes, chamadas, tamanho médio/máximo e espera adicionada
+ * (da chegada da chamada até o início do roteamento do lote).
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+final class GRPCUnaryBatcher {
+    private static final Logger logger = LoggerFactory.getLogger(GRPCUnaryBatcher.class);
+
+    private final Function<List<IoTMessage>, boolean[]> router;
+    private final int maxBatch;
+    private final long windowMs;
+    private final ScheduledExecutorService timer;
+    private final ExecutorService committer;
+
+    // Lote em formação: protegido por lock
+    private final Object lock = new Object();
+    private List<PendingCall> pending;
+    private boolean closed;
+
+    // Métricas
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong calls = new AtomicLong(0);
+    private final AtomicLong failedCalls = new AtomicLong(0);
+    private final AtomicLong sizeFlushes = new AtomicLong(0);
+    private final AtomicLong totalWaitNanos = new AtomicLong(0);
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    private static final class PendingCall {
+        final IoTMessage message;
+        final StreamObserver<IoTProtos.SensorDataResponse> responseObserver;
+        final long enqueuedAt;
+
+        PendingCall(IoTMessage message, StreamObserver<IoTProtos.SensorDataResponse> responseObserver, long enqueuedAt) {
+            this.message = message;
+            this.responseObserver = responseObserver;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * @param router roteia o lote e devolve o status por item (ex.: IoTGateway.routeBatchToDataReceiver)
+     * @param commitThreads threads que confirmam lotes fechados por tempo
+     */
+    GRPCUnaryBatcher(Function<List<IoTMessage>, boolean[]> router, int maxBatch, long windowMs, int commitThreads) {
+        this.router = router;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.windowMs = Math.max(1, windowMs);
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gRPC-Unary-Batch");
+            t.setDaemon(true);
+            return t;
+        });
+        this.committer = IoTExecutors.newWorkerPool("gRPC-Unary-Commit", commitThreads);
+
+        logger.info("📦 [gRPC] Micro-batching unário ativo (lote máx.: {}, janela: {}ms)", this.maxBatch, this.windowMs);
+    }
+
+    /**
+     * Enfileira a chamada no lote corrente; a resposta é enviada quando o lote for confirmado
+     */
+    void submit(IoTMessage message, StreamObserver<IoTProtos.SensorDataResponse> responseObserver) {
+        PendingCall call = new PendingCall(message, responseObserver, System.nanoTime());
+        List<PendingCall> full = null;
+        synchronized (lock) {
+            if (closed) {
+                full = new ArrayList<>(1);
+                full.add(call);
+            } else {
+                if (pending == null) {
+                    List<PendingCall> batch = new ArrayList<>(maxBatch);
+                    pending = batch;
+                    timer.schedule(() -> flushIfCurrent(batch), windowMs, TimeUnit.MILLISECONDS);
+                }
+                pending.add(call);
+                if (pending.size() >= maxBatch) {
+                    full = pending;
+                    pending = null;
+                    sizeFlushes.incrementAndGet();
+                }
+            }
+        }
+        if (full != null) {
+            commit(full);
+        }
+    }
+
+    private void flushIfCurrent(List<PendingCall> batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                return; // já fechado por tamanho
+            }
+            pending = null;
+        }
+        try {
+            committer.execute(() -> commit(batch));
+        } catch (RejectedExecutionException e) {
+            commit(batch); // Encerrando: confirma na própria thread
+        }
+    }
+
+    private void commit(List<PendingCall> batch) {
+        long start = System.nanoTime();
+        List<IoTMessage> messages = new ArrayList<>(batch.size());
+        for (PendingCall call : batch) {
+            messages.add(call.message);
+        }
+
+        boolean[] results;
+        try {
+            results = router.apply(messages);
+        } catch (Exception e) {
+            logger.error("❌ [gRPC] Erro ao rotear lote unário de {} chamadas: {}", batch.size(), e.getMessage());
+            results = new boolean[batch.size()];
+        }
+
+        int processed = 0;
+        long maxWait = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingCall call = batch.get(i);
+            long wait = start - call.enqueuedAt;
+            totalWaitNanos.addAndGet(wait);
+            maxWait = Math.max(maxWait, wait);
+            if (results[i]) {
+                processed++;
+            }
+            respond(call, results[i]);
+        }
+
+        batches.incrementAndGet();
+        calls.addAndGet(batch.size());
+        failedCalls.addAndGet(batch.size() - processed);
+        maxWaitNanos.accumulate(maxWait);
+        maxBatchSize.accumulate(batch.size());
+
+        logger.debug("📦 [gRPC] Lote unário confirmado: {}/{} leituras, espera máx. {}us",
+                    processed, batch.size(), maxWait / 1000);
+    }
+
+    private void respond(PendingCall call, boolean processed) {
+        IoTProtos.SensorDataResponse response = IoTProtos.SensorDataResponse.newBuilder()
+            .setSuccess(processed)
+            .setMessage(processed ? "Dados processados com sucesso" : "Falha ao processar leitura")
+            .setProcessedBy("DATA-RECEIVER-001")
+            .build();
+        try {
+            call.responseObserver.onNext(response);
+            call.responseObserver.onCompleted();
+        } catch (Exception e) {
+            // Chamada cancelada pelo cliente enquanto esperava o lote
+            logger.debug("🔌 [gRPC] Resposta descartada para {}: {}", call.message.getSensorId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Confirma o lote pendente, para o timer e aguarda os lotes em confirmação;
+     * chamadas posteriores são roteadas sozinhas
+     */
+    void close() {
+        List<PendingCall> remaining;
+        synchronized (lock) {
+            closed = true;
+            remaining = pending;
+            pending = null;
+        }
+        timer.shutdownNow();
+        if (remaining != null) {
+            commit(remaining);
+        }
+        committer.shutdown();
+        try {
+            if (!committer.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warn("⚠️ [gRPC] Lotes unários ainda em confirmação no encerramento");
+                committer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            committer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    String getStats() {
+        long batchCount = batches.get();
+        long callCount = calls.get();
+        return String.format("gRPC Unary Batching - Batches: %d, Calls: %d, Failed: %d, Avg batch: %.1f, " +
+                           "Max batch: %d, Size flushes: %d, Added latency avg/max: %d/%d us",
+                           batchCount, callCount, failedCalls.get(),
+                           batchCount == 0 ? 0.0 : (double) callCount / batchCount,
+                           maxBatchSize.get(), sizeFlushes.get(),
+                           callCount == 0 ? 0 : totalWaitNanos.get() / callCount / 1000,
+                           maxWaitNanos.get() / 1000);
+    }
+}
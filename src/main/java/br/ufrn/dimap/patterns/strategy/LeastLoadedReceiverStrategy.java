@@ -0,0 +1,220 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.components.DataReceiver;
+import br.ufrn.dimap.core.IoTConfig;
+import br.ufrn.dimap.core.IoTMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Least Loaded Strategy - Power of two choices (P2C)
+ *
+ * Sorteia dois receptores ativos distintos e escolhe o de menor custo,
+ * calculado com a carga exportada por cada DataReceiver:
+ *
+ *   custo = (mensagens em processamento + 1) x latência média (EWMA)
+ *
+ * Um receptor lento ou em pausa de GC acumula mensagens em processamento
+ * e latência maior, perde os sorteios e passa a receber menos carga sem
+ * nenhuma coordenação global. Ocioso (nada em processamento), a latência
+ * decai pela metade a cada iot.receiver.p2c.decay.ms sem novas amostras,
+ * para que um receptor que ficou lento uma vez volte a ser escolhido depois
+ * de se recuperar. Com mensagens pendentes a latência não decai: o tempo
+ * desde a última amostra conta como latência (receptor parado fica caro), e
+ * sem nenhuma amostra vale iot.receiver.p2c.initial.latency.us.
+ *
+ * Falhas reportadas por handleReceiverFailure suspendem o receptor por
+ * iot.receiver.p2c.failure.backoff.ms mesmo que ele continue "rodando".
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0 - Power of two choices para Data Receivers
+ */
+public class LeastLoadedReceiverStrategy implements ReceiverStrategy {
+    private static final Logger logger = LoggerFactory.getLogger(LeastLoadedReceiverStrategy.class);
+
+    private static final long DECAY_MS = IoTConfig.getLong("iot.receiver.p2c.decay.ms", 1000);
+    private static final long FAILURE_BACKOFF_MS = IoTConfig.getLong("iot.receiver.p2c.failure.backoff.ms", 5000);
+    private static final long INITIAL_LATENCY_US = IoTConfig.getLong("iot.receiver.p2c.initial.latency.us", 1000);
+
+    private final long decayNanos;
+    private final long initialLatencyNanos;
+    private final long failureBackoffNanos;
+
+    // Receptores suspensos após falha: receptor -> fim da suspensão (System.nanoTime)
+    private final ConcurrentHashMap<DataReceiver, Long> suspendedUntil = new ConcurrentHashMap<>();
+
+    public LeastLoadedReceiverStrategy() {
+        this(DECAY_MS, FAILURE_BACKOFF_MS);
+    }
+
+    public LeastLoadedReceiverStrategy(long decayMs, long failureBackoffMs) {
+        this.decayNanos = Math.max(1, decayMs) * 1_000_000L;
+        this.initialLatencyNanos = Math.max(1, INITIAL_LATENCY_US) * 1_000L;
+        this.failureBackoffNanos = Math.max(0, failureBackoffMs) * 1_000_000L;
+    }
+
+    @Override
+    public DataReceiver selectReceiver(IoTMessage message, List<DataReceiver> availableReceivers) {
+        if (availableReceivers == null || availableReceivers.isEmpty()) {
+            logger.warn("⚠️ Nenhum Data Receiver disponível para mensagem {}", message.getMessageId());
+            return null;
+        }
+
+        int size = availableReceivers.size();
+        DataReceiver selected;
+        if (size == 1) {
+            selected = availableReceivers.get(0);
+            selected = isAvailable(selected) ? selected : null;
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+            selected = choose(availableReceivers.get(first), availableReceivers.get(second), System.nanoTime());
+            if (selected == null) {
+                // Os dois sorteados estão indisponíveis: primeiro disponível a partir do sorteio
+                for (int i = 1; i < size && selected == null; i++) {
+                    DataReceiver candidate = availableReceivers.get((first + i) % size);
+                    selected = isAvailable(candidate) ? candidate : null;
+                }
+            }
+        }
+
+        return logSelection(message, selected);
+    }
+
+    @Override
+    public DataReceiver selectReceiver(IoTMessage message, ReceiverMembership membership) {
+        int size = membership.activeCount();
+        if (size == 0) {
+            logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
+            return null;
+        }
+
+        DataReceiver selected;
+        if (size == 1) {
+            selected = membership.activeAt(0);
+            selected = isAvailable(selected) ? selected : null;
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(size);
+            int second = random.nextInt(size - 1);
+            if (second >= first) {
+                second++;
+            }
+            selected = choose(membership.activeAt(first), membership.activeAt(second), System.nanoTime());
+            if (selected == null) {
+                for (int i = 1; i < size && selected == null; i++) {
+                    DataReceiver candidate = membership.activeAt((first + i) % size);
+                    selected = isAvailable(candidate) ? candidate : null;
+                }
+            }
+        }
+
+        return logSelection(message, selected);
+    }
+
+    /**
+     * Menor custo entre os dois candidatos disponíveis (null se nenhum estiver)
+     */
+    private DataReceiver choose(DataReceiver a, DataReceiver b, long now) {
+        boolean aAvailable = isAvailable(a);
+        boolean bAvailable = isAvailable(b);
+        if (!aAvailable || !bAvailable) {
+            return aAvailable ? a : (bAvailable ? b : null);
+        }
+
+        long costA = cost(a, now);
+        long costB = cost(b, now);
+        if (costA != costB) {
+            return costA < costB ? a : b;
+        }
+        // Sem amostras de latência (ou empate): menos mensagens em processamento
+        return a.getInFlight() <= b.getInFlight() ? a : b;
+    }
+
+    /**
+     * (em processamento + 1) x latência média; decaimento só quando ocioso
+     */
+    private long cost(DataReceiver receiver, long now) {
+        long inFlight = receiver.getInFlight();
+        long latency = receiver.getLatencyEwmaNanos();
+        if (inFlight <= 0) {
+            if (latency == 0) {
+                return 0; // ocioso e sem amostras: receptor novo é explorado primeiro
+            }
+            long idle = now - receiver.getLastLatencySampleNanos();
+            if (idle > decayNanos) {
+                latency >>= Math.min(62, idle / decayNanos);
+            }
+            return latency;
+        }
+        if (latency == 0) {
+            // Trabalho pendente sem nenhuma amostra: não pode sair de graça
+            latency = initialLatencyNanos;
+        } else {
+            // Receptor parado (GC, travado) não produz amostras: a espera conta
+            latency = Math.max(latency, now - receiver.getLastLatencySampleNanos());
+        }
+        return (inFlight + 1L) * latency;
+    }
+
+    private DataReceiver logSelection(IoTMessage message, DataReceiver selected) {
+        if (selected == null) {
+            logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
+        } else if (logger.isDebugEnabled()) {
+            logger.debug("🎯 [LEAST_LOADED] Selecionado {} para mensagem {} (em processamento: {}, latência: {}µs)",
+                        selected.getReceiverId(), message.getMessageId(),
+                        selected.getInFlight(), selected.getLatencyEwmaNanos() / 1000);
+        }
+        return selected;
+    }
+
+    @Override
+    public void handleReceiverFailure(DataReceiver failedReceiver, List<DataReceiver> availableReceivers) {
+        if (failureBackoffNanos > 0) {
+            suspendedUntil.put(failedReceiver, System.nanoTime() + failureBackoffNanos);
+        }
+        logger.warn("⚠️ [LEAST_LOADED] Falha detectada no receiver {} - fora dos sorteios por {}ms",
+                   failedReceiver.getReceiverId(), failureBackoffNanos / 1_000_000L);
+
+        long activeCount = availableReceivers.stream()
+                .filter(this::isAvailable)
+                .count();
+
+        if (activeCount > 0) {
+            logger.info("✅ [LEAST_LOADED] {} receptores ainda disponíveis para failover", activeCount);
+        } else {
+            logger.error("❌ [LEAST_LOADED] ALERTA: Nenhum Data Receiver disponível!");
+        }
+    }
+
+    @Override
+    public String getStrategyName() {
+        return "LEAST_LOADED";
+    }
+
+    private boolean isAvailable(DataReceiver receiver) {
+        if (!receiver.isRunning()) {
+            return false;
+        }
+        if (suspendedUntil.isEmpty()) {
+            return true;
+        }
+        Long until = suspendedUntil.get(receiver);
+        if (until == null) {
+            return true;
+        }
+        if (System.nanoTime() - until >= 0) {
+            suspendedUntil.remove(receiver, until);
+            return true;
+        }
+        return false;
+    }
+}
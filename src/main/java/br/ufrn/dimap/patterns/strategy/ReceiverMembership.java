@@ -0,0 +1,159 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.components.DataReceiver;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Snapshot imutável dos Data Receivers registrados no Gateway
+ *
+ * Publicado pelo ReceiverRegistry a cada registro/remoção de receptor e a
+ * cada mudança de estado (start/stop, health check), com uma época que
+ * cresce a cada publicação. As strategies selecionam a partir dos arrays
+ * do snapshot sem alocar e sem lock; como um receptor pode parar entre
+ * duas publicações, a seleção ainda confere isRunning().
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ReceiverMembership {
+
+    public static final ReceiverMembership EMPTY = new ReceiverMembership(new DataReceiver[0], 0);
+
+    private final DataReceiver[] receivers;
+    private final DataReceiver[] active;
+    private final List<DataReceiver> receiverList;
+    private final long epoch;
+
+    private ReceiverMembership(DataReceiver[] receivers, long epoch) {
+        this.receivers = receivers;
+        this.active = Arrays.stream(receivers).filter(DataReceiver::isRunning).toArray(DataReceiver[]::new);
+        this.receiverList = Collections.unmodifiableList(Arrays.asList(receivers));
+        this.epoch = epoch;
+    }
+
+    /**
+     * Cria o snapshot a partir dos receptores registrados (a coleção é copiada)
+     */
+    public static ReceiverMembership of(Collection<DataReceiver> receivers, long epoch) {
+        return new ReceiverMembership(receivers.toArray(new DataReceiver[0]), epoch);
+    }
+
+    /**
+     * Próximo snapshot com o receptor adicionado ao final
+     */
+    ReceiverMembership with(DataReceiver receiver) {
+        DataReceiver[] next = Arrays.copyOf(receivers, receivers.length + 1);
+        next[receivers.length] = receiver;
+        return new ReceiverMembership(next, epoch + 1);
+    }
+
+    /**
+     * Próximo snapshot sem o receptor (deve estar registrado)
+     */
+    ReceiverMembership without(DataReceiver receiver) {
+        int index = indexOf(receiver);
+        DataReceiver[] next = new DataReceiver[receivers.length - 1];
+        System.arraycopy(receivers, 0, next, 0, index);
+        System.arraycopy(receivers, index + 1, next, index, next.length - index);
+        return new ReceiverMembership(next, epoch + 1);
+    }
+
+    /**
+     * Próximo snapshot com os mesmos receptores e o estado atual de cada um
+     */
+    ReceiverMembership refreshed() {
+        return new ReceiverMembership(receivers, epoch + 1);
+    }
+
+    /**
+     * Receptores registrados, ativos ou não
+     */
+    public int size() { return receivers.length; }
+    public DataReceiver receiverAt(int index) { return receivers[index]; }
+
+    public boolean contains(DataReceiver receiver) {
+        return indexOf(receiver) >= 0;
+    }
+
+    public int indexOf(DataReceiver receiver) {
+        for (int i = 0; i < receivers.length; i++) {
+            if (receivers[i] == receiver) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Primeiro receptor registrado com o id informado (null se não houver)
+     */
+    public DataReceiver findById(String receiverId) {
+        for (DataReceiver receiver : receivers) {
+            if (receiver.getReceiverId().equals(receiverId)) {
+                return receiver;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Receptores que estavam rodando quando o snapshot foi publicado
+     */
+    public int activeCount() { return active.length; }
+    public DataReceiver activeAt(int index) { return active[index]; }
+
+    /**
+     * true se algum receptor iniciou ou parou depois da publicação
+     */
+    public boolean isStale() {
+        int running = 0;
+        for (DataReceiver receiver : receivers) {
+            if (receiver.isRunning()) {
+                running++;
+            }
+        }
+        if (running != active.length) {
+            return true;
+        }
+        for (DataReceiver receiver : active) {
+            if (!receiver.isRunning()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visão imutável dos receptores registrados (API baseada em List)
+     */
+    public List<DataReceiver> getReceivers() { return receiverList; }
+
+    /**
+     * Época da publicação (cresce a cada mudança)
+     */
+    public long getEpoch() { return epoch; }
+
+    /**
+     * Mesmo conjunto de receptores registrados (por identidade e ordem)
+     */
+    public boolean sameReceivers(ReceiverMembership other) {
+        if (other.receivers.length != receivers.length) {
+            return false;
+        }
+        for (int i = 0; i < receivers.length; i++) {
+            if (other.receivers[i] != receivers[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ReceiverMembership{epoch=%d, registered=%d, active=%d}", epoch, receivers.length, active.length);
+    }
+}
@@ -0,0 +1,105 @@
+package br.ufrn.dimap.patterns.strategy;
+
+import br.ufrn.dimap.components.DataReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Registro único dos Data Receivers do Gateway
+ *
+ * Mantém uma referência atômica para o ReceiverMembership corrente.
+ * Registro, remoção e mudanças de estado publicam um novo snapshot por
+ * CAS (copy-on-write, época + 1); leitores (roteamento, strategies,
+ * replicação, tolerância a falhas) só leem a referência, sem lock e sem
+ * ver a lista pela metade.
+ *
+ * Os receptores registrados avisam o registro quando iniciam ou param
+ * (DataReceiver.setStateListener), e o snapshot é republicado com o novo
+ * conjunto de ativos.
+ *
+ * @author UFRN-DIMAP
+ * @version 1.0
+ */
+public final class ReceiverRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(ReceiverRegistry.class);
+
+    private final AtomicReference<ReceiverMembership> current = new AtomicReference<>(ReceiverMembership.EMPTY);
+
+    /**
+     * Snapshot corrente (wait-free)
+     */
+    public ReceiverMembership current() {
+        return current.get();
+    }
+
+    public long getEpoch() {
+        return current.get().getEpoch();
+    }
+
+    /**
+     * Registra o receptor; false se já estiver registrado
+     */
+    public boolean register(DataReceiver receiver) {
+        ReceiverMembership prev;
+        ReceiverMembership next;
+        do {
+            prev = current.get();
+            if (prev.contains(receiver)) {
+                return false;
+            }
+            next = prev.with(receiver);
+        } while (!current.compareAndSet(prev, next));
+
+        receiver.setStateListener(r -> refresh());
+        // O receptor pode ter mudado de estado antes do listener ser instalado
+        refreshIfStale();
+        logger.debug("🔄 Membership publicada após registro de {}: {}", receiver.getReceiverId(), current.get());
+        return true;
+    }
+
+    /**
+     * Remove o receptor; false se não estiver registrado
+     */
+    public boolean unregister(DataReceiver receiver) {
+        ReceiverMembership prev;
+        ReceiverMembership next;
+        do {
+            prev = current.get();
+            if (!prev.contains(receiver)) {
+                return false;
+            }
+            next = prev.without(receiver);
+        } while (!current.compareAndSet(prev, next));
+
+        receiver.setStateListener(null);
+        logger.debug("🔄 Membership publicada após remoção de {}: {}", receiver.getReceiverId(), next);
+        return true;
+    }
+
+    /**
+     * Republica o snapshot com o estado atual (start/stop) dos receptores
+     */
+    public void refresh() {
+        ReceiverMembership prev;
+        ReceiverMembership next;
+        do {
+            prev = current.get();
+            next = prev.refreshed();
+        } while (!current.compareAndSet(prev, next));
+        logger.debug("🔄 Membership republicada: {}", next);
+    }
+
+    /**
+     * Republica só se algum receptor mudou de estado desde a publicação
+     * @return true se republicou
+     */
+    public boolean refreshIfStale() {
+        if (!current.get().isStale()) {
+            return false;
+        }
+        refresh();
+        return true;
+    }
+}
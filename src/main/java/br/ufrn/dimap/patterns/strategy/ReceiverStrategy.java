@@ -26,6 +26,18 @@ public interface ReceiverStrategy {
      */
     DataReceiver selectReceiver(IoTMessage message, List<DataReceiver> availableReceivers);
     
+    /**
+     * Seleciona um Data Receiver a partir do snapshot publicado pelo Gateway
+     * (caminho de roteamento). Implementações devem evitar alocação aqui;
+     * o padrão delega para a versão baseada em List.
+     * @param message Mensagem a ser processada
+     * @param membership Snapshot imutável dos receptores registrados
+     * @return Data Receiver selecionado ou null se nenhum disponível
+     */
+    default DataReceiver selectReceiver(IoTMessage message, ReceiverMembership membership) {
+        return selectReceiver(message, membership.getReceivers());
+    }
+    
     /**
      * Trata falha de um receptor
      * @param failedReceiver Receptor que falhou
@@ -33,6 +45,26 @@ public interface ReceiverStrategy {
      */
     void handleReceiverFailure(DataReceiver failedReceiver, List<DataReceiver> availableReceivers);
     
+    /**
+     * Indica se cada sensor tem um receptor dono. Nesse caso a replicação
+     * faz merge por sensor entre dono e réplica em vez de copiar o estado
+     * inteiro de um receptor para outro (o que apagaria os valores do dono).
+     */
+    default boolean partitionsSensors() {
+        return false;
+    }
+    
+    /**
+     * Verifica se o receptor guarda o sensor (dono ou réplica); só consultado
+     * quando partitionsSensors() é true
+     * @param sensorId Sensor
+     * @param receiver Receptor candidato
+     * @param membership Snapshot dos receptores registrados
+     */
+    default boolean holdsSensor(String sensorId, DataReceiver receiver, ReceiverMembership membership) {
+        return true;
+    }
+    
     /**
      * Nome da estratégia para logs
      */
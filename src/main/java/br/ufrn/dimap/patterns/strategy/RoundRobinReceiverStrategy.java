@@ -13,6 +13,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 
  * Implementação minimalista de load balancing:
  * - Rotação circular entre receptores disponíveis
+ * - Seleção sem alocação a partir do snapshot de membership do Gateway
  * - Simplicidade para fácil compreensão
  * - Logs detalhados para demonstração
  * 
@@ -31,25 +32,64 @@ public class RoundRobinReceiverStrategy implements ReceiverStrategy {
             return null;
         }
         
-        // Filtrar apenas receptores ativos
-        List<DataReceiver> activeReceivers = availableReceivers.stream()
-                .filter(DataReceiver::isRunning)
-                .toList();
+        // Contar apenas receptores ativos
+        int activeCount = 0;
+        for (DataReceiver receiver : availableReceivers) {
+            if (receiver.isRunning()) {
+                activeCount++;
+            }
+        }
         
-        if (activeReceivers.isEmpty()) {
+        if (activeCount == 0) {
             logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
             return null;  
         }
         
-        // Round Robin simples
-        int index = currentIndex.getAndIncrement() % activeReceivers.size();
-        DataReceiver selected = activeReceivers.get(index);
+        // Round Robin simples: o índice-ésimo receptor ativo
+        int index = Math.floorMod(currentIndex.getAndIncrement(), activeCount);
+        int position = index;
+        for (DataReceiver receiver : availableReceivers) {
+            if (receiver.isRunning() && position-- == 0) {
+                logSelection(receiver, message, index, activeCount);
+                return receiver;
+            }
+        }
         
-        logger.debug("🎯 [ROUND_ROBIN] Selecionado {} para mensagem {} do sensor {} (índice {}/{})", 
-                    selected.getReceiverId(), message.getMessageId(), message.getSensorId(), 
-                    index, activeReceivers.size());
+        // Receptor parou durante a seleção
+        logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
+        return null;
+    }
+    
+    @Override
+    public DataReceiver selectReceiver(IoTMessage message, ReceiverMembership membership) {
+        int activeCount = membership.activeCount();
+        if (activeCount == 0) {
+            logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
+            return null;
+        }
+        
+        // floorMod: o contador pode passar de Integer.MAX_VALUE e ficar negativo
+        int index = Math.floorMod(currentIndex.getAndIncrement(), activeCount);
+        
+        // O snapshot pode estar um pouco atrasado: pular quem parou desde a publicação
+        for (int i = 0; i < activeCount; i++) {
+            DataReceiver selected = membership.activeAt((index + i) % activeCount);
+            if (selected.isRunning()) {
+                logSelection(selected, message, index, activeCount);
+                return selected;
+            }
+        }
         
-        return selected;
+        logger.warn("⚠️ Nenhum Data Receiver ativo para mensagem {}", message.getMessageId());
+        return null;
+    }
+    
+    private void logSelection(DataReceiver selected, IoTMessage message, int index, int activeCount) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("🎯 [ROUND_ROBIN] Selecionado {} para mensagem {} do sensor {} (índice {}/{})", 
+                        selected.getReceiverId(), message.getMessageId(), message.getSensorId(), 
+                        index, activeCount);
+        }
     }
     
     @Override
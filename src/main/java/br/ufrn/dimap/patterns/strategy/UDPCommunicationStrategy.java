@@ -1,12 +1,22 @@
 package br.ufrn.dimap.patterns.strategy;
 
+import br.ufrn.dimap.communication.udp.ByteBufferInputStream;
+import br.ufrn.dimap.communication.udp.UDPReceiveEngine;
+import br.ufrn.dimap.communication.udp.UDPResponseSender;
+import br.ufrn.dimap.core.IoTConfig;
 import br.ufrn.dimap.core.IoTMessage;
+import br.ufrn.dimap.core.IoTMessageCodec;
 import br.ufrn.dimap.core.IoTSensor;
+import br.ufrn.dimap.core.IoTTextParser;
+import br.ufrn.dimap.core.IoTTextRecord;
+import br.ufrn.dimap.core.ScratchPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -17,7 +27,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * Integra com o NativeUDPIoTServer mantendo compatibilidade total.
  * 
  * Características:
- * - Serialização nativa Java
+ * - Codec binário compacto (IoTMessageCodec) com fallback para serialização Java
+ * - Recepção NIO (DatagramChannel) com pool de buffers diretos
+ * - N listeners na mesma porta via SO_REUSEPORT (iot.udp.listeners)
  * - Thread-safe com ExecutorService
  * - Integração com Version Vector
  * - Logs estruturados
@@ -28,9 +40,29 @@ import java.util.concurrent.atomic.AtomicBoolean;
 public class UDPCommunicationStrategy implements CommunicationStrategy {
     private static final Logger logger = LoggerFactory.getLogger(UDPCommunicationStrategy.class);
     
-    private DatagramSocket serverSocket;
+    // Configurações do motor de recepção (application.properties)
+    private static final int BUFFER_SIZE = IoTConfig.getInt("iot.udp.buffer.size", 65536);
+    private static final int BUFFER_POOL_SIZE = IoTConfig.getInt("iot.udp.buffer.pool.size", 128);
+    private static final int WORKER_THREADS = IoTConfig.getInt("iot.udp.worker.threads", 10);
+    private static final int LISTENERS = IoTConfig.getInt("iot.udp.listeners", 1);
+    
+    // Envio de respostas: canal persistente + fila drenada em lotes
+    private static final int RESPONSE_QUEUE_SIZE = IoTConfig.getInt("iot.udp.response.queue.size", 4096);
+    private static final int RESPONSE_BATCH_SIZE = IoTConfig.getInt("iot.udp.response.batch.size", 64);
+    
+    // Codec de saída: BINARY (IoTMessageCodec) ou JAVA (serialização nativa, fallback)
+    private static final boolean BINARY_CODEC = 
+        !"JAVA".equalsIgnoreCase(IoTConfig.getString("iot.udp.codec", "BINARY"));
+    private static final ScratchPool<ByteBuffer> ENCODE_BUFFERS = 
+        ScratchPool.of(() -> ByteBuffer.allocate(BUFFER_SIZE));
+    
+    // Registro de texto reutilizado por worker (parser sem Strings intermediárias)
+    private static final ScratchPool<IoTTextRecord> TEXT_RECORDS = 
+        ScratchPool.of(IoTTextRecord::new);
+    
+    private final UDPReceiveEngine receiveEngine;
+    private final UDPResponseSender responseSender;
     private final AtomicBoolean running = new AtomicBoolean(false);
-    private ExecutorService executorService;
     private final ConcurrentHashMap<String, IoTSensor> connectedSensors = new ConcurrentHashMap<>();
     
     // Callback para processar mensagens recebidas
@@ -44,11 +76,9 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
     }
     
     public UDPCommunicationStrategy() {
-        this.executorService = Executors.newFixedThreadPool(10, r -> {
-            Thread t = new Thread(r, "UDP-Strategy-" + System.nanoTime());
-            t.setDaemon(true);
-            return t;
-        });
+        this.receiveEngine = new UDPReceiveEngine("UDP-Strategy", BUFFER_SIZE, BUFFER_POOL_SIZE,
+                                                  WORKER_THREADS, LISTENERS, this::handleReceivedPacket);
+        this.responseSender = new UDPResponseSender("UDP-Strategy", RESPONSE_QUEUE_SIZE, RESPONSE_BATCH_SIZE);
     }
     
     /**
@@ -66,38 +96,16 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
         }
         
         try {
-            serverSocket = new DatagramSocket(port);
+            // Motor NIO: DatagramChannel + pool de buffers diretos
+            receiveEngine.start(port);
+            responseSender.start();
             running.set(true);
             
             logger.info("🚀 UDP Strategy Server iniciado na porta {}", port);
             
-            // Thread para receber mensagens
-            executorService.submit(() -> {
-                byte[] buffer = new byte[65536];
-                
-                while (running.get() && !Thread.currentThread().isInterrupted()) {
-                    try {
-                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                        serverSocket.receive(packet);
-                        
-                        // Processar mensagem em thread separada
-                        executorService.submit(() -> handleReceivedPacket(packet));
-                        
-                    } catch (SocketTimeoutException e) {
-                        // Timeout normal, continuar
-                    } catch (Exception e) {
-                        if (running.get()) {
-                            logger.error("❌ Erro ao receber pacote UDP: {}", e.getMessage());
-                        }
-                    }
-                }
-            });
-            
-            // Configurar timeout para recepção
-            serverSocket.setSoTimeout(1000);
-            
         } catch (Exception e) {
             running.set(false);
+            receiveEngine.stop();
             logger.error("❌ Erro ao iniciar servidor UDP Strategy: {}", e.getMessage(), e);
             throw e;
         }
@@ -112,21 +120,8 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
         logger.info("🛑 Parando UDP Strategy Server...");
         running.set(false);
         
-        if (serverSocket != null && !serverSocket.isClosed()) {
-            serverSocket.close();
-        }
-        
-        if (executorService != null) {
-            executorService.shutdown();
-            try {
-                if (!executorService.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executorService.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executorService.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-        }
+        receiveEngine.stop();
+        responseSender.stop();
         
         logger.info("✅ UDP Strategy Server parado com sucesso");
     }
@@ -138,24 +133,17 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
             return false;
         }
         
-        try (DatagramSocket clientSocket = new DatagramSocket()) {
-            // Serializar mensagem
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(message);
-            oos.flush();
-            
-            byte[] data = baos.toByteArray();
+        try {
+            // Serializar mensagem (codec binário ou serialização Java)
+            byte[] data = BINARY_CODEC ? encodeBinary(message) : serializeJava(message);
             
-            // Enviar pacote
-            InetAddress address = InetAddress.getByName(host);
-            DatagramPacket packet = new DatagramPacket(data, data.length, address, port);
-            clientSocket.send(packet);
+            // Enfileirar no canal persistente de envio
+            boolean queued = responseSender.send(data, host, port);
             
-            logger.debug("📤 Mensagem UDP enviada para {}:{} - Tipo: {}", 
-                         host, port, message.getType());
+            logger.debug("📤 Mensagem UDP enfileirada para {}:{} - Tipo: {} - Aceita: {}", 
+                         host, port, message.getType(), queued);
             
-            return true;
+            return queued;
             
         } catch (Exception e) {
             logger.error("❌ Erro ao enviar mensagem UDP para {}:{}: {}", 
@@ -164,6 +152,23 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
         }
     }
     
+    private static byte[] encodeBinary(IoTMessage message) {
+        ByteBuffer scratch = ENCODE_BUFFERS.acquire();
+        try {
+            return IoTMessageCodec.encodeToArray(message, scratch);
+        } finally {
+            ENCODE_BUFFERS.release(scratch);
+        }
+    }
+    
+    private static byte[] serializeJava(IoTMessage message) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ObjectOutputStream oos = new ObjectOutputStream(baos);
+        oos.writeObject(message);
+        oos.flush();
+        return baos.toByteArray();
+    }
+    
     @Override
     public void processMessage(IoTMessage message, String senderHost, int senderPort) {
         // Delegação para o processador configurado
@@ -187,17 +192,26 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
     
     /**
      * Manipula pacote recebido via UDP
-     * Suporta tanto objetos serializados quanto mensagens de texto (JMeter)
+     * Formato negociado pelo primeiro byte: codec binário, objeto serializado ou texto (JMeter)
+     * O buffer pertence ao pool do motor e é devolvido após este método
      */
-    private void handleReceivedPacket(DatagramPacket packet) {
+    private void handleReceivedPacket(ByteBuffer data, InetSocketAddress sender) {
         try {
-            String senderHost = packet.getAddress().getHostAddress();
-            int senderPort = packet.getPort();
+            String senderHost = sender.getAddress().getHostAddress();
+            int senderPort = sender.getPort();
             
-            // Tentar primeiro como objeto serializado
-            try {
-                ByteArrayInputStream bais = new ByteArrayInputStream(packet.getData(), 0, packet.getLength());
-                ObjectInputStream ois = new ObjectInputStream(bais);
+            if (IoTMessageCodec.isBinary(data)) {
+                IoTMessage message = IoTMessageCodec.decode(data);
+                
+                logger.debug("📬 Pacote UDP binário recebido de {}:{} - Tipo: {} - Sensor: {} - Valor: {}", 
+                             senderHost, senderPort, message.getType(), message.getSensorId(), 
+                             message.getSensorValue());
+                
+                processMessage(message, senderHost, senderPort);
+                
+            } else if (isJavaSerialized(data)) {
+                // Objeto serializado lido direto do buffer
+                ObjectInputStream ois = new ObjectInputStream(new ByteBufferInputStream(data));
                 IoTMessage message = (IoTMessage) ois.readObject();
                 
                 logger.debug("📬 Pacote UDP serializado recebido de {}:{} - Tipo: {} [Código: {}] - Sensor: {} - Valor: {} {} - Timestamp: {}", 
@@ -208,22 +222,27 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
                 // Processar mensagem
                 processMessage(message, senderHost, senderPort);
                 
-            } catch (Exception serializationError) {
-                // Se falhar a deserialização, tentar como texto (JMeter)
-                String textMessage = new String(packet.getData(), 0, packet.getLength(), "UTF-8").trim();
+            } else {
+                // Mensagem de texto (JMeter): tokenizada direto do buffer
+                IoTTextRecord textMessage = TEXT_RECORDS.acquire();
+                try {
+                    IoTTextParser.parse(data, textMessage);
                 
-                logger.debug("📬 Pacote UDP texto recebido de {}:{} - Conteúdo: '{}'", 
-                             senderHost, senderPort, textMessage);
+                    logger.debug("📬 Pacote UDP texto recebido de {}:{} - Conteúdo: '{}'", 
+                                 senderHost, senderPort, textMessage);
                 
-                // Processar mensagem de texto
-                IoTMessage parsedMessage = parseTextMessage(textMessage, senderHost, senderPort);
-                if (parsedMessage != null) {
-                    processMessage(parsedMessage, senderHost, senderPort);
+                    // Processar mensagem de texto
+                    IoTMessage parsedMessage = parseTextMessage(textMessage, senderHost, senderPort);
+                    if (parsedMessage != null) {
+                        processMessage(parsedMessage, senderHost, senderPort);
                     
-                    logger.info("✅ Mensagem de texto processada com sucesso - Tipo: {} - Sensor: {} - Valor: {}", 
-                               parsedMessage.getType(), parsedMessage.getSensorId(), parsedMessage.getSensorValue());
-                } else {
-                    logger.warn("⚠️ Mensagem de texto não reconhecida: '{}'", textMessage);
+                        logger.info("✅ Mensagem de texto processada com sucesso - Tipo: {} - Sensor: {} - Valor: {}", 
+                                   parsedMessage.getType(), parsedMessage.getSensorId(), parsedMessage.getSensorValue());
+                    } else {
+                        logger.warn("⚠️ Mensagem de texto não reconhecida: '{}'", textMessage);
+                    }
+                } finally {
+                    TEXT_RECORDS.release(textMessage);
                 }
             }
             
@@ -232,72 +251,77 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
         }
     }
     
+    /**
+     * Verifica o cabeçalho de stream da serialização Java (0xACED)
+     */
+    private static boolean isJavaSerialized(ByteBuffer data) {
+        return data.remaining() >= 2 
+            && data.get(data.position()) == (byte) 0xAC 
+            && data.get(data.position() + 1) == (byte) 0xED;
+    }
+    
     /**
      * Parser para mensagens de texto do JMeter
      * Formato esperado: TIPO|SENSOR_ID|VALOR|UNIDADE|TIMESTAMP|OUTROS...
      */
-    private IoTMessage parseTextMessage(String textMessage, String senderHost, int senderPort) {
+    private IoTMessage parseTextMessage(IoTTextRecord textMessage, String senderHost, int senderPort) {
         try {
-            String[] parts = textMessage.split("\\|");
-            if (parts.length < 2) {
+            if (textMessage.fieldCount() < 2) {
                 return null;
             }
             
-            String messageType = parts[0].trim();
-            String sensorId = parts[1].trim();
+            String sensorId = textMessage.fieldString(1);
             
             // Criar Version Vector vazio para mensagens de texto
             ConcurrentHashMap<String, Integer> versionVector = new ConcurrentHashMap<>();
             versionVector.put(sensorId, 1);
             
-            switch (messageType) {
-                case "SENSOR_REGISTER":
-                    // Formato: SENSOR_REGISTER|SENSOR_ID|SENSOR_TYPE|LOCATION|TIMESTAMP|INITIAL_VALUE
-                    String sensorType = parts.length > 2 ? parts[2] : "UNKNOWN";
-                    String location = parts.length > 3 ? parts[3] : "Unknown";
-                    double initialValue = parts.length > 5 ? Double.parseDouble(parts[5]) : 0.0;
-                    
-                    return new IoTMessage(
-                        sensorId,
-                        IoTMessage.MessageType.SENSOR_REGISTER,
-                        "Registro via JMeter: " + sensorType + " em " + location,
-                        initialValue,
-                        sensorType,
-                        versionVector
-                    );
-                    
-                case "SENSOR_DATA":
-                    // Formato: SENSOR_DATA|SENSOR_ID|SENSOR_TYPE|LOCATION|TIMESTAMP|VALOR
-                    String dataType = parts.length > 2 ? parts[2] : "UNKNOWN";
-                    double dataValue = parts.length > 5 ? Double.parseDouble(parts[5]) : 0.0;
-                    
-                    return new IoTMessage(
-                        sensorId,
-                        IoTMessage.MessageType.SENSOR_DATA,
-                        "Dados via JMeter: " + dataType + " valor " + dataValue,
-                        dataValue,
-                        dataType,
-                        versionVector
-                    );
-                    
-                case "HEARTBEAT":
-                    // Formato: HEARTBEAT|SENSOR_ID|TIMESTAMP|STATUS
-                    String status = parts.length > 3 ? parts[3] : "ACTIVE";
-                    
-                    return new IoTMessage(
-                        sensorId,
-                        IoTMessage.MessageType.HEARTBEAT,
-                        "Heartbeat via JMeter: " + status,
-                        1.0, // Heartbeat sempre 1.0 (ativo)
-                        "HEARTBEAT",
-                        versionVector
-                    );
-                    
-                default:
-                    logger.debug("🔍 Tipo de mensagem não reconhecido: '{}'", messageType);
-                    return null;
+            if (textMessage.fieldEquals(0, "SENSOR_REGISTER")) {
+                // Formato: SENSOR_REGISTER|SENSOR_ID|SENSOR_TYPE|LOCATION|TIMESTAMP|INITIAL_VALUE
+                String sensorType = textMessage.hasField(2) ? textMessage.fieldSensorType(2) : "UNKNOWN";
+                String location = textMessage.hasField(3) ? textMessage.fieldString(3) : "Unknown";
+                double initialValue = textMessage.hasField(5) ? textMessage.fieldDouble(5) : 0.0;
+                
+                return new IoTMessage(
+                    sensorId,
+                    IoTMessage.MessageType.SENSOR_REGISTER,
+                    "Registro via JMeter: " + sensorType + " em " + location,
+                    initialValue,
+                    sensorType,
+                    versionVector
+                );
+                
+            } else if (textMessage.fieldEquals(0, "SENSOR_DATA")) {
+                // Formato: SENSOR_DATA|SENSOR_ID|SENSOR_TYPE|LOCATION|TIMESTAMP|VALOR
+                String dataType = textMessage.hasField(2) ? textMessage.fieldSensorType(2) : "UNKNOWN";
+                double dataValue = textMessage.hasField(5) ? textMessage.fieldDouble(5) : 0.0;
+                
+                return new IoTMessage(
+                    sensorId,
+                    IoTMessage.MessageType.SENSOR_DATA,
+                    "Dados via JMeter: " + dataType + " valor " + dataValue,
+                    dataValue,
+                    dataType,
+                    versionVector
+                );
+                
+            } else if (textMessage.fieldEquals(0, "HEARTBEAT")) {
+                // Formato: HEARTBEAT|SENSOR_ID|TIMESTAMP|STATUS
+                String status = textMessage.hasField(3) ? textMessage.fieldString(3) : "ACTIVE";
+                
+                return new IoTMessage(
+                    sensorId,
+                    IoTMessage.MessageType.HEARTBEAT,
+                    "Heartbeat via JMeter: " + status,
+                    1.0, // Heartbeat sempre 1.0 (ativo)
+                    "HEARTBEAT",
+                    versionVector
+                );
             }
             
+            logger.debug("🔍 Tipo de mensagem não reconhecido: '{}'", textMessage);
+            return null;
+            
         } catch (Exception e) {
             logger.error("❌ Erro ao fazer parse da mensagem de texto: '{}' - Erro: {}", textMessage, e.getMessage());
             return null;
@@ -343,18 +367,13 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
      * Envia resposta texto via UDP
      */
     private boolean sendTextResponse(String response, String clientHost, int clientPort) {
-        try (DatagramSocket responseSocket = new DatagramSocket()) {
-            byte[] responseData = response.getBytes("UTF-8");
-            InetAddress clientAddress = InetAddress.getByName(clientHost);
-            
-            DatagramPacket responsePacket = new DatagramPacket(
-                responseData, responseData.length, clientAddress, clientPort
-            );
-            
-            responseSocket.send(responsePacket);
+        try {
+            byte[] responseData = response.getBytes(StandardCharsets.UTF_8);
+            boolean queued = responseSender.send(responseData, clientHost, clientPort);
             
-            logger.debug("📤 Resposta UDP enviada para {}:{} - {}", clientHost, clientPort, response);
-            return true;
+            logger.debug("📤 Resposta UDP enfileirada para {}:{} - {} - Aceita: {}", 
+                         clientHost, clientPort, response, queued);
+            return queued;
             
         } catch (Exception e) {
             logger.error("❌ Erro ao enviar resposta UDP: {}", e.getMessage());
@@ -366,7 +385,8 @@ public class UDPCommunicationStrategy implements CommunicationStrategy {
      * Retorna estatísticas do servidor UDP
      */
     public String getStats() {
-        return String.format("UDP Strategy - Running: %s, Sensors: %d", 
-                           running.get(), connectedSensors.size());
+        return String.format("UDP Strategy - Running: %s, Sensors: %d, %s, %s", 
+                           running.get(), connectedSensors.size(), receiveEngine.getStats(),
+                           responseSender.getStats());
     }
 }
\ No newline at end of file